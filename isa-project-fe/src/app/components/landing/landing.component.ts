@@ -74,6 +74,7 @@ export class LandingComponent implements OnInit {
 
   onImgError(event: any): void {
     console.error('❌ Image load failed for:', event.target.src);
+    event.target.removeAttribute('srcset');
     event.target.src = 'assets/default-thumbnail.png';
   }
 
@@ -95,6 +95,7 @@ export class ProfileComponent implements OnInit {
 
   onImgError(event: any): void {
     console.error('❌ Image load failed for:', event.target.src);
+    event.target.removeAttribute('srcset');
     event.target.src = 'assets/default-thumbnail.png';
   }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+import requests
+import time
+
+# Koliko bajtova thumbnail-a skida jedno učitavanje početne strane:
+# pre (original, bez ?w=) i posle (varijanta koju bira <img srcset>, ?w=320 / ?w=640 za retina ekrane)
+BASE_URL = "http://localhost:8080"
+WIDTHS = [None, 320, 640]
+
+
+def load_home_page():
+    """Lista videa kao što je učitava landing stranica"""
+    response = requests.get(f"{BASE_URL}/api/videos", timeout=10)
+    response.raise_for_status()
+    return response.json()
+
+
+def thumbnail_bytes(videos, width):
+    total = 0
+    for video in videos:
+        url = f"{BASE_URL}{video['thumbnailUrl']}"
+        if width is not None:
+            url += f"?w={width}"
+        response = requests.get(url, timeout=10)
+        if response.status_code == 200:
+            total += len(response.content)
+    return total
+
+
+if __name__ == "__main__":
+    print("=" * 50)
+    print("🖼️  THUMBNAIL BYTES PO UČITAVANJU POČETNE")
+    print("=" * 50)
+
+    videos = load_home_page()
+    print(f"📋 Videa na početnoj: {len(videos)}")
+
+    # Prvi ?w= zahtev zakazuje izradu varijanti za starije videe - sačekaj pipeline
+    for width in WIDTHS[1:]:
+        thumbnail_bytes(videos, width)
+    time.sleep(3)
+
+    baseline = None
+    for width in WIDTHS:
+        total = thumbnail_bytes(videos, width)
+        label = "original" if width is None else f"w={width}"
+        if baseline is None:
+            baseline = total
+            print(f"📦 {label:>9}: {total / 1024:10.1f} KB")
+        else:
+            saved = 100.0 * (1 - total / baseline) if baseline else 0.0
+            print(f"📦 {label:>9}: {total / 1024:10.1f} KB  (-{saved:.1f}%)")
+
+    print("=" * 50)
+    print("Metrika na serveru: /actuator/metrics/thumbnail.bytes.served?tag=variant:original")
@@ -0,0 +1,89 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import rs.ac.uns.ftn.isa.isa_project.IsaProjectApplication;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+
+/**
+ * Pokreće aplikaciju za benchmark nad lokalnim embedded PostgreSQL-om
+ * (zonky embedded-postgres - pravi postgres proces, bez Docker-a i Testcontainers-a).
+ *
+ * Jedna instanca po JMH fork-u; sync sa drugim replikama je isključen.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    static BenchmarkApplication start() throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(IsaProjectApplication.class)
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=",
+                        "spring.datasource.hikari.maximum-pool-size=10",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "server.port=0",
+                        "crdt.replica.id=replica-1",
+                        "crdt.replica.urls=",
+                        "crdt.sync.push-enabled=false",
+                        "crdt.sync.periodic-enabled=false",
+                        "logging.level.rs.ac.uns.ftn.isa=WARN",
+                        "logging.level.org.springframework.security=WARN")
+                .run();
+
+        return new BenchmarkApplication(postgres, context);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Kreira video (i autora) nad kojim benchmark radi.
+     */
+    Long createVideo(String title) {
+        UserRepository userRepository = getBean(UserRepository.class);
+        VideoRepository videoRepository = getBean(VideoRepository.class);
+
+        User author = userRepository.findAll().stream().findFirst().orElseGet(() -> {
+            User user = new User();
+            user.setUsername("benchmark-user");
+            user.setEmail("benchmark@test.com");
+            user.setPassword("benchmark");
+            user.setFirstName("Benchmark");
+            user.setLastName("User");
+            user.setAddress("Benchmark Adresa 1");
+            user.setActivated(true);
+            user.setEnabled(true);
+            return userRepository.save(user);
+        });
+
+        Video video = new Video();
+        video.setTitle(title);
+        video.setDescription("JMH benchmark video");
+        video.setVideoPath("benchmark/video.mp4");
+        video.setThumbnailPath("benchmark/thumb.jpg");
+        video.setViewCount(0L);
+        video.setAuthor(author);
+        return videoRepository.save(video).getId();
+    }
+
+    @Override
+    public void close() throws Exception {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,95 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import rs.ac.uns.ftn.isa.isa_project.crdt.GCounter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poređenje crdt.GCounter (long[] po slotu replike) i ranijeg MapGCounter-a
+ * (HashMap<String, Long>) na operacijama iz putanje čitanja view count-a.
+ *
+ * Pokretanje: ./mvnw -P benchmark verify -Djmh.include=GCounterBenchmark
+ * (za alokacije dodati -Djmh.args="-prof gc")
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GCounterBenchmark {
+
+    @Param({"2", "8"})
+    private int replicas;
+
+    private Map<String, Long> localCounts;
+    private Map<String, Long> remoteCounts;
+
+    private GCounter local;
+    private GCounter remote;
+    private GCounter mergeTarget;
+
+    private MapGCounter mapLocal;
+    private MapGCounter mapRemote;
+
+    @Setup
+    public void setup() {
+        localCounts = new HashMap<>();
+        remoteCounts = new HashMap<>();
+        for (int i = 1; i <= replicas; i++) {
+            localCounts.put("replica-" + i, 1_000L * i);
+            remoteCounts.put("replica-" + i, 1_000L * i + (i % 2 == 0 ? 7 : -7));
+        }
+
+        local = new GCounter(localCounts);
+        remote = new GCounter(remoteCounts);
+        mergeTarget = new GCounter(localCounts);
+
+        mapLocal = new MapGCounter(localCounts);
+        mapRemote = new MapGCounter(remoteCounts);
+    }
+
+    @Benchmark
+    public long compactGetValue() {
+        return local.getValue();
+    }
+
+    @Benchmark
+    public long mapGetValue() {
+        return mapLocal.getValue();
+    }
+
+    @Benchmark
+    public GCounter compactMerge() {
+        return local.merge(remote);
+    }
+
+    @Benchmark
+    public MapGCounter mapMerge() {
+        return mapLocal.merge(mapRemote);
+    }
+
+    /**
+     * Merge u mestu - posle prvog poziva je idempotentan, pa stanje ostaje isto.
+     */
+    @Benchmark
+    public GCounter compactMergeInto() {
+        return mergeTarget.mergeInto(remote);
+    }
+
+    /**
+     * Putanja čitanja: stanje iz baze/keša (mapa) -> merge sa udaljenim -> ukupna vrednost.
+     */
+    @Benchmark
+    public long compactReadPath() {
+        return new GCounter(localCounts).mergeInto(remote).getValue();
+    }
+
+    @Benchmark
+    public long mapReadPath() {
+        return new MapGCounter(localCounts).merge(mapRemote).getValue();
+    }
+}
@@ -0,0 +1,150 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Raniji G-Counter (HashMap<String, Long>) - zadržan samo kao osnova za poređenje
+ * u GCounterBenchmark. Produkcija koristi crdt.GCounter (long[] po slotu replike).
+ */
+public class MapGCounter {
+
+    /**
+     * Mapa koja čuva brojač za svaku repliku.
+     * Key: ID replike (npr. "replica-1", "replica-2")
+     * Value: Broj inkremenata te replike
+     */
+    private final Map<String, Long> counts;
+
+    /**
+     * Default konstruktor - kreira prazan G-Counter
+     */
+    public MapGCounter() {
+        this.counts = new HashMap<>();
+    }
+
+    /**
+     * Konstruktor koji prima postojeću mapu brojača
+     * Koristi se prilikom deserijalizacije ili testiranja
+     */
+    public MapGCounter(Map<String, Long> counts) {
+        this.counts = new HashMap<>(counts);
+    }
+
+    /**
+     * Inkrementuje brojač za datu repliku.
+     *
+     * @param replicaId ID replike (npr. "replica-1")
+     */
+    public void increment(String replicaId) {
+        counts.put(replicaId, counts.getOrDefault(replicaId, 0L) + 1);
+    }
+
+    /**
+     * Inkrementuje brojač za datu repliku za određenu vrednost.
+     *
+     * @param replicaId ID replike
+     * @param amount Koliko da se doda
+     */
+    public void increment(String replicaId, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("G-Counter can only grow, amount must be >= 0");
+        }
+        counts.put(replicaId, counts.getOrDefault(replicaId, 0L) + amount);
+    }
+
+    /**
+     * Vraća ukupnu vrednost brojača - SUMA svih replika.
+     *
+     * @return Ukupan broj pregleda
+     */
+    public long getValue() {
+        return counts.values().stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Vraća vrednost brojača za određenu repliku.
+     *
+     * @param replicaId ID replike
+     * @return Broj pregleda te replike
+     */
+    public long getReplicaCount(String replicaId) {
+        return counts.getOrDefault(replicaId, 0L);
+    }
+
+    /**
+     * Vraća kopiju interne mape brojača.
+     * Koristi se za serijalizaciju i slanje preko mreže.
+     *
+     * @return Kopija mape brojača
+     */
+    public Map<String, Long> getCounts() {
+        return new HashMap<>(counts);
+    }
+
+    /**
+     * MERGE funkcija - spaja dva G-Counter-a uzimajući MAX za svaku repliku.
+     *
+     * Ovo je ključna operacija za CRDT:
+     * - Uzima MAX vrednost za svaku repliku
+     * - Garantuje eventual consistency
+     * - Komutativna je: merge(A, B) = merge(B, A)
+     * - Idempotentna je: merge(A, A) = A
+     *
+     * Primer:
+     * Counter1: {replica-1: 30, replica-2: 10}
+     * Counter2: {replica-1: 20, replica-2: 25}
+     * Merge:    {replica-1: 30, replica-2: 25}
+     *
+     * @param other Drugi G-Counter za merge
+     * @return Novi G-Counter sa merged vrednostima
+     */
+    public MapGCounter merge(MapGCounter other) {
+        Map<String, Long> merged = new HashMap<>(this.counts);
+
+        // Za svaku repliku iz drugog counter-a
+        for (Map.Entry<String, Long> entry : other.counts.entrySet()) {
+            String replicaId = entry.getKey();
+            Long otherCount = entry.getValue();
+
+            // Uzmi MAX između lokalne i remote vrednosti
+            merged.put(replicaId, Math.max(
+                    merged.getOrDefault(replicaId, 0L),
+                    otherCount
+            ));
+        }
+
+        return new MapGCounter(merged);
+    }
+
+    /**
+     * Vraća broj replika koje su zabeležile preglede
+     */
+    public int getReplicaCount() {
+        return counts.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MapGCounter gCounter = (MapGCounter) o;
+        return Objects.equals(counts, gCounter.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "MapGCounter{" +
+                "counts=" + counts +
+                ", total=" + getValue() +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import rs.ac.uns.ftn.isa.isa_project.crdt.CRDTBinaryCodec;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serijalizacija payload-a koji ReplicaSyncService šalje na /api/crdt/sync/batch:
+ * Jackson (JSON) naspram CRDTBinaryCodec (application/x-crdt-binary).
+ * Veličina poruka u bajtovima se ispisuje u setup-u.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SyncPayloadBenchmark {
+
+    /**
+     * 1 = pojedinačan push, 500 = pun batch (crdt.sync.push-max-batch).
+     */
+    @Param({"1", "500"})
+    private int batchSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private CRDTSyncBatchRequest batch;
+    private byte[] serialized;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        List<CRDTSyncRequest> states = new ArrayList<>(batchSize);
+        for (long videoId = 1; videoId <= batchSize; videoId++) {
+            states.add(new CRDTSyncRequest(videoId, "replica-1",
+                    Map.of("replica-1", 1_000 + videoId, "replica-2", 2_000 + videoId)));
+        }
+        batch = new CRDTSyncBatchRequest("replica-1", states);
+        serialized = mapper.writeValueAsBytes(batch);
+        binary = CRDTBinaryCodec.encode(batch);
+
+        System.out.printf("%n[batchSize=%d] JSON: %d bytes, binary: %d bytes (%.1fx)%n",
+                batchSize, serialized.length, binary.length, (double) serialized.length / binary.length);
+    }
+
+    @Benchmark
+    public byte[] serializeBatch() throws Exception {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public CRDTSyncBatchRequest deserializeBatch() throws Exception {
+        return mapper.readValue(serialized, CRDTSyncBatchRequest.class);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return CRDTBinaryCodec.encode(batch);
+    }
+
+    @Benchmark
+    public CRDTSyncBatchRequest decodeBinary() {
+        return CRDTBinaryCodec.decode(binary);
+    }
+}
@@ -0,0 +1,123 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.StreamUtils;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoStreamingService;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slanje video fajla (200 MB) u TCP socket preko loopback-a:
+ * - transferTo: FileChannel.transferTo u SocketChannel (VideoStreamingService.transferRegion, sendfile),
+ * - streamCopy: InputStream -> OutputStream kroz heap bafer (staro UrlResource ponašanje).
+ *
+ * full* meri protok za ceo fajl, seek* latenciju jednog Range zahteva (1 MB od nasumične pozicije),
+ * gde streamCopy mora da preskoči do pozicije kao ResourceRegion.
+ * Fajl je posle prvog prolaza u page cache-u, pa se meri cena slanja, ne diska.
+ *
+ * Pokretanje samo ove klase: ./mvnw -P benchmark verify -Djmh.include=VideoStreamBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VideoStreamBenchmark {
+
+    private static final long FILE_SIZE = 200L * 1024 * 1024;
+    private static final long SEEK_LENGTH = 1024 * 1024;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drain;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = Files.createTempFile("video-stream-benchmark", ".mp4");
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < FILE_SIZE; written += block.length) {
+                ThreadLocalRandom.current().nextBytes(block);
+                out.write(block);
+            }
+        }
+
+        // "Klijent" na drugoj strani socket-a samo čita i odbacuje bajtove
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        drain = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            try {
+                while (accepted.read(buffer) >= 0) {
+                    buffer.clear();
+                }
+            } catch (Exception ignored) {
+                // socket zatvoren u tearDown-u
+            }
+        }, "stream-benchmark-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        drain.join(1000);
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void fullTransferTo() throws Exception {
+        transferTo(0, FILE_SIZE);
+    }
+
+    @Benchmark
+    public void fullStreamCopy() throws Exception {
+        streamCopy(0, FILE_SIZE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void seekTransferTo() throws Exception {
+        transferTo(randomOffset(), SEEK_LENGTH);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void seekStreamCopy() throws Exception {
+        streamCopy(randomOffset(), SEEK_LENGTH);
+    }
+
+    private void transferTo(long start, long count) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            VideoStreamingService.transferRegion(channel, start, count, client);
+        }
+    }
+
+    private void streamCopy(long start, long count) throws Exception {
+        try (InputStream in = Files.newInputStream(file)) {
+            OutputStream out = Channels.newOutputStream(client);
+            StreamUtils.copyRange(in, out, start, start + count - 1);
+        }
+    }
+
+    private static long randomOffset() {
+        return ThreadLocalRandom.current().nextLong(FILE_SIZE - SEEK_LENGTH);
+    }
+}
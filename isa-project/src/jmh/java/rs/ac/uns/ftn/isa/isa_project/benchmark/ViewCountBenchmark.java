@@ -0,0 +1,75 @@
+package rs.ac.uns.ftn.isa.isa_project.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import rs.ac.uns.ftn.isa.isa_project.service.CRDTViewCountService;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vruće putanje view count-a nad embedded PostgreSQL-om:
+ * - VideoServiceImpl.incrementViewCount (write-behind) i incrementViewCountLocked (FOR UPDATE),
+ * - CRDTViewCountService inkrement (buffered) i čitanje (keš / strong).
+ *
+ * Pokretanje samo ove klase: ./mvnw -P benchmark verify -Djmh.include=ViewCountBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViewCountBenchmark {
+
+    private BenchmarkApplication application;
+
+    private VideoService videoService;
+    private CRDTViewCountService crdtViewCountService;
+
+    private Long videoId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        application = BenchmarkApplication.start();
+        videoService = application.getBean(VideoService.class);
+        crdtViewCountService = application.getBean(CRDTViewCountService.class);
+        videoId = application.createVideo("View count benchmark");
+
+        // Prvi pregled registruje video u baferima
+        videoService.incrementViewCount(videoId);
+        crdtViewCountService.incrementViewCount(videoId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        application.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void videoIncrementWriteBehind() {
+        videoService.incrementViewCount(videoId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void videoIncrementLocked() {
+        videoService.incrementViewCountLocked(videoId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void crdtIncrement() {
+        crdtViewCountService.incrementViewCount(videoId);
+    }
+
+    @Benchmark
+    public long crdtReadCached() {
+        return crdtViewCountService.getTotalViewCount(videoId);
+    }
+
+    @Benchmark
+    public long crdtReadStrong() {
+        return crdtViewCountService.getTotalViewCount(videoId, true);
+    }
+}
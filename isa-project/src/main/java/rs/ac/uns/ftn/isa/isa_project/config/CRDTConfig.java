@@ -1,9 +1,22 @@
 package rs.ac.uns.ftn.isa.isa_project.config;
 
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import rs.ac.uns.ftn.isa.isa_project.crdt.CRDTBinaryHttpMessageConverter;
+import rs.ac.uns.ftn.isa.isa_project.security.ReplicaAuthenticationFilter;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 /**
  * Konfiguraciona klasa za CRDT inter-replica komunikaciju.
@@ -11,19 +24,97 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class CRDTConfig {
 
+    @Value("${crdt.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${crdt.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${crdt.peer.bulkhead.max-concurrent-calls:10}")
+    private int maxConcurrentCallsPerPeer;
+
+    @Value("${crdt.peer.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${crdt.peer.circuit-breaker.open-state-ms:10000}")
+    private long openStateMs;
+
+    /**
+     * Zajednička tajna klastera - šalje se u X-Replica-Token header-u svakog poziva ka replici.
+     */
+    @Value("${crdt.cluster.secret:}")
+    private String clusterSecret;
+
+    /**
+     * JDK HttpClient za komunikaciju između replika.
+     *
+     * Jedan klijent za celu aplikaciju - drži keep-alive konekcije ka replikama
+     * i koristi HTTP/2 (h2c) multiplexing kada ga druga strana podržava.
+     */
+    @Bean
+    public HttpClient replicaHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Circuit breaker po replici (ime = host:port).
+     */
+    @Bean
+    public CircuitBreakerRegistry replicaCircuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(5)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(readTimeoutMs / 2))
+                .waitDurationInOpenState(Duration.ofMillis(openStateMs))
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    /**
+     * Bulkhead po replici - bez čekanja na slobodno mesto.
+     */
+    @Bean
+    public BulkheadRegistry replicaBulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCallsPerPeer)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
     /**
      * RestTemplate bean za HTTP komunikaciju između replika.
      *
      * Podešavanja:
-     * - connectTimeout: 5s (timeout za uspostavljanje konekcije)
-     * - readTimeout: 10s (timeout za čitanje odgovora)
+     * - pooled JDK HttpClient (keep-alive, HTTP/2) umesto nove HttpURLConnection po pozivu
+     * - connectTimeout: 2s, readTimeout: 5s (crdt.http.*)
+     * - tajna klastera u X-Replica-Token header-u (ReplicaAuthenticationFilter na drugoj strani)
+     * - bulkhead i circuit breaker po replici (PeerResilienceInterceptor)
+     * - binarni CRDT converter (application/x-crdt-binary) pored JSON-a
      */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);  // 5 sekundi
-        factory.setReadTimeout(10000);    // 10 sekundi
+    public RestTemplate restTemplate(HttpClient replicaHttpClient,
+                                     CircuitBreakerRegistry replicaCircuitBreakerRegistry,
+                                     BulkheadRegistry replicaBulkheadRegistry,
+                                     MeterRegistry meterRegistry) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(replicaHttpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
 
-        return new RestTemplate(factory);
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            request.getHeaders().set(ReplicaAuthenticationFilter.HEADER, clusterSecret);
+            return execution.execute(request, body);
+        });
+        restTemplate.getInterceptors().add(new PeerResilienceInterceptor(
+                replicaCircuitBreakerRegistry, replicaBulkheadRegistry, meterRegistry));
+        restTemplate.getMessageConverters().add(new CRDTBinaryHttpMessageConverter());
+        return restTemplate;
     }
-}
\ No newline at end of file
+}
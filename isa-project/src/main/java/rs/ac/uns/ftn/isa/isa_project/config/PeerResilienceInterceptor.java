@@ -0,0 +1,98 @@
+package rs.ac.uns.ftn.isa.isa_project.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptor za RestTemplate između replika - bulkhead i circuit breaker po replici.
+ *
+ * - Bulkhead ograničava broj istovremenih poziva ka jednoj replici,
+ *   pa spora replika ne može da zauzme sve niti.
+ * - Circuit breaker se otvara posle niza grešaka (ili 5xx odgovora) i tada
+ *   poziv odmah puca umesto da čeka connect/read timeout.
+ * - Latencija svakog poziva se beleži kao histogram crdt.peer.latency{peer, outcome}.
+ *
+ * Odbijen poziv baca IOException, pa ga RestTemplate vraća kao ResourceAccessException
+ * kao i svaku drugu mrežnu grešku.
+ */
+public class PeerResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+    private final MeterRegistry meterRegistry;
+
+    public PeerResilienceInterceptor(CircuitBreakerRegistry circuitBreakers,
+                                     BulkheadRegistry bulkheads,
+                                     MeterRegistry meterRegistry) {
+        this.circuitBreakers = circuitBreakers;
+        this.bulkheads = bulkheads;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        String peer = peerOf(request.getURI());
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(peer);
+        Bulkhead bulkhead = bulkheads.bulkhead(peer);
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            latency(peer, "rejected").record(0, TimeUnit.NANOSECONDS);
+            throw new IOException("Circuit breaker open for replica " + peer);
+        }
+        if (!bulkhead.tryAcquirePermission()) {
+            circuitBreaker.releasePermission();
+            latency(peer, "rejected").record(0, TimeUnit.NANOSECONDS);
+            throw new IOException("Too many concurrent calls to replica " + peer);
+        }
+
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            long duration = System.nanoTime() - start;
+
+            if (response.getStatusCode().is5xxServerError()) {
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS,
+                        new IOException("Replica " + peer + " returned " + response.getStatusCode()));
+                latency(peer, "error").record(duration, TimeUnit.NANOSECONDS);
+            } else {
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                latency(peer, "success").record(duration, TimeUnit.NANOSECONDS);
+            }
+            return response;
+
+        } catch (IOException | RuntimeException e) {
+            long duration = System.nanoTime() - start;
+            circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, e);
+            latency(peer, "error").record(duration, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    private Timer latency(String peer, String outcome) {
+        return Timer.builder("crdt.peer.latency")
+                .description("Latencija HTTP poziva ka drugoj replici")
+                .tag("peer", peer)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String peerOf(URI uri) {
+        return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+}
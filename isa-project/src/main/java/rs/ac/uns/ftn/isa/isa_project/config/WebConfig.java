@@ -1,9 +1,13 @@
 package rs.ac.uns.ftn.isa.isa_project.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import rs.ac.uns.ftn.isa.isa_project.crdt.CRDTBinaryHttpMessageConverter;
+
+import java.util.List;
 
 @Configuration
 @EnableWebMvc
@@ -14,8 +18,18 @@ public class WebConfig implements WebMvcConfigurer {
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
                 .allowedOrigins("http://localhost:4200", "http://localhost:3000")
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
+                .allowedMethods("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                .exposedHeaders("Accept-Ranges", "Content-Range", "ETag")
                 .allowCredentials(true);
     }
+
+    /**
+     * Binarni CRDT format ide na kraj liste - bira se samo kad ga replika
+     * eksplicitno traži (Content-Type / Accept), a inače ostaje JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CRDTBinaryHttpMessageConverter());
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package rs.ac.uns.ftn.isa.isa_project.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -16,6 +17,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import rs.ac.uns.ftn.isa.isa_project.security.ReplicaAuthenticationFilter;
 import rs.ac.uns.ftn.isa.isa_project.security.RestAuthenticationEntryPoint;
 import rs.ac.uns.ftn.isa.isa_project.security.TokenAuthenticationFilter;
 import rs.ac.uns.ftn.isa.isa_project.service.CustomUserDetailsService;
@@ -56,6 +58,9 @@ public class WebSecurityConfig {
     @Autowired
     private TokenUtils tokenUtils;
 
+    @Value("${crdt.cluster.secret:}")
+    private String clusterSecret;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 
@@ -77,12 +82,16 @@ public class WebSecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/videos/*").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/thumbnail").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/stream").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/api/videos/*/stream").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments/count").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/likes/count").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/likes/status").permitAll()
                 .requestMatchers("/health").permitAll()
 
+                // Inter-replica CRDT komunikacija - samo replike sa tajnom klastera (X-Replica-Token)
+                .requestMatchers("/api/crdt/**").hasAuthority(ReplicaAuthenticationFilter.ROLE)
+
                 .requestMatchers(HttpMethod.POST, "/api/videos/*/view").permitAll()
                 .requestMatchers("/api/videos/*/view-crdt").permitAll()
                 .requestMatchers("/api/videos/*/views-crdt").permitAll()
@@ -99,6 +108,11 @@ public class WebSecurityConfig {
 
         http.csrf(csrf -> csrf.disable());
 
+        http.addFilterBefore(
+                new ReplicaAuthenticationFilter(clusterSecret),
+                BasicAuthenticationFilter.class
+        );
+
         http.addFilterBefore(
                 new TokenAuthenticationFilter(tokenUtils, userDetailsService()),
                 BasicAuthenticationFilter.class
@@ -6,9 +6,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTChangesPage;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestResponse;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
 import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.MembershipGossip;
+import rs.ac.uns.ftn.isa.isa_project.service.MembershipService;
+import rs.ac.uns.ftn.isa.isa_project.service.MerkleSyncService;
 import rs.ac.uns.ftn.isa.isa_project.service.ReplicaSyncService;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,8 +24,19 @@ import java.util.Map;
  *
  * Endpointi:
  * - POST /api/crdt/sync - Prima sync request od druge replike
+ * - POST /api/crdt/sync/batch - Prima batch sync request-ova (jedna transakcija)
  * - GET /api/crdt/state/{videoId} - Vraća trenutno stanje G-Counter-a
+ * - POST /api/crdt/state/batch - Vraća stanja za listu video-a (strong čitanje liste)
+ * - GET /api/crdt/changes?since=&limit= - Vraća stranicu promena posle date verzije
+ * - POST /api/crdt/digest - Vraća hash-eve čvorova Merkle stabla na jednom nivou
+ * - POST /api/crdt/digest/buckets - Vraća pune G-Counter vektore za date bucket-e
+ * - POST /api/crdt/digest/merge - Merge-uje pune G-Counter vektore druge replike
  * - POST /api/crdt/sync/pull/{videoId} - Ručno pokreće pull sinhronizaciju
+ * - POST /api/crdt/membership/gossip - Razmena liste članova klastera (gossip)
+ * - GET /api/crdt/membership - Trenutno članstvo i status replika
+ *
+ * /sync, /sync/batch, /state/{videoId}, /state/batch i /digest/merge prihvataju i vraćaju
+ * application/x-crdt-binary (CRDTBinaryCodec) kada ga replika traži, inače JSON.
  */
 @RestController
 @RequestMapping("/api/crdt")
@@ -26,9 +45,17 @@ public class CRDTSyncController {
 
     private static final Logger LOG = LoggerFactory.getLogger(CRDTSyncController.class);
 
+    private static final int MAX_CHANGES_PAGE_SIZE = 5000;
+
     @Autowired
     private ReplicaSyncService syncService;
 
+    @Autowired
+    private MerkleSyncService merkleSyncService;
+
+    @Autowired
+    private MembershipService membershipService;
+
     @Value("${crdt.replica.id}")
     private String replicaId;
 
@@ -53,6 +80,28 @@ public class CRDTSyncController {
         }
     }
 
+    /**
+     * Endpoint koji prima batch stanja od druge replike (coalesced push).
+     * Ceo batch se merge-uje u jednoj transakciji - ako ne uspe, vraća 500
+     * i pošiljalac ponavlja batch u sledećem prozoru.
+     *
+     * POST /api/crdt/sync/batch
+     * Body: { "sourceReplicaId": "replica-1", "states": [ { "videoId": 1, ... }, ... ] }
+     */
+    @PostMapping("/sync/batch")
+    public ResponseEntity<String> receiveSyncBatch(@RequestBody CRDTSyncBatchRequest batch) {
+        LOG.debug("[{}] Received sync batch of {} videos from {}",
+                replicaId, batch.getStates().size(), batch.getSourceReplicaId());
+
+        try {
+            syncService.receiveSyncBatch(batch);
+            return ResponseEntity.ok("Sync batch processed successfully");
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to process sync batch: {}", replicaId, e.getMessage());
+            return ResponseEntity.internalServerError().body("Failed to process sync batch: " + e.getMessage());
+        }
+    }
+
     /**
      * Endpoint koji vraća trenutno stanje G-Counter-a za dati video.
      * Poziva se od strane drugih replika kada traže stanje (pull-based sync).
@@ -75,6 +124,99 @@ public class CRDTSyncController {
         }
     }
 
+    /**
+     * Endpoint koji vraća stanja G-Counter-a za više video-a u jednom odgovoru.
+     * Replika koja radi strong čitanje liste šalje jedan zahtev umesto jednog po videu.
+     *
+     * POST /api/crdt/state/batch
+     * Body: [1, 2, 3]
+     * Response: { "sourceReplicaId": "replica-1", "states": [ { "videoId": 1, ... }, ... ] }
+     */
+    @PostMapping("/state/batch")
+    public ResponseEntity<CRDTSyncBatchRequest> getReplicaStates(@RequestBody List<Long> videoIds) {
+        if (videoIds.size() > MAX_CHANGES_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(new CRDTSyncBatchRequest(replicaId, syncService.getCurrentLocalStates(videoIds)));
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to get replica states: {}", replicaId, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Endpoint za delta anti-entropy - vraća samo brojače promenjene posle verzije "since".
+     * Druga replika pamti nextSince i sa njim traži sledeću stranicu.
+     *
+     * GET /api/crdt/changes?since=120&limit=500
+     * Response: { "sourceReplicaId": "replica-1", "states": [...], "nextSince": 170, "hasMore": false }
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<CRDTChangesPage> getChangesSince(
+            @RequestParam(defaultValue = "-1") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE_SIZE));
+            return ResponseEntity.ok(syncService.getLocalChangesSince(since, pageSize));
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to get changes since {}: {}", replicaId, since, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Merkle digest - vraća hash-eve traženih čvorova na jednom nivou stabla.
+     * Druga replika se spušta samo u čvorove koji se razlikuju.
+     *
+     * POST /api/crdt/digest
+     * Body: { "level": 1, "nodes": [0, 1, ..., 15] }
+     */
+    @PostMapping("/digest")
+    public ResponseEntity<CRDTDigestResponse> getDigest(@RequestBody CRDTDigestRequest request) {
+        try {
+            return ResponseEntity.ok(merkleSyncService.getDigest(request));
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to compute digest: {}", replicaId, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Vraća pune G-Counter vektore za video-e u bucket-ima koji se razlikuju.
+     *
+     * POST /api/crdt/digest/buckets
+     * Body: { "level": 3, "nodes": [17, 2048] }
+     */
+    @PostMapping("/digest/buckets")
+    public ResponseEntity<CRDTSyncBatchRequest> getBucketStates(@RequestBody CRDTDigestRequest request) {
+        try {
+            return ResponseEntity.ok(new CRDTSyncBatchRequest(replicaId,
+                    merkleSyncService.getStatesForBuckets(request.getNodes())));
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to get bucket states: {}", replicaId, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Merge-uje pune G-Counter vektore koje šalje druga replika posle digest razmene.
+     *
+     * POST /api/crdt/digest/merge
+     */
+    @PostMapping("/digest/merge")
+    public ResponseEntity<String> mergeBucketStates(@RequestBody CRDTSyncBatchRequest batch) {
+        try {
+            merkleSyncService.mergeFullStates(batch.getStates());
+            return ResponseEntity.ok("Merged " + batch.getStates().size() + " states");
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to merge bucket states: {}", replicaId, e.getMessage());
+            return ResponseEntity.internalServerError().body("Failed to merge bucket states: " + e.getMessage());
+        }
+    }
+
     /**
      * Endpoint za ručno pokretanje pull sinhronizacije.
      * Koristan za testiranje i debugging.
@@ -86,7 +228,9 @@ public class CRDTSyncController {
         LOG.info("[{}] Manual pull sync triggered for video {}", replicaId, videoId);
 
         try {
-            syncService.pullAndMergeFromOtherReplicas(videoId);
+            if (!syncService.pullAndMergeFromOtherReplicas(videoId)) {
+                return ResponseEntity.ok("Pull sync for video " + videoId + " is partial - some replicas did not respond");
+            }
             return ResponseEntity.ok("Pull sync completed successfully for video " + videoId);
         } catch (Exception e) {
             LOG.error("[{}] Failed to perform manual pull sync: {}", replicaId, e.getMessage());
@@ -94,6 +238,26 @@ public class CRDTSyncController {
         }
     }
 
+    /**
+     * Prima gossip od druge replike i vraća svoju listu članova.
+     *
+     * POST /api/crdt/membership/gossip
+     */
+    @PostMapping("/membership/gossip")
+    public ResponseEntity<MembershipGossip> receiveGossip(@RequestBody MembershipGossip gossip) {
+        return ResponseEntity.ok(membershipService.receiveGossip(gossip));
+    }
+
+    /**
+     * Vraća članstvo klastera kako ga vidi ova replika (ALIVE / SUSPECT / DEAD).
+     *
+     * GET /api/crdt/membership
+     */
+    @GetMapping("/membership")
+    public ResponseEntity<List<Map<String, Object>>> getMembership() {
+        return ResponseEntity.ok(membershipService.getMembersView());
+    }
+
     /**
      * Health check endpoint za proveru da li replika radi.
      */
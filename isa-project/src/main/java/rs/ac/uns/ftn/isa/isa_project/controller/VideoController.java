@@ -1,39 +1,74 @@
 package rs.ac.uns.ftn.isa.isa_project.controller;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailContent;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailUploadDTO;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoCursor;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoPageDTO;
 import rs.ac.uns.ftn.isa.isa_project.dto.VideoResponseDTO;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoStreamUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.dto.VideoUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoFeedRepository;
 import rs.ac.uns.ftn.isa.isa_project.service.CRDTViewCountService;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+import rs.ac.uns.ftn.isa.isa_project.service.MappedThumbnail;
+import rs.ac.uns.ftn.isa.isa_project.service.ThumbnailService;
 import rs.ac.uns.ftn.isa.isa_project.service.VideoService;
-import rs.ac.uns.ftn.isa.isa_project.service.LikeService;
-import rs.ac.uns.ftn.isa.isa_project.service.CommentService;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoStreamingService;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/videos")
 public class VideoController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final String VIDEO_MP4_VALUE = "video/mp4";
+    private static final MediaType VIDEO_CONTENT_TYPE = MediaType.parseMediaType(VIDEO_MP4_VALUE);
+    private static final String CHECKSUM_HEADER = "X-Checksum-SHA256";
+
     @Autowired
     private VideoService videoService;
 
     @Autowired
-    private LikeService likeService;
+    private VideoFeedRepository videoFeedRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VideoStreamingService videoStreamingService;
 
     @Autowired
-    private CommentService commentService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Value("${thumbnail.cache-max-age-seconds:86400}")
+    private long thumbnailMaxAgeSeconds;
 
     /**
      * Endpoint za upload videa.
@@ -44,11 +79,9 @@ public class VideoController {
         try {
             // Pozivamo servis koji radi transakciju i čuvanje na disk
             Video savedVideo = videoService.createVideo(dto);
+            // Lajkovi i komentari dolaze iz denormalizovanih brojača na Video
             VideoResponseDTO response = new VideoResponseDTO(savedVideo);
 
-            response.setLikeCount(likeService.getLikeCount(savedVideo.getId()));
-            response.setCommentCount(commentService.getCommentCount(savedVideo.getId()));
-
             return new ResponseEntity<>(response, HttpStatus.CREATED);
         } catch (Exception e) {
             // Ako se desi greška (npr. disk pun ili transakcija pukne), vraćamo 500
@@ -56,29 +89,105 @@ public class VideoController {
         }
     }
 
+    /**
+     * Priprema thumbnail-a za streaming upload - vraća thumbnailId koji se šalje uz video.
+     */
+    @PostMapping(value = "/thumbnails", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Map<String, String>> stageThumbnail(@ModelAttribute @Valid ThumbnailUploadDTO dto) {
+        try {
+            String thumbnailId = fileStorageService.stageFile(dto.getThumbnail(), "thumbs");
+            return new ResponseEntity<>(Map.of("thumbnailId", thumbnailId), HttpStatus.CREATED);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Streaming upload: telo zahteva je sam video (video/mp4), metapodaci su query parametri.
+     * Fajl ide direktno na disk bez multipart bafera; opcioni X-Checksum-SHA256 se proverava.
+     */
+    @PostMapping(value = "/stream-upload", consumes = {VIDEO_MP4_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<VideoResponseDTO> uploadVideoStream(@ModelAttribute @Valid VideoStreamUploadDTO dto,
+                                                              @RequestHeader(value = CHECKSUM_HEADER, required = false) String checksum,
+                                                              HttpServletRequest request) {
+        try {
+            Video savedVideo = videoService.createVideoFromStream(
+                    dto, request.getInputStream(), request.getContentLengthLong(), checksum);
+            return new ResponseEntity<>(new VideoResponseDTO(savedVideo), HttpStatus.CREATED);
+        } catch (MaxUploadSizeExceededException e) {
+            return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Endpoint za preuzimanje thumbnail-a sa keširanjem.
+     * ?w= bira najmanju varijantu (160/320/640) koja je široka bar w piksela; bez w ide original.
+     * Jak ETag + Cache-Control: browser ne skida istu sliku ponovo, If-None-Match -> 304 bez tela.
+     * U mapped modu telo ide direktno iz mapiranog fajla, bez byte[] po zahtevu.
      */
-    @GetMapping(value = "/{id}/thumbnail", produces = MediaType.IMAGE_JPEG_VALUE)
-    public ResponseEntity<byte[]> getThumbnail(@PathVariable Long id) {
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<?> getThumbnail(@PathVariable Long id,
+                                          @RequestParam(required = false) Integer w,
+                                          WebRequest webRequest) {
         try {
-            byte[] image = videoService.getThumbnailContent(id);
-            return ResponseEntity.ok(image);
+            int width = thumbnailService.selectWidth(w);
+
+            if (thumbnailService.isMappedMode()) {
+                MappedThumbnail mapped = thumbnailService.getMapped(id, width,
+                        () -> videoService.getVideoById(id).getThumbnailPath());
+                if (mapped != null) {
+                    return thumbnailResponse(mapped, mapped.getContentType(), mapped.getEtag(),
+                            mapped.isPending(), mapped.getWidth(), mapped.contentLength(), webRequest);
+                }
+            }
+
+            ThumbnailContent thumbnail = videoService.getThumbnailContent(id, width);
+            return thumbnailResponse(thumbnail.getData(), thumbnail.getContentType(), thumbnail.getEtag(),
+                    thumbnail.isPending(), thumbnail.getWidth(), thumbnail.getData().length, webRequest);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.notFound().build();
         }
     }
+
+    private ResponseEntity<?> thumbnailResponse(Object body, String contentType, String etag, boolean pending,
+                                                int width, long length, WebRequest webRequest) {
+        // Original umesto varijante u izradi - browser treba da proveri ponovo
+        CacheControl cacheControl = pending
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(thumbnailMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+
+        if (webRequest.checkNotModified(etag)) {
+            thumbnailService.recordNotModified();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        thumbnailService.recordServed(width, length);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(body);
+    }
     // GET detalji videa po ID-u
     @GetMapping("/{id}")
-    public ResponseEntity<VideoResponseDTO> getVideo(@PathVariable Long id) {
+    public ResponseEntity<VideoResponseDTO> getVideo(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "eventual") String consistency) {
         try {
             Video video = videoService.getVideoById(id);
             VideoResponseDTO response = new VideoResponseDTO(video);
-
-            response.setLikeCount(likeService.getLikeCount(id));
-            response.setCommentCount(commentService.getCommentCount(id));
-            response.setViewCount(crdtViewCountService.getTotalViewCount(id));
+            response.setViewCount(crdtViewCountService.getTotalViewCount(id, isStrong(consistency)));
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -88,37 +197,112 @@ public class VideoController {
 
     // GET lista svih videa
     @GetMapping
-    public ResponseEntity<List<VideoResponseDTO>> getAllVideos() {
+    public ResponseEntity<List<VideoResponseDTO>> getAllVideos(@RequestParam(defaultValue = "eventual") String consistency) {
+        // Autor i tagovi stižu u istom upitu (JOIN FETCH)
         List<Video> videos = videoService.getAllVideos();
-        List<VideoResponseDTO> dtoList = videos.stream()
+        return ResponseEntity.ok(toEnrichedDtos(videos, isStrong(consistency)));
+    }
+
+    /**
+     * Keyset paginacija liste videa (created_at DESC, id DESC).
+     *
+     * GET /api/videos/feed?after=<nextCursor sa prethodne stranice>&size=20
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<VideoPageDTO> getVideoFeed(@RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                     @RequestParam(defaultValue = "eventual") String consistency) {
+        VideoCursor cursor;
+        try {
+            cursor = after == null || after.isBlank() ? null : VideoCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<Video> videos = videoService.getVideosPage(cursor, pageSize);
+        String nextCursor = null;
+        if (videos.size() == pageSize) {
+            Video last = videos.get(videos.size() - 1);
+            nextCursor = new VideoCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return ResponseEntity.ok(new VideoPageDTO(toEnrichedDtos(videos, isStrong(consistency)), nextCursor));
+    }
+
+    /**
+     * Ceo katalog kao NDJSON (jedan video po liniji). Video-i se čitaju keyset stranicama
+     * od EXPORT_CHUNK_SIZE - konekcija se drži samo dok traje upit jedne stranice, a ne
+     * dok se odgovor piše sporom klijentu. CRDT pregledi se dodaju po stranici.
+     *
+     * GET /api/videos/export
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportVideos() {
+        StreamingResponseBody body = out -> {
+            VideoCursor cursor = null;
+            List<VideoResponseDTO> page;
+            do {
+                page = videoFeedRepository.findPage(cursor, EXPORT_CHUNK_SIZE);
+                writeNdjsonChunk(page, out);
+                if (!page.isEmpty()) {
+                    VideoResponseDTO last = page.get(page.size() - 1);
+                    cursor = new VideoCursor(last.getCreatedAt(), last.getId());
+                }
+            } while (page.size() == EXPORT_CHUNK_SIZE);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeNdjsonChunk(List<VideoResponseDTO> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<Long> videoIds = chunk.stream().map(VideoResponseDTO::getId).collect(Collectors.toList());
+        Map<Long, Long> viewCounts = crdtViewCountService.getTotalViewCounts(videoIds, false);
+
+        for (VideoResponseDTO dto : chunk) {
+            dto.setViewCount(viewCounts.get(dto.getId()));
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Popunjava brojače za listu videa. Lajkovi i komentari su denormalizovani na Video,
+     * a CRDT pregledi se čitaju jednim batch pozivom na niti zahteva (strong: jedan pull po replici).
+     */
+    private List<VideoResponseDTO> toEnrichedDtos(List<Video> videos, boolean strong) {
+        List<Long> videoIds = videos.stream().map(Video::getId).collect(Collectors.toList());
+        CRDTViewCountService.ViewCountTotals viewCounts = crdtViewCountService.readTotalViewCounts(videoIds, strong);
+
+        return videos.stream()
                 .map(video -> {
                     VideoResponseDTO dto = new VideoResponseDTO(video);
-                    dto.setLikeCount(likeService.getLikeCount(video.getId()));
-                    dto.setCommentCount(commentService.getCommentCount(video.getId()));
-                    dto.setViewCount(crdtViewCountService.getTotalViewCount(video.getId()));
-
+                    dto.setViewCount(viewCounts.getCounts().get(video.getId()));
+                    // Neka replika nije odgovorila do roka - pregledi su bez njenog stanja
+                    dto.setStale(viewCounts.isStale());
                     return dto;
                 })
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(dtoList);
     }
-    @GetMapping(
-            value = "/{id}/stream",
-            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE
-    )
-    public ResponseEntity<Resource> streamVideo(@PathVariable Long id) throws Exception {
-        Video video = videoService.getVideoById(id);
 
-        Path path = Paths.get(video.getVideoPath());
-        Resource resource = new UrlResource(path.toUri());
-
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
-        }
+    /**
+     * Streaming videa sa Range (206), ETag i uslovnim GET zahtevima - seek u plejeru
+     * traži samo potrebne bajtove umesto celog fajla.
+     */
+    @GetMapping("/{id}/stream")
+    public void streamVideo(@PathVariable Long id,
+                            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Video video = videoService.getVideoById(id);
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("video/mp4"))
-                .body(resource);
+        videoStreamingService.stream(video.getVideoPath(),
+                VIDEO_CONTENT_TYPE, request, response);
     }
 
     @PostMapping("/{id}/view")
@@ -139,8 +323,9 @@ public class VideoController {
 
 
         @GetMapping("/{id}/views-crdt")
-        public ResponseEntity<Map<String, Long>> getTotalViewsCRDT(@PathVariable Long id) {
-        long total = crdtViewCountService.getTotalViewCount(id);
+        public ResponseEntity<Map<String, Long>> getTotalViewsCRDT(@PathVariable Long id,
+                                                                   @RequestParam(defaultValue = "eventual") String consistency) {
+        long total = crdtViewCountService.getTotalViewCount(id, isStrong(consistency));
         return ResponseEntity.ok(Map.of("totalViews", total));
     }
 
@@ -149,4 +334,9 @@ public class VideoController {
         crdtViewCountService.incrementViewCount(id);
         return ResponseEntity.ok("View count incremented on " + System.getenv("REPLICA_ID"));
     }
+
+    // ?consistency=strong - pull od drugih replika pre čitanja (staro ponašanje)
+    private boolean isStrong(String consistency) {
+        return "strong".equalsIgnoreCase(consistency);
     }
+}
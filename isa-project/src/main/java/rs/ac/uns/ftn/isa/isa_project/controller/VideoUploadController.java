@@ -0,0 +1,118 @@
+package rs.ac.uns.ftn.isa.isa_project.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import rs.ac.uns.ftn.isa.isa_project.dto.UploadInitRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.UploadSessionDTO;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoResponseDTO;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.service.ChunkedUploadService;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Chunked (resumable) upload videa.
+ *
+ * 1. POST /api/videos/uploads               - metapodaci + totalSize, vraća uploadId i chunkSize
+ * 2. PUT  /api/videos/uploads/{id}/chunks/N - telo je chunk N (bajtovi od N * chunkSize)
+ * 3. GET  /api/videos/uploads/{id}          - posle prekida: koji chunk-ovi još fale
+ * 4. POST /api/videos/uploads/{id}/commit   - kreira Video
+ *
+ * Thumbnail se priprema ranije, kao i za streaming upload (POST /api/videos/thumbnails).
+ */
+@RestController
+@RequestMapping("/api/videos/uploads")
+@PreAuthorize("hasRole('USER')")
+public class VideoUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<?> startUpload(@Valid @RequestBody UploadInitRequest request,
+                                         @AuthenticationPrincipal User user) {
+        try {
+            UploadSessionDTO session = new UploadSessionDTO(chunkedUploadService.start(request, user));
+            return new ResponseEntity<>(session, HttpStatus.CREATED);
+        } catch (MaxUploadSizeExceededException e) {
+            return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).body(error(e));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> getUpload(@PathVariable String uploadId,
+                                                      @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(new UploadSessionDTO(chunkedUploadService.getSession(uploadId, user)));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @PathVariable int index,
+                                         @AuthenticationPrincipal User user,
+                                         HttpServletRequest request) {
+        try {
+            chunkedUploadService.writeChunk(uploadId, index, request.getInputStream(),
+                    request.getContentLengthLong(), user);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            // Upload pripada drugoj replici - chunk nije zabeležen
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e));
+        } catch (IllegalArgumentException | MaxUploadSizeExceededException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            // Prekinut chunk se jednostavno šalje ponovo
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<?> commitUpload(@PathVariable String uploadId,
+                                          @AuthenticationPrincipal User user) {
+        try {
+            Video video = chunkedUploadService.commit(uploadId, user);
+            return new ResponseEntity<>(new VideoResponseDTO(video), HttpStatus.CREATED);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId,
+                                            @AuthenticationPrincipal User user) {
+        try {
+            chunkedUploadService.abort(uploadId, user);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static Map<String, String> error(Exception e) {
+        return Map.of("message", e.getMessage());
+    }
+}
@@ -0,0 +1,191 @@
+package rs.ac.uns.ftn.isa.isa_project.crdt;
+
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kompaktni binarni format za CRDT sync poruke (application/x-crdt-binary).
+ *
+ * Jedan frame nosi više video-a:
+ *
+ *   magic 'C', verzija 1
+ *   rečnik replika:  varint n, pa n puta (varint dužina, UTF-8 bajtovi)
+ *   izvorna replika: varint indeks u rečniku
+ *   broj stanja:     varint m
+ *   za svako stanje: zigzag varint (videoId - prethodni videoId),
+ *                    varint broj brojača, pa parovi (varint indeks replike, varint count)
+ *
+ * ID replike se šalje jednom po frame-u, a brojevi kao varint (1-3 bajta za tipične vrednosti)
+ * umesto JSON ključeva i decimalnih stringova.
+ */
+public final class CRDTBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-crdt-binary";
+
+    private static final byte MAGIC = 'C';
+    private static final byte VERSION = 1;
+
+    private CRDTBinaryCodec() {
+    }
+
+    public static byte[] encode(CRDTSyncBatchRequest batch) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        index(dictionary, batch.getSourceReplicaId());
+        for (CRDTSyncRequest state : batch.getStates()) {
+            for (String replicaId : state.getCounts().keySet()) {
+                index(dictionary, replicaId);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + batch.getStates().size() * 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        writeVarint(out, dictionary.size());
+        for (String replicaId : dictionary.keySet()) {
+            byte[] bytes = replicaId.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        writeVarint(out, dictionary.get(nullToEmpty(batch.getSourceReplicaId())));
+        writeVarint(out, batch.getStates().size());
+
+        long previousVideoId = 0;
+        for (CRDTSyncRequest state : batch.getStates()) {
+            long videoId = state.getVideoId();
+            writeVarint(out, zigzag(videoId - previousVideoId));
+            previousVideoId = videoId;
+
+            writeVarint(out, state.getCounts().size());
+            for (Map.Entry<String, Long> entry : state.getCounts().entrySet()) {
+                if (entry.getValue() < 0) {
+                    throw new IllegalArgumentException("G-Counter count must be >= 0: " + entry);
+                }
+                writeVarint(out, dictionary.get(entry.getKey()));
+                writeVarint(out, entry.getValue());
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    public static CRDTSyncBatchRequest decode(byte[] data) {
+        Reader in = new Reader(data);
+        if (in.readByte() != MAGIC || in.readByte() != VERSION) {
+            throw new IllegalArgumentException("Not a CRDT binary frame (unknown magic/version)");
+        }
+
+        int dictionarySize = in.readInt();
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readString(in.readInt());
+        }
+
+        String sourceReplicaId = lookup(dictionary, in.readInt());
+        int stateCount = in.readInt();
+
+        List<CRDTSyncRequest> states = new ArrayList<>(stateCount);
+        long videoId = 0;
+        for (int i = 0; i < stateCount; i++) {
+            videoId += unzigzag(in.readVarint());
+
+            int countsSize = in.readInt();
+            Map<String, Long> counts = new HashMap<>(countsSize * 2);
+            for (int c = 0; c < countsSize; c++) {
+                counts.put(lookup(dictionary, in.readInt()), in.readVarint());
+            }
+            states.add(new CRDTSyncRequest(videoId, sourceReplicaId, counts));
+        }
+
+        return new CRDTSyncBatchRequest(sourceReplicaId, states);
+    }
+
+    private static void index(Map<String, Integer> dictionary, String replicaId) {
+        dictionary.putIfAbsent(nullToEmpty(replicaId), dictionary.size());
+    }
+
+    private static String lookup(String[] dictionary, int index) {
+        if (index >= dictionary.length) {
+            throw new IllegalArgumentException("Unknown replica index in CRDT binary frame: " + index);
+        }
+        return dictionary[index];
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Čitač bajtova sa proverom granica - neispravan frame baca IllegalArgumentException.
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated CRDT binary frame");
+            }
+            return data[position++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in CRDT binary frame");
+        }
+
+        int readInt() {
+            long value = readVarint();
+            if (value < 0 || value > data.length) {
+                // Nijedna dužina/indeks ne može biti veća od samog frame-a
+                throw new IllegalArgumentException("Invalid length in CRDT binary frame: " + value);
+            }
+            return (int) value;
+        }
+
+        String readString(int length) {
+            if (position + length > data.length) {
+                throw new IllegalArgumentException("Truncated CRDT binary frame");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
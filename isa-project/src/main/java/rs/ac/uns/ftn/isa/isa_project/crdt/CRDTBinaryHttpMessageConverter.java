@@ -0,0 +1,65 @@
+package rs.ac.uns.ftn.isa.isa_project.crdt;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * HttpMessageConverter za application/x-crdt-binary (CRDTBinaryCodec).
+ *
+ * Koristi se i na serveru (WebConfig) i u RestTemplate-u između replika.
+ * Bira se kroz content negotiation (Content-Type / Accept), pa replika
+ * koja ne zna binarni format i dalje dobija JSON.
+ *
+ * Pojedinačan CRDTSyncRequest se šalje kao frame sa jednim stanjem.
+ */
+public class CRDTBinaryHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType CRDT_BINARY = MediaType.parseMediaType(CRDTBinaryCodec.MEDIA_TYPE);
+
+    public CRDTBinaryHttpMessageConverter() {
+        super(CRDT_BINARY);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CRDTSyncRequest.class == clazz || CRDTSyncBatchRequest.class == clazz;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        CRDTSyncBatchRequest batch;
+        try {
+            batch = CRDTBinaryCodec.decode(inputMessage.getBody().readAllBytes());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+
+        if (clazz == CRDTSyncBatchRequest.class) {
+            return batch;
+        }
+
+        List<CRDTSyncRequest> states = batch.getStates();
+        if (states.size() != 1) {
+            throw new HttpMessageNotReadableException(
+                    "Expected a single CRDT state, got " + states.size(), inputMessage);
+        }
+        return states.get(0);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        CRDTSyncBatchRequest batch = value instanceof CRDTSyncRequest state
+                ? new CRDTSyncBatchRequest(state.getSourceReplicaId(), List.of(state))
+                : (CRDTSyncBatchRequest) value;
+
+        outputMessage.getBody().write(CRDTBinaryCodec.encode(batch));
+    }
+}
@@ -1,13 +1,13 @@
 package rs.ac.uns.ftn.isa.isa_project.crdt;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * G-Counter (Grow-only Counter) - CRDT struktura za brojač koji samo raste.
  *
- * Svaka replika čuva svoj lokalni brojač u mapi.
+ * Svaka replika čuva svoj lokalni brojač.
  * Ukupna vrednost je suma svih replika.
  *
  * Primer:
@@ -15,21 +15,33 @@ import java.util.Objects;
  * - Replika 2: {replica-1: 0, replica-2: 20}
  * - Nakon merge: {replica-1: 30, replica-2: 20}
  * - Ukupno: 50
+ *
+ * Implementacija: svaki brojač ima svoj mali indeks slotova - paralelne nizove
+ * ID-eva replika i brojača (replika ima malo, pa je linearna pretraga brža od mape
+ * i bez boxing-a). Nema globalnog registra ni gornje granice broja replika, a
+ * postojanje zapisa je određeno indeksom, pa je svaka long vrednost dozvoljena.
+ * Spolja se ponaša isto kao mapa replika -> brojač (getCounts, equals, hashCode).
  */
 public class GCounter {
 
     /**
-     * Mapa koja čuva brojač za svaku repliku.
-     * Key: ID replike (npr. "replica-1", "replica-2")
-     * Value: Broj inkremenata te replike
+     * ID replike za svaki slot ovog brojača (prvih size elemenata su u upotrebi).
+     */
+    private String[] replicaIds;
+
+    /**
+     * Brojač za svaku repliku, indeksiran istim slotom kao replicaIds.
      */
-    private final Map<String, Long> counts;
+    private long[] counts;
+
+    private int size;
 
     /**
      * Default konstruktor - kreira prazan G-Counter
      */
     public GCounter() {
-        this.counts = new HashMap<>();
+        this.replicaIds = new String[0];
+        this.counts = new long[0];
     }
 
     /**
@@ -37,7 +49,13 @@ public class GCounter {
      * Koristi se prilikom deserijalizacije ili testiranja
      */
     public GCounter(Map<String, Long> counts) {
-        this.counts = new HashMap<>(counts);
+        this.replicaIds = new String[counts.size()];
+        this.counts = new long[counts.size()];
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            this.replicaIds[size] = entry.getKey();
+            this.counts[size] = entry.getValue();
+            size++;
+        }
     }
 
     /**
@@ -46,7 +64,7 @@ public class GCounter {
      * @param replicaId ID replike (npr. "replica-1")
      */
     public void increment(String replicaId) {
-        counts.put(replicaId, counts.getOrDefault(replicaId, 0L) + 1);
+        increment(replicaId, 1);
     }
 
     /**
@@ -59,18 +77,26 @@ public class GCounter {
         if (amount < 0) {
             throw new IllegalArgumentException("G-Counter can only grow, amount must be >= 0");
         }
-        counts.put(replicaId, counts.getOrDefault(replicaId, 0L) + amount);
+        int slot = slotOf(replicaId);
+        if (slot < 0) {
+            add(replicaId, amount);
+        } else {
+            counts[slot] += amount;
+        }
     }
 
     /**
      * Vraća ukupnu vrednost brojača - SUMA svih replika.
+     * Ne alocira ništa.
      *
      * @return Ukupan broj pregleda
      */
     public long getValue() {
-        return counts.values().stream()
-                .mapToLong(Long::longValue)
-                .sum();
+        long total = 0;
+        for (int slot = 0; slot < size; slot++) {
+            total += counts[slot];
+        }
+        return total;
     }
 
     /**
@@ -80,17 +106,22 @@ public class GCounter {
      * @return Broj pregleda te replike
      */
     public long getReplicaCount(String replicaId) {
-        return counts.getOrDefault(replicaId, 0L);
+        int slot = slotOf(replicaId);
+        return slot < 0 ? 0L : counts[slot];
     }
 
     /**
-     * Vraća kopiju interne mape brojača.
+     * Vraća kopiju brojača kao mapu.
      * Koristi se za serijalizaciju i slanje preko mreže.
      *
      * @return Kopija mape brojača
      */
     public Map<String, Long> getCounts() {
-        return new HashMap<>(counts);
+        Map<String, Long> copy = new HashMap<>();
+        for (int slot = 0; slot < size; slot++) {
+            copy.put(replicaIds[slot], counts[slot]);
+        }
+        return copy;
     }
 
     /**
@@ -111,28 +142,63 @@ public class GCounter {
      * @return Novi G-Counter sa merged vrednostima
      */
     public GCounter merge(GCounter other) {
-        Map<String, Long> merged = new HashMap<>(this.counts);
-
-        // Za svaku repliku iz drugog counter-a
-        for (Map.Entry<String, Long> entry : other.counts.entrySet()) {
-            String replicaId = entry.getKey();
-            Long otherCount = entry.getValue();
-
-            // Uzmi MAX između lokalne i remote vrednosti
-            merged.put(replicaId, Math.max(
-                    merged.getOrDefault(replicaId, 0L),
-                    otherCount
-            ));
-        }
+        GCounter merged = new GCounter();
+        merged.replicaIds = Arrays.copyOf(replicaIds, size);
+        merged.counts = Arrays.copyOf(counts, size);
+        merged.size = size;
+        return merged.mergeInto(other);
+    }
 
-        return new GCounter(merged);
+    /**
+     * MERGE u mestu - isto kao merge(), ali menja ovaj brojač umesto da pravi novi.
+     *
+     * @param other Drugi G-Counter za merge
+     * @return ovaj G-Counter (posle merge-a)
+     */
+    public GCounter mergeInto(GCounter other) {
+        // Kopija stanja pre merge-a - other može biti i ovaj isti brojač
+        String[] otherIds = other.replicaIds;
+        long[] otherCounts = other.counts;
+        int otherSize = other.size;
+        for (int i = 0; i < otherSize; i++) {
+            int slot = slotOf(otherIds[i]);
+            if (slot < 0) {
+                add(otherIds[i], otherCounts[i]);
+            } else if (otherCounts[i] > counts[slot]) {
+                counts[slot] = otherCounts[i];
+            }
+        }
+        return this;
     }
 
     /**
      * Vraća broj replika koje su zabeležile preglede
      */
     public int getReplicaCount() {
-        return counts.size();
+        return size;
+    }
+
+    /**
+     * Vraća slot replike u ovom brojaču, ili -1 ako replika nema zapis.
+     */
+    private int slotOf(String replicaId) {
+        for (int slot = 0; slot < size; slot++) {
+            if (replicaIds[slot].equals(replicaId)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void add(String replicaId, long count) {
+        if (size == counts.length) {
+            int length = Math.max(4, size * 2);
+            replicaIds = Arrays.copyOf(replicaIds, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+        replicaIds[size] = replicaId;
+        counts[size] = count;
+        size++;
     }
 
     @Override
@@ -140,19 +206,36 @@ public class GCounter {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         GCounter gCounter = (GCounter) o;
-        return Objects.equals(counts, gCounter.counts);
+        if (size != gCounter.size) {
+            return false;
+        }
+        // Slotovi dva brojača ne moraju biti istim redom
+        for (int slot = 0; slot < size; slot++) {
+            int other = gCounter.slotOf(replicaIds[slot]);
+            if (other < 0 || gCounter.counts[other] != counts[slot]) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Isti hash kao Map.hashCode() nad parovima replika -> brojač.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(counts);
+        int hash = 0;
+        for (int slot = 0; slot < size; slot++) {
+            hash += replicaIds[slot].hashCode() ^ Long.hashCode(counts[slot]);
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
         return "GCounter{" +
-                "counts=" + counts +
+                "counts=" + getCounts() +
                 ", total=" + getValue() +
                 '}';
     }
-}
\ No newline at end of file
+}
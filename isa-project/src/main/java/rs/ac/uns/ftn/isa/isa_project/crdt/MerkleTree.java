@@ -0,0 +1,149 @@
+package rs.ac.uns.ftn.isa.isa_project.crdt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merkle stablo (hash-range digest) nad view count-ovima.
+ *
+ * Video-i se raspoređuju u LEAF_COUNT bucket-a po videoId % LEAF_COUNT.
+ * Hash lista je zbir hash-eva svih (video, replika, count) zapisa u bucket-u,
+ * a svaki unutrašnji čvor je hash svojih FANOUT dece.
+ *
+ * Nivoi:
+ * - nivo 0: koren (1 čvor)
+ * - nivo 1: 16 čvorova
+ * - nivo 2: 256 čvorova
+ * - nivo 3: 4096 listova (bucket-a)
+ *
+ * Dve replike porede stabla nivo po nivo i spuštaju se samo u
+ * čvorove koji se razlikuju - na kraju se sinhronizuju samo ti bucket-i.
+ */
+public class MerkleTree {
+
+    public static final int FANOUT = 16;
+    public static final int DEPTH = 3;
+    public static final int LEAF_COUNT = 4096; // FANOUT ^ DEPTH
+
+    /**
+     * levels[0] = koren, levels[DEPTH] = listovi
+     */
+    private final long[][] levels;
+
+    /**
+     * Kreira stablo iz hash-eva listova (dužina mora biti LEAF_COUNT).
+     */
+    public MerkleTree(long[] leafHashes) {
+        if (leafHashes.length != LEAF_COUNT) {
+            throw new IllegalArgumentException("Expected " + LEAF_COUNT + " leaf hashes, got " + leafHashes.length);
+        }
+
+        levels = new long[DEPTH + 1][];
+        levels[DEPTH] = leafHashes.clone();
+
+        for (int level = DEPTH - 1; level >= 0; level--) {
+            long[] children = levels[level + 1];
+            long[] parents = new long[children.length / FANOUT];
+            for (int node = 0; node < parents.length; node++) {
+                long h = 17;
+                for (int c = 0; c < FANOUT; c++) {
+                    h = h * 31 + mix(children[node * FANOUT + c]);
+                }
+                parents[node] = h;
+            }
+            levels[level] = parents;
+        }
+    }
+
+    /**
+     * Bucket (list) kome pripada video.
+     */
+    public static int bucketOf(long videoId) {
+        return (int) Math.floorMod(videoId, (long) LEAF_COUNT);
+    }
+
+    public long getRootHash() {
+        return levels[0][0];
+    }
+
+    public long getHash(int level, int node) {
+        return levels[level][node];
+    }
+
+    /**
+     * Vraća hash-eve traženih čvorova na datom nivou.
+     */
+    public Map<Integer, Long> getHashes(int level, Collection<Integer> nodes) {
+        Map<Integer, Long> hashes = new LinkedHashMap<>();
+        for (Integer node : nodes) {
+            hashes.put(node, levels[level][node]);
+        }
+        return hashes;
+    }
+
+    /**
+     * Deca čvora (indeksi na sledećem nivou).
+     */
+    public static List<Integer> childrenOf(int node) {
+        List<Integer> children = new ArrayList<>(FANOUT);
+        for (int c = 0; c < FANOUT; c++) {
+            children.add(node * FANOUT + c);
+        }
+        return children;
+    }
+
+    /**
+     * Poredi lokalno stablo sa udaljenim nivo po nivo i vraća listove (bucket-e)
+     * koji se razlikuju. Od udaljene strane se traže samo hash-evi dece
+     * čvorova koji se već razlikuju.
+     */
+    public List<Integer> findDivergentBuckets(DigestSource remote) {
+        List<Integer> mismatched = List.of(0);
+
+        for (int level = 0; level <= DEPTH; level++) {
+            Map<Integer, Long> remoteHashes = remote.getHashes(level, mismatched);
+
+            List<Integer> next = new ArrayList<>();
+            for (Integer node : mismatched) {
+                Long remoteHash = remoteHashes.get(node);
+                if (remoteHash == null || remoteHash != levels[level][node]) {
+                    next.add(node);
+                }
+            }
+
+            if (next.isEmpty() || level == DEPTH) {
+                return next;
+            }
+
+            mismatched = new ArrayList<>(next.size() * FANOUT);
+            for (Integer node : next) {
+                mismatched.addAll(childrenOf(node));
+            }
+        }
+
+        return List.of();
+    }
+
+    /**
+     * 64-bit mešanje (finalizer iz MurmurHash3) da zbir/kombinacija ne bude linearna.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Izvor hash-eva udaljenog stabla (HTTP u produkciji, u memoriji u testu).
+     */
+    @FunctionalInterface
+    public interface DigestSource {
+        Map<Integer, Long> getHashes(int level, List<Integer> nodes);
+    }
+}
@@ -0,0 +1,61 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Jedna stranica promena za delta anti-entropy.
+ *
+ * Sadrži stanja video-a promenjenih posle tražene verzije, verziju
+ * od koje treba tražiti sledeću stranicu (nextSince) i da li ima još promena.
+ */
+public class CRDTChangesPage {
+
+    private String sourceReplicaId;
+    private List<CRDTSyncRequest> states = new ArrayList<>();
+    private long nextSince;
+    private boolean hasMore;
+
+    public CRDTChangesPage() {
+    }
+
+    public CRDTChangesPage(String sourceReplicaId, List<CRDTSyncRequest> states, long nextSince, boolean hasMore) {
+        this.sourceReplicaId = sourceReplicaId;
+        this.states = states;
+        this.nextSince = nextSince;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public String getSourceReplicaId() {
+        return sourceReplicaId;
+    }
+
+    public void setSourceReplicaId(String sourceReplicaId) {
+        this.sourceReplicaId = sourceReplicaId;
+    }
+
+    public List<CRDTSyncRequest> getStates() {
+        return states;
+    }
+
+    public void setStates(List<CRDTSyncRequest> states) {
+        this.states = states;
+    }
+
+    public long getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(long nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
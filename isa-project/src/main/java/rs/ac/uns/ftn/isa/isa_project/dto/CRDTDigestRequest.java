@@ -0,0 +1,39 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zahtev za hash-eve čvorova Merkle stabla na jednom nivou.
+ * Na poslednjem nivou (listovi) nodes su bucket-i.
+ */
+public class CRDTDigestRequest {
+
+    private int level;
+    private List<Integer> nodes = new ArrayList<>();
+
+    public CRDTDigestRequest() {
+    }
+
+    public CRDTDigestRequest(int level, List<Integer> nodes) {
+        this.level = level;
+        this.nodes = nodes;
+    }
+
+    // Getters and Setters
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public List<Integer> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<Integer> nodes) {
+        this.nodes = nodes;
+    }
+}
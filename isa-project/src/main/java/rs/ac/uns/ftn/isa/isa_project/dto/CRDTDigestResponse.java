@@ -0,0 +1,48 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash-evi traženih čvorova Merkle stabla (čvor -> hash).
+ */
+public class CRDTDigestResponse {
+
+    private String sourceReplicaId;
+    private int level;
+    private Map<Integer, Long> hashes = new HashMap<>();
+
+    public CRDTDigestResponse() {
+    }
+
+    public CRDTDigestResponse(String sourceReplicaId, int level, Map<Integer, Long> hashes) {
+        this.sourceReplicaId = sourceReplicaId;
+        this.level = level;
+        this.hashes = hashes;
+    }
+
+    // Getters and Setters
+    public String getSourceReplicaId() {
+        return sourceReplicaId;
+    }
+
+    public void setSourceReplicaId(String sourceReplicaId) {
+        this.sourceReplicaId = sourceReplicaId;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public Map<Integer, Long> getHashes() {
+        return hashes;
+    }
+
+    public void setHashes(Map<Integer, Long> hashes) {
+        this.hashes = hashes;
+    }
+}
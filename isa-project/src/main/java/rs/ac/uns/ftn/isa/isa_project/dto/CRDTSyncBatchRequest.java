@@ -0,0 +1,47 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO za batch razmenu CRDT stanja - više video-a u jednom zahtevu.
+ * Svaki element je isti CRDTSyncRequest koji se šalje i pojedinačno.
+ */
+public class CRDTSyncBatchRequest {
+
+    private String sourceReplicaId;
+    private List<CRDTSyncRequest> states = new ArrayList<>();
+
+    public CRDTSyncBatchRequest() {
+    }
+
+    public CRDTSyncBatchRequest(String sourceReplicaId, List<CRDTSyncRequest> states) {
+        this.sourceReplicaId = sourceReplicaId;
+        this.states = states;
+    }
+
+    // Getters and Setters
+    public String getSourceReplicaId() {
+        return sourceReplicaId;
+    }
+
+    public void setSourceReplicaId(String sourceReplicaId) {
+        this.sourceReplicaId = sourceReplicaId;
+    }
+
+    public List<CRDTSyncRequest> getStates() {
+        return states;
+    }
+
+    public void setStates(List<CRDTSyncRequest> states) {
+        this.states = states;
+    }
+
+    @Override
+    public String toString() {
+        return "CRDTSyncBatchRequest{" +
+                "sourceReplicaId='" + sourceReplicaId + '\'' +
+                ", states=" + states.size() +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gossip poruka - lista članova klastera koje pošiljalac poznaje (uključujući sebe).
+ * Ista poruka se koristi i kao odgovor, pa se u jednom round-trip-u razmene obe liste.
+ */
+public class MembershipGossip {
+
+    private String sourceReplicaId;
+    private List<ReplicaMember> members = new ArrayList<>();
+
+    public MembershipGossip() {
+    }
+
+    public MembershipGossip(String sourceReplicaId, List<ReplicaMember> members) {
+        this.sourceReplicaId = sourceReplicaId;
+        this.members = members;
+    }
+
+    // Getters and Setters
+    public String getSourceReplicaId() {
+        return sourceReplicaId;
+    }
+
+    public void setSourceReplicaId(String sourceReplicaId) {
+        this.sourceReplicaId = sourceReplicaId;
+    }
+
+    public List<ReplicaMember> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<ReplicaMember> members) {
+        this.members = members;
+    }
+}
@@ -0,0 +1,89 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+/**
+ * Član CRDT klastera kako ga replike razmenjuju gossip-om.
+ *
+ * incarnation se postavlja pri startu replike (restart = nova inkarnacija),
+ * a heartbeat replika sama povećava na svaki gossip tick. Novija informacija
+ * o članu je ona sa većim (incarnation, heartbeat).
+ */
+public class ReplicaMember {
+
+    private String id;
+    private String url;
+    private long incarnation;
+    private long heartbeat;
+    private boolean leaving;
+
+    public ReplicaMember() {
+    }
+
+    public ReplicaMember(String id, String url, long incarnation, long heartbeat) {
+        this.id = id;
+        this.url = url;
+        this.incarnation = incarnation;
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Da li je ova informacija o članu novija od date.
+     */
+    public boolean isNewerThan(ReplicaMember other) {
+        if (incarnation != other.incarnation) {
+            return incarnation > other.incarnation;
+        }
+        return heartbeat > other.heartbeat;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public long getIncarnation() {
+        return incarnation;
+    }
+
+    public void setIncarnation(long incarnation) {
+        this.incarnation = incarnation;
+    }
+
+    public long getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(long heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    public boolean isLeaving() {
+        return leaving;
+    }
+
+    public void setLeaving(boolean leaving) {
+        this.leaving = leaving;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaMember{" +
+                "id='" + id + '\'' +
+                ", url='" + url + '\'' +
+                ", incarnation=" + incarnation +
+                ", heartbeat=" + heartbeat +
+                ", leaving=" + leaving +
+                '}';
+    }
+}
@@ -0,0 +1,73 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.io.Serializable;
+
+/**
+ * Sadržaj thumbnail-a za GET /api/videos/{id}/thumbnail.
+ *
+ * width je širina varijante (0 = originalna slika). pending znači da je tražena varijanta
+ * još u izradi pa je vraćen original - takav odgovor se ne kešira.
+ * etag je jak validator (hash sadržaja), računa se jednom pri učitavanju i kešira se sa slikom.
+ */
+public class ThumbnailContent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private byte[] data;
+    private String contentType;
+    private int width;
+    private boolean pending;
+    private String etag;
+
+    public ThumbnailContent() {
+    }
+
+    public ThumbnailContent(byte[] data, String contentType, int width, boolean pending, String etag) {
+        this.data = data;
+        this.contentType = contentType;
+        this.width = width;
+        this.pending = pending;
+        this.etag = etag;
+    }
+
+    // Getters and Setters
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+}
@@ -0,0 +1,29 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.web.multipart.MultipartFile;
+import rs.ac.uns.ftn.isa.isa_project.validation.FileExtension;
+import rs.ac.uns.ftn.isa.isa_project.validation.FileSize;
+
+/**
+ * Thumbnail koji se priprema pre streaming upload-a videa.
+ */
+public class ThumbnailUploadDTO {
+
+    @NotNull(message = "Thumbnail slika je obavezna")
+    @FileSize(max = 5 * 1024 * 1024, message = "Thumbnail ne sme biti veći od 5MB")
+    @FileExtension(allowed = {"jpg", "jpeg", "png"}, message = "Thumbnail mora biti slika")
+    private MultipartFile thumbnail;
+
+    public ThumbnailUploadDTO() {
+    }
+
+    // Getters and Setters
+    public MultipartFile getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(MultipartFile thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+}
@@ -0,0 +1,103 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Početak chunked upload-a (POST /api/videos/uploads) - metapodaci videa i ukupna veličina fajla.
+ */
+public class UploadInitRequest {
+
+    @NotBlank(message = "Naslov je obavezan")
+    @Size(max = 200, message = "Naslov može imati maksimalno 200 karaktera")
+    private String title;
+
+    @Size(max = 5000, message = "Opis može imati maksimalno 5000 karaktera")
+    private String description;
+
+    private String tags;
+
+    @NotBlank(message = "Thumbnail slika je obavezna")
+    private String thumbnailId;
+
+    private Double latitude;
+    private Double longitude;
+
+    @NotNull(message = "Veličina fajla je obavezna")
+    @Positive(message = "Veličina fajla mora biti pozitivna")
+    private Long totalSize;
+
+    @Pattern(regexp = "[0-9a-fA-F]{64}", message = "Checksum mora biti SHA-256 (hex)")
+    private String checksum;
+
+    public UploadInitRequest() {
+    }
+
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public String getThumbnailId() {
+        return thumbnailId;
+    }
+
+    public void setThumbnailId(String thumbnailId) {
+        this.thumbnailId = thumbnailId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+}
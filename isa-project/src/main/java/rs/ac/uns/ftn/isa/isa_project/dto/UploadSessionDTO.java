@@ -0,0 +1,69 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import rs.ac.uns.ftn.isa.isa_project.model.UploadSession;
+
+import java.util.List;
+
+/**
+ * Stanje chunked upload-a - klijent posle prekida šalje samo chunk-ove iz missingChunks.
+ */
+public class UploadSessionDTO {
+
+    private String uploadId;
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+    private List<Integer> missingChunks;
+
+    public UploadSessionDTO() {
+    }
+
+    public UploadSessionDTO(UploadSession session) {
+        this.uploadId = session.getId();
+        this.totalSize = session.getTotalSize();
+        this.chunkSize = session.getChunkSize();
+        this.chunkCount = session.getChunkCount();
+        this.missingChunks = session.getMissingChunks();
+    }
+
+    // Getters and Setters
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public List<Integer> getMissingChunks() {
+        return missingChunks;
+    }
+
+    public void setMissingChunks(List<Integer> missingChunks) {
+        this.missingChunks = missingChunks;
+    }
+}
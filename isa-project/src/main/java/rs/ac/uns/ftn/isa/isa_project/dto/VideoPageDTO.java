@@ -0,0 +1,38 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import java.util.List;
+
+/**
+ * Jedna stranica liste videa (keyset paginacija).
+ * nextCursor je null kada nema više videa.
+ */
+public class VideoPageDTO {
+
+    private List<VideoResponseDTO> items;
+    private String nextCursor;
+
+    public VideoPageDTO() {
+    }
+
+    public VideoPageDTO(List<VideoResponseDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<VideoResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<VideoResponseDTO> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -21,6 +21,9 @@ public class VideoResponseDTO {
     private Long likeCount = 0L;
     private Long commentCount = 0L;
 
+    // true ako strong pull nije stigao do svih replika (FanOutExecutor rok) - pregledi mogu da kasne
+    private boolean stale;
+
     public VideoResponseDTO() {}
 
     public VideoResponseDTO(Video video) {
@@ -36,6 +39,8 @@ public class VideoResponseDTO {
         this.viewCount = video.getViewCount();
         this.latitude = video.getLatitude();
         this.longitude = video.getLongitude();
+        this.likeCount = video.getLikeCount();
+        this.commentCount = video.getCommentCount();
     }
 
     // Getters and Setters
@@ -145,4 +150,12 @@ public class VideoResponseDTO {
     public void setCommentCount(Long commentCount) {
         this.commentCount = commentCount;
     }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
 }
\ No newline at end of file
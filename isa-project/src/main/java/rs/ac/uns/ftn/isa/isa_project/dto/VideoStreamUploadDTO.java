@@ -0,0 +1,87 @@
+package rs.ac.uns.ftn.isa.isa_project.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import java.util.Set;
+
+/**
+ * Metapodaci za streaming upload (POST /api/videos/stream-upload).
+ * Dolaze kao query parametri, jer telo zahteva je sam video fajl.
+ * Thumbnail se prethodno šalje na POST /api/videos/thumbnails, a ovde se navodi samo njegov ID.
+ */
+public class VideoStreamUploadDTO {
+
+    @NotBlank(message = "Naslov je obavezan")
+    @Size(max = 200, message = "Naslov može imati maksimalno 200 karaktera")
+    private String title;
+
+    @Size(max = 5000, message = "Opis može imati maksimalno 5000 karaktera")
+    private String description;
+
+    private String tags;
+
+    @NotBlank(message = "Thumbnail slika je obavezna")
+    private String thumbnailId;
+
+    private Double latitude;
+    private Double longitude;
+
+    public VideoStreamUploadDTO() {
+    }
+
+    public Set<String> getParsedTags() {
+        if (tags == null || tags.isBlank()) {
+            return Set.of();
+        }
+        return Set.of(tags.split(","));
+    }
+
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public String getThumbnailId() {
+        return thumbnailId;
+    }
+
+    public void setThumbnailId(String thumbnailId) {
+        this.thumbnailId = thumbnailId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+}
@@ -0,0 +1,230 @@
+package rs.ac.uns.ftn.isa.isa_project.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chunked (resumable) upload u toku. Podaci o videu se čuvaju od init-a do commit-a,
+ * a receivedChunks pamti koji su chunk-ovi već na disku (storage/uploads/<id>.part),
+ * pa se upload nastavlja i posle restarta klijenta ili servera.
+ *
+ * .part fajl postoji samo na replici koja je pokrenula upload (ownerReplica); id počinje
+ * njenim id-em ("replica-1.<uuid>") da bi load balancer chunk-ove slao na tu repliku.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_updated_at", columnList = "updated_at")
+})
+public class UploadSession {
+
+    @Id
+    @Column(name = "id", length = 101)
+    private String id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "owner_replica", nullable = false, length = 64)
+    private String ownerReplica;
+
+    @Column(name = "title", nullable = false, length = 200)
+    private String title;
+
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "tags")
+    private String tags;
+
+    // Thumbnail se preuzima iz staged već na init-u, da ne istekne dok upload traje
+    @Column(name = "thumbnail_path", nullable = false)
+    private String thumbnailPath;
+
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    // SHA-256 koji klijent očekuje za ceo fajl (opciono)
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    // Upisuje se samo native upitom (UploadSessionRepository.markChunkReceived)
+    @ElementCollection
+    @CollectionTable(
+            name = "upload_session_chunks",
+            joinColumns = @JoinColumn(name = "upload_id"),
+            uniqueConstraints = @UniqueConstraint(columnNames = {"upload_id", "chunk_index"})
+    )
+    @Column(name = "chunk_index")
+    private Set<Integer> receivedChunks = new HashSet<>();
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public UploadSession() {
+    }
+
+    public int getChunkCount() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public long getChunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public long getChunkLength(int index) {
+        return Math.min(chunkSize, totalSize - getChunkOffset(index));
+    }
+
+    public List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (!receivedChunks.contains(i)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getOwnerReplica() {
+        return ownerReplica;
+    }
+
+    public void setOwnerReplica(String ownerReplica) {
+        this.ownerReplica = ownerReplica;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public void setThumbnailPath(String thumbnailPath) {
+        this.thumbnailPath = thumbnailPath;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public Set<Integer> getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(Set<Integer> receivedChunks) {
+        this.receivedChunks = receivedChunks;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -8,7 +8,10 @@ import java.util.ArrayList;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        // Keyset paginacija liste videa (created_at DESC, id DESC)
+        @Index(name = "idx_videos_created_at_id", columnList = "created_at DESC, id DESC")
+})
 public class Video {
 
     @Id
@@ -35,6 +38,10 @@ public class Video {
     @Column(name = "video_path", nullable = false)
     private String videoPath;
 
+    // SHA-256 video fajla (hex), računa se pri streaming upload-u
+    @Column(name = "video_checksum", length = 64)
+    private String videoChecksum;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -47,6 +54,15 @@ public class Video {
     @Column(name = "view_count", nullable = false)
     private Long viewCount = 0L;
 
+    // Denormalizovani brojači - menja ih samo VideoStatsRepository (atomski UPDATE), Hibernate ih samo čita
+    @Column(name = "like_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private Long likeCount = 0L;
+
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private Long commentCount = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
@@ -143,6 +159,14 @@ public class Video {
         this.videoPath = videoPath;
     }
 
+    public String getVideoChecksum() {
+        return videoChecksum;
+    }
+
+    public void setVideoChecksum(String videoChecksum) {
+        this.videoChecksum = videoChecksum;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -183,6 +207,22 @@ public class Video {
         this.viewCount = viewCount;
     }
 
+    public Long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(Long likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public Long getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Long commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public List<Comment> getComments() {
         return comments;
     }
@@ -22,6 +22,10 @@ public class ViewCount {
     @Transient
     private String replicaId;
 
+    // Verzija reda (txid poslednje transakcije upisa) za delta anti-entropy, puni je ViewCountRepository
+    @Transient
+    private Long version;
+
     public ViewCount() {
     }
 
@@ -61,6 +65,14 @@ public class ViewCount {
         this.replicaId = replicaId;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public void increment() {
         this.count++;
     }
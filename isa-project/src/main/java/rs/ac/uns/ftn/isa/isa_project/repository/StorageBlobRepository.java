@@ -0,0 +1,72 @@
+package rs.ac.uns.ftn.isa.isa_project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Brojači referenci za content-addressed fajlove (storage.content-addressed=true).
+ *
+ * Ključ je putanja blob-a relativno na storage/ (npr. videos/ab/ab12...ef.mp4).
+ * Svako čuvanje istog sadržaja dodaje referencu, a fajl se briše tek kada poslednja
+ * referenca nestane. Brisanje fajla se radi pod zaključanim redom, pa istovremeni upload
+ * istog sadržaja čeka i posle toga vidi da fajla nema i upisuje ga ponovo.
+ */
+@Repository
+public class StorageBlobRepository {
+
+    private static final String TABLE = "storage_blobs";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createTableIfNotExists() {
+        jdbcTemplate.execute(String.format("""
+            CREATE TABLE IF NOT EXISTS %s (
+                blob_key VARCHAR(512) PRIMARY KEY,
+                ref_count BIGINT NOT NULL,
+                created_at TIMESTAMP NOT NULL DEFAULT now()
+            )
+            """, TABLE));
+    }
+
+    /**
+     * Dodaje referencu na blob (prva referenca kreira red).
+     */
+    public void acquire(String blobKey) {
+        jdbcTemplate.update(String.format(
+                "INSERT INTO %s (blob_key, ref_count) VALUES (?, 1) " +
+                "ON CONFLICT (blob_key) DO UPDATE SET ref_count = %s.ref_count + 1", TABLE, TABLE), blobKey);
+    }
+
+    /**
+     * Skida referencu. Ako je bila poslednja, briše red i poziva onLastReference
+     * u istoj transakciji (dok je red još zaključan).
+     *
+     * @return preostali broj referenci (0 = blob obrisan), -1 ako blob nije registrovan
+     */
+    @Transactional
+    public long release(String blobKey, Runnable onLastReference) {
+        List<Long> remaining = jdbcTemplate.queryForList(String.format(
+                "UPDATE %s SET ref_count = ref_count - 1 WHERE blob_key = ? RETURNING ref_count", TABLE),
+                Long.class, blobKey);
+        if (remaining.isEmpty()) {
+            return -1;
+        }
+        if (remaining.get(0) <= 0) {
+            jdbcTemplate.update(String.format("DELETE FROM %s WHERE blob_key = ?", TABLE), blobKey);
+            onLastReference.run();
+            return 0;
+        }
+        return remaining.get(0);
+    }
+
+    public long getRefCount(String blobKey) {
+        List<Long> result = jdbcTemplate.queryForList(String.format(
+                "SELECT ref_count FROM %s WHERE blob_key = ?", TABLE), Long.class, blobKey);
+        return result.isEmpty() ? 0L : result.get(0);
+    }
+}
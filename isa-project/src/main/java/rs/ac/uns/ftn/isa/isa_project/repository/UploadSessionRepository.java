@@ -0,0 +1,46 @@
+package rs.ac.uns.ftn.isa.isa_project.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import rs.ac.uns.ftn.isa.isa_project.model.UploadSession;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    @Query("SELECT s FROM UploadSession s LEFT JOIN FETCH s.receivedChunks WHERE s.id = :id")
+    Optional<UploadSession> findWithChunksById(@Param("id") String id);
+
+    /**
+     * Zaključava sesiju (SELECT ... FOR UPDATE) - commit i GC iste sesije se ne preklapaju.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findLockedById(@Param("id") String id);
+
+    @Query("SELECT s.id FROM UploadSession s WHERE s.updatedAt < :cutoff")
+    List<String> findIdsUpdatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Beleži primljen chunk bez učitavanja cele kolekcije; ponovljen chunk je no-op.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO upload_session_chunks (upload_id, chunk_index) VALUES (:id, :index) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int markChunkReceived(@Param("id") String id, @Param("index") int index);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.updatedAt = :now WHERE s.id = :id")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+}
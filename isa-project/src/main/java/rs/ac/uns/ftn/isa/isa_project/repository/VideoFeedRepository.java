@@ -0,0 +1,102 @@
+package rs.ac.uns.ftn.isa.isa_project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoCursor;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoResponseDTO;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Repository za streaming liste videa (NDJSON export, beskonačni scroll).
+ *
+ * Katalog se čita keyset stranicama (created_at DESC, id DESC) - svaka stranica je
+ * kratak upit koji odmah vraća konekciju u pool, pa dugo preuzimanje na sporom
+ * klijentu ne drži konekciju (ni transakciju) dok se odgovor piše. Ceo katalog
+ * se nikad ne drži u memoriji - samo jedna stranica.
+ */
+@Repository
+public class VideoFeedRepository {
+
+    private static final String FEED_SELECT = """
+        SELECT v.id, v.title, v.description, v.created_at, v.view_count, v.like_count, v.comment_count,
+               v.latitude, v.longitude,
+               u.id AS author_id, u.username AS author_username,
+               ARRAY(SELECT t.tag FROM video_tags t WHERE t.video_id = v.id) AS tags
+        FROM videos v
+        JOIN users u ON u.id = v.author_id
+        """;
+
+    private static final String FEED_ORDER = """
+        ORDER BY v.created_at DESC, v.id DESC
+        LIMIT ?
+        """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Gornja granica trajanja jednog upita stranice (sekunde) - zaglavljen upit ne sme
+     * da zauzme jednu od malobrojnih konekcija iz pool-a.
+     */
+    @Value("${video.feed.query-timeout-seconds:10}")
+    private int queryTimeoutSeconds;
+
+    /**
+     * Vraća sledeću stranicu videa posle kursora (null = od početka), kao DTO-e.
+     * CRDT pregledi nisu popunjeni - pozivalac ih dodaje za celu stranicu.
+     */
+    public List<VideoResponseDTO> findPage(VideoCursor after, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql;
+        if (after == null) {
+            sql = FEED_SELECT + FEED_ORDER;
+        } else {
+            sql = FEED_SELECT + "WHERE (v.created_at, v.id) < (?, ?)\n" + FEED_ORDER;
+            args.add(Timestamp.valueOf(after.getCreatedAt()));
+            args.add(after.getId());
+        }
+        args.add(limit);
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (rs, rowNum) -> mapRow(rs));
+    }
+
+    private VideoResponseDTO mapRow(ResultSet rs) throws SQLException {
+        Long id = rs.getLong("id");
+
+        VideoResponseDTO dto = new VideoResponseDTO();
+        dto.setId(id);
+        dto.setTitle(rs.getString("title"));
+        dto.setDescription(rs.getString("description"));
+        dto.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        dto.setViewCount(rs.getLong("view_count"));
+        dto.setLikeCount(rs.getLong("like_count"));
+        dto.setCommentCount(rs.getLong("comment_count"));
+        dto.setLatitude(rs.getObject("latitude", Double.class));
+        dto.setLongitude(rs.getObject("longitude", Double.class));
+        dto.setAuthorId(rs.getLong("author_id"));
+        dto.setAuthorUsername(rs.getString("author_username"));
+        dto.setThumbnailUrl("/api/videos/" + id + "/thumbnail");
+        dto.setVideoUrl("/api/videos/" + id + "/stream");
+
+        Array tags = rs.getArray("tags");
+        dto.setTags(tags == null ? new HashSet<>() : new HashSet<>(List.of((String[]) tags.getArray())));
+        return dto;
+    }
+}
@@ -14,7 +14,7 @@ public interface VideoLikeRepository extends JpaRepository<VideoLike, Long> {
     @Modifying
     @Transactional
     @Query("DELETE FROM VideoLike vl WHERE vl.video.id = :videoId AND vl.user.id = :userId")
-    void deleteByVideoIdAndUserId(@Param("videoId") Long videoId, @Param("userId") Long userId);
+    int deleteByVideoIdAndUserId(@Param("videoId") Long videoId, @Param("userId") Long userId);
 
     long countByVideoId(Long videoId);
 
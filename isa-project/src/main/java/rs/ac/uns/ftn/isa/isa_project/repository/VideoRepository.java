@@ -2,6 +2,7 @@ package rs.ac.uns.ftn.isa.isa_project.repository;
 
 
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import rs.ac.uns.ftn.isa.isa_project.model.User;
 import rs.ac.uns.ftn.isa.isa_project.model.Video;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.Lock;
 import java.util.Optional;
@@ -25,6 +27,31 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
 
     List<Video> findAllByOrderByCreatedAtDesc();
 
+    /**
+     * Svi video-i sa autorom (i njegovim rolama) i tagovima u jednom upitu - bez lazy učitavanja po videu.
+     */
+    @Query("SELECT DISTINCT v FROM Video v JOIN FETCH v.author a LEFT JOIN FETCH a.roles " +
+            "LEFT JOIN FETCH v.tags ORDER BY v.createdAt DESC")
+    List<Video> findAllWithAuthorOrderByCreatedAtDesc();
+
+    /**
+     * Keyset paginacija (created_at DESC, id DESC) - prva stranica id-eva.
+     */
+    @Query("SELECT v.id FROM Video v ORDER BY v.createdAt DESC, v.id DESC")
+    List<Long> findPageIds(Pageable pageable);
+
+    /**
+     * Keyset paginacija - id-evi videa posle kursora (createdAt, id).
+     */
+    @Query("SELECT v.id FROM Video v WHERE v.createdAt < :createdAt " +
+            "OR (v.createdAt = :createdAt AND v.id < :id) ORDER BY v.createdAt DESC, v.id DESC")
+    List<Long> findPageIdsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                Pageable pageable);
+
+    @Query("SELECT DISTINCT v FROM Video v JOIN FETCH v.author a LEFT JOIN FETCH a.roles " +
+            "LEFT JOIN FETCH v.tags WHERE v.id IN :ids")
+    List<Video> findAllWithAuthorByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT v FROM Video v JOIN v.tags t WHERE t = :tag ORDER BY v.createdAt DESC")
     List<Video> findByTag(@Param("tag") String tag);
 
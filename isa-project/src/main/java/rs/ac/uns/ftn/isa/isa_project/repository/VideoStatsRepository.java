@@ -0,0 +1,109 @@
+package rs.ac.uns.ftn.isa.isa_project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Repository za denormalizovane brojače lajkova i komentara (videos.like_count, videos.comment_count).
+ *
+ * Brojači se menjaju atomskim UPDATE ... SET x = x + ? u istoj transakciji kao i
+ * sam lajk/komentar, pa čitanje ne radi COUNT(*) nad video_likes / comments.
+ * Hibernate ove kolone samo čita (insertable/updatable = false na Video).
+ */
+@Repository
+public class VideoStatsRepository {
+
+    private static final String ADD_LIKES_SQL =
+            "UPDATE videos SET like_count = GREATEST(like_count + ?, 0) WHERE id = ?";
+
+    private static final String ADD_COMMENTS_SQL =
+            "UPDATE videos SET comment_count = GREATEST(comment_count + ?, 0) WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void addLikes(Long videoId, long delta) {
+        jdbcTemplate.update(ADD_LIKES_SQL, delta, videoId);
+    }
+
+    public void addComments(Long videoId, long delta) {
+        jdbcTemplate.update(ADD_COMMENTS_SQL, delta, videoId);
+    }
+
+    public long getLikeCount(Long videoId) {
+        return getCounter("like_count", videoId);
+    }
+
+    public long getCommentCount(Long videoId) {
+        return getCounter("comment_count", videoId);
+    }
+
+    private long getCounter(String column, Long videoId) {
+        List<Long> result = jdbcTemplate.queryForList(
+                String.format("SELECT %s FROM videos WHERE id = ?", column), Long.class, videoId);
+        return result.isEmpty() ? 0L : result.get(0);
+    }
+
+    /**
+     * Sledeća grupa id-eva videa za reconciler (id > afterId, rastuće).
+     */
+    public List<Long> findVideoIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM videos WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, limit);
+    }
+
+    /**
+     * Ispravlja like_count za date video-e gde se razlikuje od stvarnog broja lajkova.
+     *
+     * @return broj ispravljenih videa
+     */
+    @Transactional
+    public int reconcileLikeCounts(List<Long> videoIds) {
+        return reconcile(videoIds, "like_count", "video_likes");
+    }
+
+    /**
+     * Ispravlja comment_count za date video-e gde se razlikuje od stvarnog broja komentara.
+     *
+     * @return broj ispravljenih videa
+     */
+    @Transactional
+    public int reconcileCommentCounts(List<Long> videoIds) {
+        return reconcile(videoIds, "comment_count", "comments");
+    }
+
+    /**
+     * Redovi videa se prvo zaključavaju (FOR UPDATE, po id-u), pa se tek onda broji.
+     *
+     * Lajk/komentar menja brojač u istoj transakciji i drži lock reda videa do commit-a.
+     * Zato COUNT posle zaključavanja vidi sve što je već uračunato u brojač, a ono što još
+     * nije commit-ovano će tek dodati svoju deltu na ispravljenu vrednost - bez zaključavanja
+     * bi UPDATE pod READ COMMITTED upisao COUNT pročitan pre konkurentnog inkrementa.
+     */
+    private int reconcile(List<Long> videoIds, String counterColumn, String childTable) {
+        if (videoIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(videoIds.size(), "?"));
+        Object[] args = videoIds.toArray();
+
+        jdbcTemplate.queryForList(String.format(
+                "SELECT id FROM videos WHERE id IN (%s) ORDER BY id FOR UPDATE", placeholders), Long.class, args);
+
+        return jdbcTemplate.update(String.format("""
+            UPDATE videos v SET %s = s.actual
+            FROM (
+                SELECT v2.id, COUNT(c.id) AS actual
+                FROM videos v2 LEFT JOIN %s c ON c.video_id = v2.id
+                WHERE v2.id IN (%s)
+                GROUP BY v2.id
+            ) s
+            WHERE v.id = s.id AND v.%s <> s.actual
+            """, counterColumn, childTable, placeholders, counterColumn), args);
+    }
+}
@@ -0,0 +1,52 @@
+package rs.ac.uns.ftn.isa.isa_project.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository za batch upis view count-a u kolonu videos.view_count.
+ *
+ * Koristi ga write-behind bafer (VideoViewCountBuffer) - umesto
+ * SELECT ... FOR UPDATE po pregledu, šalje se jedan batch UPDATE
+ * sa agregiranim deltama za sve video-e.
+ */
+@Repository
+public class VideoViewCountRepository {
+
+    private static final String ADD_DELTA_SQL =
+            "UPDATE videos SET view_count = view_count + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Dodaje delte na view_count u jednoj transakciji (sve ili ništa).
+     *
+     * @param deltas videoId -> broj novih pregleda
+     * @return videoId -> broj izmenjenih redova (0 znači da video više ne postoji)
+     */
+    @Transactional
+    public Map<Long, Integer> addViewCountDeltas(Map<Long, Long> deltas) {
+        List<Long> videoIds = new ArrayList<>(deltas.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(videoIds.size());
+
+        for (Long videoId : videoIds) {
+            batchArgs.add(new Object[]{deltas.get(videoId), videoId});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(ADD_DELTA_SQL, batchArgs);
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (int i = 0; i < videoIds.size(); i++) {
+            result.put(videoIds.get(i), updated[i]);
+        }
+        return result;
+    }
+}
@@ -1,36 +1,125 @@
 package rs.ac.uns.ftn.isa.isa_project.repository;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import rs.ac.uns.ftn.isa.isa_project.model.ViewCount;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
 
 /**
  * Repository koji koristi JdbcTemplate za rad sa dinamičkim tabelama.
  *
  * Umesto JpaRepository, koristimo ručne SQL upite gde možemo
  * dinamički ubaciti ime tabele.
+ *
+ * Dva načina čuvanja (crdt.view-count.storage):
+ * - unified (podrazumevano): jedna tabela view_counts (replica_id, video_id),
+ *   LIST particionisana po replica_id - particija po replici. Čitanje više videa
+ *   sa svih replika je jedan indeksiran upit nad jednom tabelom.
+ * - per-replica: stara šema, posebna tabela view_counts_<replika> po replici.
+ *
+ * Postojeće view_counts_<replika> tabele se prebacuju u unified tabelu
+ * pri startu (migrateLegacyTables).
  */
 @Repository
 public class ViewCountRepository {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ViewCountRepository.class);
+
+    private static final String TABLE_PREFIX = "view_counts_";
+
+    private static final String UNIFIED_TABLE = "view_counts";
+    private static final String PARTITION_PREFIX = "view_counts_part_";
+
+    /**
+     * Verzija reda = ID transakcije koja ga je poslednja upisala (txid kolona).
+     * Za razliku od nextval-a, transakcija koja još radi ima ID >= xmin svakog snapshot-a,
+     * pa delta anti-entropy vraća samo redove ispod xmin-a (videti findChangedSince).
+     */
+    private static final String CURRENT_TXID = "pg_current_xact_id()::text::bigint";
+    private static final String SNAPSHOT_XMIN = "pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    /**
+     * ID replike ide u ime tabele/particije i u FOR VALUES IN literal - dozvoljeni su samo bezbedni znakovi.
+     *
+     * Samo mala slova, cifre i '-': ime tabele je ID sa '-' -> '_', a Postgres spušta
+     * identifikatore na mala slova, pa bi "Replica-1" ili "replica_1" dobili istu tabelu
+     * kao "replica-1" i toReplicaIds ne bi mogao da vrati pravi ID. Najviše 40 znakova -
+     * najduže izvedeno ime (idx_view_counts_<id>_video) mora da stane u 63 znaka, inače
+     * ga Postgres skraćuje i imena indeksa različitih replika mogu da se poklope.
+     */
+    private static final Pattern VALID_REPLICA_ID = Pattern.compile("[a-z0-9-]{1,40}");
+
+    /**
+     * Koliko često se registar tabela replika ponovo čita iz kataloga.
+     * Tabele drugih replika (deljena baza) se vide najkasnije posle ovog intervala.
+     */
+    private static final long REGISTRY_REFRESH_MS = 60_000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * unified ili per-replica.
+     */
+    @Value("${crdt.view-count.storage:unified}")
+    private String storage;
+
+    private volatile List<String> replicaIds;
+    private volatile long replicaIdsLoadedAt;
+
     /**
      * Vraća ime tabele za datu repliku.
      * Format: view_counts_replica_1, view_counts_replica_2, ...
      */
     private String getTableName(String replicaId) {
+        requireValidReplicaId(replicaId);
         // Konvertuj "replica-1" -> "replica_1" (zameni - sa _)
         String sanitized = replicaId.replace("-", "_");
-        return "view_counts_" + sanitized;
+        return TABLE_PREFIX + sanitized;
+    }
+
+    /**
+     * Ime particije replike u unified tabeli.
+     * Format: view_counts_part_replica_1, view_counts_part_replica_2, ...
+     */
+    private String getPartitionName(String replicaId) {
+        requireValidReplicaId(replicaId);
+        return PARTITION_PREFIX + replicaId.replace("-", "_");
+    }
+
+    /**
+     * Da li ID replike sme da se koristi u imenu tabele/particije.
+     */
+    public static boolean isValidReplicaId(String replicaId) {
+        return replicaId != null && VALID_REPLICA_ID.matcher(replicaId).matches();
+    }
+
+    private static void requireValidReplicaId(String replicaId) {
+        if (!isValidReplicaId(replicaId)) {
+            throw new IllegalArgumentException("Invalid replica id: " + replicaId);
+        }
+    }
+
+    private boolean isUnified() {
+        return !"per-replica".equalsIgnoreCase(storage);
     }
 
     /**
@@ -50,28 +139,53 @@ public class ViewCountRepository {
      * Pronalazi ViewCount za dati video i repliku.
      */
     public Optional<ViewCount> findByVideoIdAndReplicaId(Long videoId, String replicaId) {
-        String tableName = getTableName(replicaId);
-        String sql = String.format("SELECT * FROM %s WHERE video_id = ?", tableName);
+        List<ViewCount> results = findByVideoIdsAndReplicaId(List.of(videoId), replicaId);
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
 
-        List<ViewCount> results = jdbcTemplate.query(
-                sql,
-                viewCountRowMapper(replicaId),
-                videoId
-        );
+    /**
+     * Pronalazi ViewCount zapise za više videa jedne replike jednim upitom.
+     */
+    public List<ViewCount> findByVideoIdsAndReplicaId(Collection<Long> videoIds, String replicaId) {
+        if (videoIds.isEmpty()) {
+            return List.of();
+        }
 
-        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+        String placeholders = String.join(", ", Collections.nCopies(videoIds.size(), "?"));
+        List<Object> args = new ArrayList<>();
+
+        String sql;
+        if (isUnified()) {
+            sql = String.format(
+                    "SELECT video_id, count FROM %s WHERE replica_id = ? AND video_id IN (%s)",
+                    UNIFIED_TABLE, placeholders);
+            args.add(replicaId);
+        } else {
+            sql = String.format(
+                    "SELECT video_id, count FROM %s WHERE video_id IN (%s)",
+                    getTableName(replicaId), placeholders);
+        }
+        args.addAll(videoIds);
+
+        return jdbcTemplate.query(sql, viewCountRowMapper(replicaId), args.toArray());
     }
 
     /**
      * Čuva ili update-uje ViewCount.
      */
     public ViewCount save(ViewCount viewCount) {
+        if (isUnified()) {
+            mergeUnified(viewCount.getReplicaId(),
+                    Map.of(viewCount.getVideoId(), viewCount.getCount()), "EXCLUDED.count");
+            return viewCount;
+        }
+
         String tableName = getTableName(viewCount.getReplicaId());
 
         // Pokušaj UPDATE prvo
         String updateSql = String.format(
-                "UPDATE %s SET count = ? WHERE video_id = ?",
-                tableName
+                "UPDATE %s SET count = ?, txid = %s WHERE video_id = ?",
+                tableName, CURRENT_TXID
         );
 
         int rowsAffected = jdbcTemplate.update(
@@ -83,8 +197,8 @@ public class ViewCountRepository {
         // Ako nije update-ovano, uradi INSERT
         if (rowsAffected == 0) {
             String insertSql = String.format(
-                    "INSERT INTO %s (video_id, count) VALUES (?, ?)",
-                    tableName
+                    "INSERT INTO %s (video_id, count, txid) VALUES (?, ?, %s)",
+                    tableName, CURRENT_TXID
             );
             jdbcTemplate.update(
                     insertSql,
@@ -97,55 +211,360 @@ public class ViewCountRepository {
     }
 
     /**
-     * Pronalazi ViewCount sa pesimističkim lock-om (FOR UPDATE).
+     * Batch upsert delti u tabelu replike: INSERT ... ON CONFLICT DO UPDATE count = count + delta.
+     * Video-i koji više ne postoje se preskaču (0 izmenjenih redova).
+     *
+     * @param deltas videoId -> broj novih pregleda
+     * @return videoId -> broj izmenjenih redova
      */
-    public Optional<ViewCount> findByVideoIdForUpdate(Long videoId, String replicaId) {
+    @Transactional
+    public Map<Long, Integer> upsertDeltas(String replicaId, Map<Long, Long> deltas) {
+        if (isUnified()) {
+            return mergeUnified(replicaId, deltas, UNIFIED_TABLE + ".count + EXCLUDED.count");
+        }
+
         String tableName = getTableName(replicaId);
-        String sql = String.format(
-                "SELECT * FROM %s WHERE video_id = ? FOR UPDATE",
-                tableName
-        );
+        String sql = String.format("""
+            INSERT INTO %s (video_id, count, txid)
+            SELECT v.id, ?, %s FROM videos v WHERE v.id = ?
+            ON CONFLICT (video_id) DO UPDATE
+                SET count = %s.count + EXCLUDED.count, txid = EXCLUDED.txid
+            """, tableName, CURRENT_TXID, tableName);
 
-        List<ViewCount> results = jdbcTemplate.query(
-                sql,
-                viewCountRowMapper(replicaId),
-                videoId
-        );
+        return batchByVideo(sql, deltas, (videoId, value) -> new Object[]{value, videoId});
+    }
+
+    /**
+     * Atomski MAX merge: count = GREATEST(count, ?).
+     * Ne može da pregazi delte koje je u međuvremenu upisao upsertDeltas.
+     * Red (i njegova verzija) se menja samo kada je nova vrednost veća - inače bi
+     * svaki merge istog stanja ponovo slao red kroz delta anti-entropy.
+     * Video koji ne postoji se preskače (bez FK greške koja bi oborila transakciju).
+     */
+    public void mergeMax(Long videoId, String replicaId, long count) {
+        mergeMaxBatch(replicaId, Map.of(videoId, count));
+    }
+
+    /**
+     * Batch MAX merge za više videa jedne replike (jedan JDBC batch).
+     */
+    @Transactional
+    public void mergeMaxBatch(String replicaId, Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        if (isUnified()) {
+            mergeUnified(replicaId, counts, "GREATEST(" + UNIFIED_TABLE + ".count, EXCLUDED.count)");
+            return;
+        }
+
+        String tableName = getTableName(replicaId);
+        String sql = String.format("""
+            INSERT INTO %s (video_id, count, txid)
+            SELECT v.id, ?, %s FROM videos v WHERE v.id = ?
+            ON CONFLICT (video_id) DO UPDATE
+                SET count = EXCLUDED.count, txid = EXCLUDED.txid
+                WHERE EXCLUDED.count > %s.count
+            """, tableName, CURRENT_TXID, tableName);
+
+        batchByVideo(sql, counts, (videoId, value) -> new Object[]{value, videoId});
+    }
+
+    /**
+     * Upsert u unified tabelu. countExpression određuje novu vrednost pri konfliktu
+     * (zbir delte, MAX ili prosto nova vrednost).
+     * Postojeći red dobija novu verziju samo ako se count zaista menja.
+     * Video koji ne postoji se preskače (0 izmenjenih redova).
+     */
+    private Map<Long, Integer> mergeUnified(String replicaId, Map<Long, Long> values, String countExpression) {
+        String sql = String.format("""
+            INSERT INTO %s (replica_id, video_id, count, txid)
+            SELECT ?, v.id, ?, %s FROM videos v WHERE v.id = ?
+            ON CONFLICT (replica_id, video_id) DO UPDATE
+                SET count = %s, txid = EXCLUDED.txid
+                WHERE %s <> %s.count
+            """, UNIFIED_TABLE, CURRENT_TXID, countExpression, countExpression, UNIFIED_TABLE);
+
+        return batchByVideo(sql, values, (videoId, value) -> new Object[]{replicaId, value, videoId});
+    }
+
+    private Map<Long, Integer> batchByVideo(String sql, Map<Long, Long> values,
+                                            BiFunction<Long, Long, Object[]> argsFor) {
+        List<Long> videoIds = new ArrayList<>(values.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(videoIds.size());
+        for (Long videoId : videoIds) {
+            batchArgs.add(argsFor.apply(videoId, values.get(videoId)));
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(sql, batchArgs);
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (int i = 0; i < videoIds.size(); i++) {
+            result.put(videoIds.get(i), updated[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Pronalazi ViewCount sa pesimističkim lock-om (FOR UPDATE).
+     */
+    public Optional<ViewCount> findByVideoIdForUpdate(Long videoId, String replicaId) {
+        List<ViewCount> results;
+        if (isUnified()) {
+            results = jdbcTemplate.query(
+                    String.format("SELECT video_id, count FROM %s WHERE replica_id = ? AND video_id = ? FOR UPDATE",
+                            UNIFIED_TABLE),
+                    viewCountRowMapper(replicaId),
+                    replicaId, videoId
+            );
+        } else {
+            results = jdbcTemplate.query(
+                    String.format("SELECT * FROM %s WHERE video_id = ? FOR UPDATE", getTableName(replicaId)),
+                    viewCountRowMapper(replicaId),
+                    videoId
+            );
+        }
 
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
 
+    /**
+     * Vraća zapise promenjene posle date verzije, sortirane po verziji (jedna stranica).
+     * Koristi se za delta anti-entropy - druga replika pamti poslednju viđenu verziju.
+     *
+     * Verzija je txid transakcije upisa, a vraćaju se samo redovi ispod xmin-a snapshot-a:
+     * sve te transakcije su završene, a svaka koja commit-uje kasnije ima txid >= xmin,
+     * pa ne može da završi ispod watermark-a druge replike. Stranica se ne seče usred
+     * transakcije (redovi jednog flush-a imaju isti txid) - može da ima i više od limit redova.
+     */
+    public List<ViewCount> findChangedSince(String replicaId, long sinceVersion, int limit) {
+        RowMapper<ViewCount> rowMapper = (ResultSet rs, int rowNum) -> {
+            ViewCount vc = viewCountRowMapper(replicaId).mapRow(rs, rowNum);
+            vc.setVersion(rs.getLong("txid"));
+            return vc;
+        };
+
+        String table = isUnified() ? UNIFIED_TABLE : getTableName(replicaId);
+        String filter = isUnified() ? "replica_id = ? AND " : "";
+        String sql = String.format("""
+            WITH page AS (
+                SELECT txid FROM %s
+                WHERE %stxid > ? AND txid < %s
+                ORDER BY txid LIMIT ?
+            )
+            SELECT video_id, count, txid FROM %s
+            WHERE %stxid > ? AND txid <= (SELECT MAX(txid) FROM page)
+            ORDER BY txid
+            """, table, filter, SNAPSHOT_XMIN, table, filter);
+
+        if (isUnified()) {
+            return jdbcTemplate.query(sql, rowMapper, replicaId, sinceVersion, limit, replicaId, sinceVersion);
+        }
+        return jdbcTemplate.query(sql, rowMapper, sinceVersion, limit, sinceVersion);
+    }
+
+    /**
+     * Računa hash listova Merkle stabla za tabelu replike jednim GROUP BY upitom.
+     * Hash lista = zbir (mod 2^64) hash-eva "replika:video:count" za sve video-e u bucket-u.
+     * Poziva se samo za replike iz registra (tabela postoji), pa se greška upita ne guta -
+     * stablo sa tiho izostavljenom replikom bi dalo pogrešan digest.
+     */
+    public long[] computeLeafHashes(String replicaId, int leafCount) {
+        long[] leaves = new long[leafCount];
+        List<Object> args = new ArrayList<>(List.of(leafCount, replicaId));
+        String tableName;
+        String replicaFilter;
+        if (isUnified()) {
+            tableName = UNIFIED_TABLE;
+            replicaFilter = "replica_id = ? AND ";
+            args.add(replicaId);
+        } else {
+            tableName = getTableName(replicaId);
+            replicaFilter = "";
+        }
+        String sql = String.format("""
+            SELECT mod(video_id, ?) AS bucket,
+                   SUM(hashtextextended(? || ':' || video_id || ':' || count, 0)) AS hash
+            FROM %s
+            WHERE %scount > 0
+            GROUP BY bucket
+            """, tableName, replicaFilter);
+
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            // SUM nad bigint vraća numeric - longValue() uzima donjih 64 bita (zbir mod 2^64)
+            leaves[rs.getInt("bucket")] = rs.getBigDecimal("hash").longValue();
+        }, args.toArray());
+
+        return leaves;
+    }
+
+    /**
+     * Vraća zapise iz tabele replike za video-e u datim bucket-ima (videoId % leafCount).
+     */
+    public List<ViewCount> findByBuckets(String replicaId, int leafCount, List<Integer> buckets) {
+        if (buckets.isEmpty()) {
+            return List.of();
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(buckets.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        String sql;
+        if (isUnified()) {
+            sql = String.format(
+                    "SELECT video_id, count FROM %s WHERE replica_id = ? AND count > 0 AND mod(video_id, ?) IN (%s)",
+                    UNIFIED_TABLE, placeholders
+            );
+            args.add(replicaId);
+        } else {
+            sql = String.format(
+                    "SELECT * FROM %s WHERE count > 0 AND mod(video_id, ?) IN (%s)",
+                    getTableName(replicaId), placeholders
+            );
+        }
+        args.add(leafCount);
+        args.addAll(buckets);
+
+        return jdbcTemplate.query(sql, viewCountRowMapper(replicaId), args.toArray());
+    }
+
     /**
      * Vraća sve ViewCount zapise za dati video SA SVIH REPLIKA.
      * Ovo se koristi za G-Counter merge.
      */
-    public List<ViewCount> findAllByVideoId(Long videoId, List<String> allReplicaIds) {
-        List<ViewCount> allCounts = new java.util.ArrayList<>();
+    public List<ViewCount> findAllByVideoId(Long videoId) {
+        return findAllByVideoIds(List.of(videoId));
+    }
 
-        for (String replicaId : allReplicaIds) {
-            try {
-                String tableName = getTableName(replicaId);
-                String sql = String.format("SELECT * FROM %s WHERE video_id = ?", tableName);
+    /**
+     * Vraća sve ViewCount zapise za date video-e SA SVIH REPLIKA jednim upitom
+     * (unified: indeks na video_id, per-replica: UNION ALL nad tabelama iz registra).
+     */
+    public List<ViewCount> findAllByVideoIds(Collection<Long> videoIds) {
+        if (videoIds.isEmpty()) {
+            return List.of();
+        }
+
+        RowMapper<ViewCount> rowMapper = (ResultSet rs, int rowNum) -> {
+            ViewCount vc = new ViewCount();
+            vc.setVideoId(rs.getLong("video_id"));
+            vc.setCount(rs.getLong("count"));
+            vc.setReplicaId(rs.getString("replica_id"));
+            return vc;
+        };
+        String placeholders = String.join(", ", Collections.nCopies(videoIds.size(), "?"));
+
+        if (isUnified()) {
+            String sql = String.format(
+                    "SELECT replica_id, video_id, count FROM %s WHERE video_id IN (%s)",
+                    UNIFIED_TABLE, placeholders
+            );
+            return jdbcTemplate.query(sql, rowMapper, videoIds.toArray());
+        }
 
-                List<ViewCount> results = jdbcTemplate.query(
-                        sql,
-                        viewCountRowMapper(replicaId),
-                        videoId
-                );
+        List<String> replicaIds = getReplicaIds();
+        if (replicaIds.isEmpty()) {
+            return List.of();
+        }
 
-                allCounts.addAll(results);
-            } catch (Exception e) {
-                // Tabela možda ne postoji - to je OK, preskačemo
+        StringBuilder union = new StringBuilder();
+        for (String replicaId : replicaIds) {
+            if (union.length() > 0) {
+                union.append(" UNION ALL ");
             }
+            // replicaId i ime tabele dolaze iz kataloga (samo [a-z0-9_-]), pa su bezbedni kao literal
+            union.append(String.format("SELECT '%s' AS replica_id, video_id, count FROM %s",
+                    replicaId, getTableName(replicaId)));
         }
 
-        return allCounts;
+        String sql = String.format(
+                "SELECT replica_id, video_id, count FROM (%s) vc WHERE video_id IN (%s)",
+                union, placeholders
+        );
+
+        return jdbcTemplate.query(sql, rowMapper, videoIds.toArray());
     }
 
     /**
-     * Kreira novu tabelu za repliku ako ne postoji.
+     * Vraća ID-eve svih replika koje imaju tabelu ili particiju (registar iz kataloga baze).
+     * Registar se učitava jednom i osvežava na REGISTRY_REFRESH_MS, a tabele koje
+     * kreira ova replika se dodaju odmah - upiti ne gađaju tabele koje ne postoje.
+     */
+    public List<String> getReplicaIds() {
+        List<String> ids = replicaIds;
+        if (ids == null || System.currentTimeMillis() - replicaIdsLoadedAt > REGISTRY_REFRESH_MS) {
+            ids = refreshReplicaIds();
+        }
+        return ids;
+    }
+
+    /**
+     * Ponovo učitava registar replika iz kataloga: particije unified tabele
+     * ili view_counts_<replika> tabele u per-replica modu.
+     */
+    public synchronized List<String> refreshReplicaIds() {
+        replicaIds = List.copyOf(isUnified() ? findPartitionReplicaIds() : findLegacyReplicaIds());
+        replicaIdsLoadedAt = System.currentTimeMillis();
+        return replicaIds;
+    }
+
+    private List<String> findPartitionReplicaIds() {
+        List<String> partitions = jdbcTemplate.queryForList("""
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass(?)
+            ORDER BY c.relname
+            """, String.class, UNIFIED_TABLE);
+
+        return toReplicaIds(partitions, PARTITION_PREFIX);
+    }
+
+    /**
+     * view_counts_<replika> tabele (bez particija unified tabele).
+     */
+    private List<String> findLegacyReplicaIds() {
+        List<String> tables = jdbcTemplate.queryForList("""
+            SELECT c.relname FROM pg_class c
+            WHERE c.relnamespace = (SELECT oid FROM pg_namespace WHERE nspname = current_schema())
+              AND c.relkind = 'r'
+              AND NOT c.relispartition
+              AND c.relname LIKE 'view\\_counts\\_%'
+            ORDER BY c.relname
+            """, String.class);
+
+        return toReplicaIds(tables, TABLE_PREFIX);
+    }
+
+    private static List<String> toReplicaIds(List<String> tables, String prefix) {
+        List<String> ids = new ArrayList<>();
+        for (String table : tables) {
+            // "replica_1" -> "replica-1" - tačno obrnuto od getTableName, jer ID ne sme da ima '_'
+            String replicaId = table.substring(prefix.length()).replace("_", "-");
+            if (isValidReplicaId(replicaId)) {
+                ids.add(replicaId);
+            }
+        }
+        return ids;
+    }
+
+    private synchronized void registerReplicaId(String replicaId) {
+        List<String> ids = replicaIds;
+        if (ids != null && !ids.contains(replicaId)) {
+            List<String> updated = new ArrayList<>(ids);
+            updated.add(replicaId);
+            replicaIds = List.copyOf(updated);
+        }
+    }
+
+    /**
+     * Kreira novu tabelu (per-replica) ili particiju unified tabele za repliku ako ne postoji.
      */
     public void createTableIfNotExists(String replicaId) {
+        if (isUnified()) {
+            createPartitionIfNotExists(replicaId);
+            registerReplicaId(replicaId);
+            return;
+        }
+
         String tableName = getTableName(replicaId);
 
         String createTableSql = String.format("""
@@ -159,6 +578,14 @@ public class ViewCountRepository {
 
         jdbcTemplate.execute(createTableSql);
 
+        // Verzija reda (txid) za delta anti-entropy - dodaje se i na postojeće tabele.
+        // Stara version kolona (nextval) se više ne piše; njen indeks se briše.
+        jdbcTemplate.execute(String.format(
+                "ALTER TABLE %s ADD COLUMN IF NOT EXISTS txid BIGINT NOT NULL DEFAULT 0", tableName));
+        jdbcTemplate.execute(String.format("DROP INDEX IF EXISTS idx_%s_version", tableName));
+        jdbcTemplate.execute(String.format(
+                "CREATE INDEX IF NOT EXISTS idx_%s_txid ON %s(txid)", tableName, tableName));
+
         // Kreiraj indeks
         String createIndexSql = String.format(
                 "CREATE INDEX IF NOT EXISTS idx_%s_video ON %s(video_id)",
@@ -166,5 +593,86 @@ public class ViewCountRepository {
         );
 
         jdbcTemplate.execute(createIndexSql);
+
+        registerReplicaId(replicaId);
+    }
+
+    /**
+     * Kreira unified tabelu view_counts (particionisanu po replica_id) ako ne postoji.
+     */
+    public void createUnifiedTableIfNotExists() {
+        jdbcTemplate.execute(String.format("""
+            CREATE TABLE IF NOT EXISTS %s (
+                replica_id VARCHAR(64) NOT NULL,
+                video_id BIGINT NOT NULL,
+                count BIGINT NOT NULL DEFAULT 0,
+                txid BIGINT NOT NULL DEFAULT 0,
+                PRIMARY KEY (replica_id, video_id),
+                CONSTRAINT fk_%s_video FOREIGN KEY (video_id)
+                    REFERENCES videos(id) ON DELETE CASCADE
+            ) PARTITION BY LIST (replica_id)
+            """, UNIFIED_TABLE, UNIFIED_TABLE));
+
+        // Tabele iz vremena nextval verzija dobijaju txid kolonu (stari redovi imaju 0)
+        jdbcTemplate.execute(String.format(
+                "ALTER TABLE %s ADD COLUMN IF NOT EXISTS txid BIGINT NOT NULL DEFAULT 0", UNIFIED_TABLE));
+        jdbcTemplate.execute(String.format("DROP INDEX IF EXISTS idx_%s_version", UNIFIED_TABLE));
+
+        // Indeksi na particionisanoj tabeli se automatski kreiraju i na svakoj particiji
+        jdbcTemplate.execute(String.format(
+                "CREATE INDEX IF NOT EXISTS idx_%s_video ON %s(video_id)", UNIFIED_TABLE, UNIFIED_TABLE));
+        jdbcTemplate.execute(String.format(
+                "CREATE INDEX IF NOT EXISTS idx_%s_txid ON %s(replica_id, txid)", UNIFIED_TABLE, UNIFIED_TABLE));
+    }
+
+    private void createPartitionIfNotExists(String replicaId) {
+        // replicaId ide kao literal u FOR VALUES IN - getPartitionName odbija sve osim bezbednih znakova
+        String partitionName = getPartitionName(replicaId);
+
+        createUnifiedTableIfNotExists();
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES IN ('%s')",
+                partitionName, UNIFIED_TABLE, replicaId));
+    }
+
+    /**
+     * Prebacuje postojeće view_counts_<replika> tabele u unified tabelu.
+     *
+     * Merge je MAX po (replika, video), pa je ponovno pokretanje bezbedno - i dok
+     * neka replika još radi u per-replica modu, njene nove vrednosti se pokupe pri
+     * sledećem startu. Preneti redovi dobijaju txid transakcije migracije, pa ih
+     * delta anti-entropy drugih replika vidi kao nove izmene.
+     * Stare tabele se ne brišu - mogu se obrisati kada sve replike rade u unified modu.
+     *
+     * @return broj prenetih redova
+     */
+    @Transactional
+    public int migrateLegacyTables() {
+        if (!isUnified()) {
+            return 0;
+        }
+
+        createUnifiedTableIfNotExists();
+
+        int migrated = 0;
+        for (String replicaId : findLegacyReplicaIds()) {
+            createPartitionIfNotExists(replicaId);
+
+            String legacyTable = getTableName(replicaId);
+            // Samo redovi koji nešto menjaju dobijaju novi txid
+            int rows = jdbcTemplate.update(String.format("""
+                INSERT INTO %s (replica_id, video_id, count, txid)
+                SELECT ?, video_id, count, %s FROM %s
+                ON CONFLICT (replica_id, video_id) DO UPDATE
+                    SET count = EXCLUDED.count, txid = EXCLUDED.txid
+                    WHERE EXCLUDED.count > %s.count
+                """, UNIFIED_TABLE, CURRENT_TXID, legacyTable, UNIFIED_TABLE), replicaId);
+
+            LOG.info("Migrated {} rows from {} into {}", rows, legacyTable, UNIFIED_TABLE);
+            migrated += rows;
+        }
+
+        refreshReplicaIds();
+        return migrated;
     }
-}
\ No newline at end of file
+}
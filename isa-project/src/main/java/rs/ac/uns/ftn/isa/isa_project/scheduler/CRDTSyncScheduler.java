@@ -6,91 +6,162 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import rs.ac.uns.ftn.isa.isa_project.model.Video;
-import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTChangesPage;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.service.MerkleSyncService;
 import rs.ac.uns.ftn.isa.isa_project.service.ReplicaSyncService;
 
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Scheduled task za periodičnu sinhronizaciju view count-ova između replika.
  *
- * Strategija: Svake 30 sekundi, prolazi kroz sve video-e i vrši pull sync
- * sa drugim replikama. Ovo osigurava eventual consistency čak i ako push sync
- * ne radi ili ako postoje mrežni problemi.
+ * Strategija: Svake 30 sekundi, za svaku drugu repliku traži samo brojače
+ * promenjene posle poslednje viđene verzije (delta anti-entropy, stranica po stranica).
+ * Cena jedne runde je O(promenjenih video-a), a ne O(svih video-a).
+ * Ovo osigurava eventual consistency čak i ako push sync ne radi ili ako postoje mrežni problemi.
  */
 @Component
 public class CRDTSyncScheduler {
 
     private static final Logger LOG = LoggerFactory.getLogger(CRDTSyncScheduler.class);
 
+    /**
+     * Početni watermark - obuhvata i redove sa podrazumevanom verzijom 0.
+     */
+    private static final long INITIAL_WATERMARK = -1L;
+
     @Autowired
     private ReplicaSyncService syncService;
 
     @Autowired
-    private VideoRepository videoRepository;
+    private MerkleSyncService merkleSyncService;
 
     @Value("${crdt.replica.id}")
     private String replicaId;
 
-    @Value("${crdt.sync.periodic-enabled:true}") // Default: periodična sync je omogućena
+    /**
+     * Periodični delta sync i duboki (Merkle) sync se uključuju eksplicitno po replici -
+     * lokalno pokrenuta instanca bez drugih replika ne treba da ih izvršava.
+     */
+    @Value("${crdt.sync.periodic-enabled:false}")
     private boolean periodicSyncEnabled;
 
+    @Value("${crdt.sync.deep-enabled:false}")
+    private boolean deepSyncEnabled;
+
+    @Value("${crdt.sync.changes-page-size:500}")
+    private int changesPageSize;
+
+    @Value("${crdt.sync.max-pages-per-round:200}")
+    private int maxPagesPerRound;
+
     /**
-     * Periodična sinhronizacija - izvršava se svakih 30 sekundi.
+     * Na svakih N rundi watermark se vraća na početak (puna, ali stranična runda).
+     * Verzije su txid-ovi ispod xmin-a (ViewCountRepository.findChangedSince), pa redosled
+     * commit-a ne može da preskoči red - ovo je samo zaštitna mreža (npr. promena šeme).
+     */
+    @Value("${crdt.sync.full-resync-every:20}")
+    private int fullResyncEvery;
+
+    /**
+     * Poslednja viđena verzija po peer URL-u.
+     */
+    private final Map<String, Long> peerWatermarks = new ConcurrentHashMap<>();
+
+    private int roundsSinceFullResync = 0;
+
+    /**
+     * Periodična sinhronizacija - podrazumevano svakih 30 sekundi (crdt.sync.periodic-interval-ms).
      *
-     * fixedRate = 30000ms (30 sekundi)
      * initialDelay = 10000ms (čeka 10s nakon startup-a pre prvog izvršavanja)
      */
-    @Scheduled(fixedRate = 30000, initialDelay = 10000)
+    @Scheduled(fixedDelayString = "${crdt.sync.periodic-interval-ms:30000}", initialDelay = 10000)
     public void periodicSync() {
         if (!periodicSyncEnabled) {
             return;
         }
 
-        LOG.info("[{}] Starting periodic CRDT sync...", replicaId);
+        if (++roundsSinceFullResync >= fullResyncEvery) {
+            peerWatermarks.clear();
+            roundsSinceFullResync = 0;
+        }
+
+        LOG.info("[{}] Starting periodic CRDT delta sync...", replicaId);
+
+        int successCount = 0;
+        int failureCount = 0;
+        int mergedVideos = 0;
+
+        for (String peerUrl : syncService.getPeerUrls()) {
+            try {
+                mergedVideos += syncChangesFrom(peerUrl);
+                successCount++;
+            } catch (Exception e) {
+                LOG.error("[{}] Failed to sync changes from {}: {}", replicaId, peerUrl, e.getMessage());
+                failureCount++;
+            }
+        }
+
+        LOG.info("[{}] Periodic sync completed: {} videos merged, {} peers successful, {} failed",
+                replicaId, mergedVideos, successCount, failureCount);
+    }
 
-        try {
-            // Uzmi sve video-e iz baze
-            List<Video> videos = videoRepository.findAll();
+    /**
+     * Povlači promene od jedne replike stranicu po stranicu i pomera watermark
+     * tek kada je stranica uspešno merge-ovana.
+     *
+     * @return broj merge-ovanih video stanja
+     */
+    private int syncChangesFrom(String peerUrl) {
+        long since = peerWatermarks.getOrDefault(peerUrl, INITIAL_WATERMARK);
+        int merged = 0;
 
-            int successCount = 0;
-            int failureCount = 0;
+        for (int page = 0; page < maxPagesPerRound; page++) {
+            CRDTChangesPage changes = syncService.fetchRemoteChanges(peerUrl, since, changesPageSize);
 
-            // Za svaki video, uradi pull sync
-            for (Video video : videos) {
-                try {
-                    syncService.pullAndMergeFromOtherReplicas(video.getId());
-                    successCount++;
-                } catch (Exception e) {
-                    LOG.error("[{}] Failed to sync video {}: {}", replicaId, video.getId(), e.getMessage());
-                    failureCount++;
-                }
+            if (!changes.getStates().isEmpty()) {
+                syncService.receiveSyncBatch(
+                        new CRDTSyncBatchRequest(changes.getSourceReplicaId(), changes.getStates()));
+                merged += changes.getStates().size();
             }
 
-            LOG.info("[{}] Periodic sync completed: {} successful, {} failed out of {} videos",
-                    replicaId, successCount, failureCount, videos.size());
+            since = changes.getNextSince();
+            peerWatermarks.put(peerUrl, since);
 
-        } catch (Exception e) {
-            LOG.error("[{}] Fatal error during periodic sync: {}", replicaId, e.getMessage());
+            if (!changes.isHasMore()) {
+                break;
+            }
         }
+
+        return merged;
     }
 
     /**
-     * OPCIONO: Manje frekventna duboka sinhronizacija - svakih 5 minuta.
-     * Ova metoda može da uključi dodatne provere konzistentnosti.
+     * Manje frekventna duboka sinhronizacija - podrazumevano svakih 5 minuta (crdt.sync.deep-interval-ms).
+     *
+     * Poredi Merkle stablo nad view_counts_* tabelama sa svakom drugom replikom
+     * i sinhronizuje samo bucket-e koji se razlikuju. Hvata sve što je delta
+     * sync propustio (npr. izgubljeni push-evi, restart sa praznim watermark-om).
      */
-    @Scheduled(fixedRate = 300000, initialDelay = 60000) // 5 minuta, čeka 1 minut na početku
+    @Scheduled(fixedDelayString = "${crdt.sync.deep-interval-ms:300000}", initialDelay = 60000) // čeka 1 minut na početku
     public void deepSync() {
-        if (!periodicSyncEnabled) {
+        if (!deepSyncEnabled) {
             return;
         }
 
-        LOG.info("[{}] Starting deep CRDT sync (heavy operation)...", replicaId);
+        LOG.info("[{}] Starting deep CRDT sync (Merkle digest exchange)...", replicaId);
 
-        // Ovde možeš dodati dodatnu logiku za duboku sinhronizaciju
-        // Npr. proveru konzistentnosti, garbage collection starih view count-ova, itd.
+        int divergentBuckets = 0;
+        for (String peerUrl : syncService.getPeerUrls()) {
+            try {
+                divergentBuckets += merkleSyncService.reconcileWith(peerUrl);
+            } catch (Exception e) {
+                LOG.error("[{}] Deep sync with {} failed: {}", replicaId, peerUrl, e.getMessage());
+            }
+        }
 
-        LOG.info("[{}] Deep sync completed", replicaId);
+        LOG.info("[{}] Deep sync completed: {} divergent buckets reconciled", replicaId, divergentBuckets);
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package rs.ac.uns.ftn.isa.isa_project.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.ac.uns.ftn.isa.isa_project.service.ChunkedUploadService;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+
+import java.time.Duration;
+
+/**
+ * Scheduled task koji briše napuštene upload-e:
+ * - pripremljene thumbnail-e (POST /api/videos/thumbnails) koje nijedan upload nije preuzeo,
+ * - chunked upload sesije bez novih chunk-ova duže od video.upload.session-ttl-ms (sa .part fajlom).
+ */
+@Component
+public class StagedUploadCleaner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StagedUploadCleaner.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Value("${video.upload.staged-ttl-ms:3600000}")
+    private long stagedTtlMs;
+
+    @Value("${video.upload.session-ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    @Scheduled(fixedDelayString = "${video.upload.staged-cleanup-interval-ms:600000}", initialDelay = 60000)
+    public void cleanup() {
+        try {
+            int deleted = fileStorageService.deleteStagedOlderThan("thumbs", Duration.ofMillis(stagedTtlMs));
+            if (deleted > 0) {
+                LOG.info("Deleted {} unclaimed staged thumbnails", deleted);
+            }
+        } catch (Exception e) {
+            LOG.error("Staged upload cleanup failed: {}", e.getMessage());
+        }
+
+        try {
+            int collected = chunkedUploadService.collectGarbage(Duration.ofMillis(sessionTtlMs));
+            if (collected > 0) {
+                LOG.info("Collected {} orphaned upload sessions", collected);
+            }
+        } catch (Exception e) {
+            LOG.error("Upload session cleanup failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package rs.ac.uns.ftn.isa.isa_project.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoStatsRepository;
+
+import java.util.List;
+
+/**
+ * Scheduled task koji popravlja odstupanja denormalizovanih brojača lajkova i komentara.
+ *
+ * Brojači se održavaju inkrementalno (LikeServiceImpl, CommentServiceImpl), ali mogu
+ * da odstupe od stvarnog stanja (ručne izmene u bazi, brisanja mimo servisa, trka sa
+ * samim reconciler-om). Svaka runda upoređuje brojače sa COUNT(*) i ispravlja samo
+ * redove koji se razlikuju - po grupama od video.stats.reconcile-batch-size videa, svaka
+ * u kratkoj transakciji koja zaključava samo svoje redove.
+ */
+@Component
+public class VideoStatsReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VideoStatsReconciler.class);
+
+    @Autowired
+    private VideoStatsRepository videoStatsRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${video.stats.reconcile-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${video.stats.reconcile-interval-ms:600000}", initialDelay = 10000)
+    public void reconcile() {
+        try {
+            int likes = 0;
+            int comments = 0;
+            long afterId = 0;
+            List<Long> videoIds;
+            do {
+                videoIds = videoStatsRepository.findVideoIdsAfter(afterId, batchSize);
+                if (videoIds.isEmpty()) {
+                    break;
+                }
+                likes += videoStatsRepository.reconcileLikeCounts(videoIds);
+                comments += videoStatsRepository.reconcileCommentCounts(videoIds);
+                afterId = videoIds.get(videoIds.size() - 1);
+            } while (videoIds.size() == batchSize);
+
+            meterRegistry.counter("video.stats.repaired", "counter", "likes").increment(likes);
+            meterRegistry.counter("video.stats.repaired", "counter", "comments").increment(comments);
+
+            if (likes > 0 || comments > 0) {
+                LOG.warn("Repaired counter drift: {} like counts, {} comment counts", likes, comments);
+            }
+        } catch (Exception e) {
+            LOG.error("Video stats reconciliation failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package rs.ac.uns.ftn.isa.isa_project.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Autentifikacija poziva između replika (/api/crdt/**).
+ *
+ * Replike se ne autentifikuju JWT-om nego zajedničkom tajnom klastera (crdt.cluster.secret)
+ * u X-Replica-Token header-u. Ako se tajna poklapa, zahtev dobija ROLE_REPLICA;
+ * ako tajna nije podešena, nijedan zahtev ne dobija tu rolu i /api/crdt/** je zatvoren.
+ */
+public class ReplicaAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Replica-Token";
+    public static final String ROLE = "ROLE_REPLICA";
+
+    private static final String CRDT_PATH = "/api/crdt/";
+
+    private final byte[] secret;
+
+    public ReplicaAuthenticationFilter(String secret) {
+        this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(CRDT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String token = request.getHeader(HEADER);
+
+        // Poređenje u konstantnom vremenu, prazna tajna nikad ne prolazi
+        if (secret.length > 0 && token != null
+                && MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+            PreAuthenticatedAuthenticationToken authentication = new PreAuthenticatedAuthenticationToken(
+                    "replica", null, List.of(new SimpleGrantedAuthority(ROLE)));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,164 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.ac.uns.ftn.isa.isa_project.repository.ViewCountRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Bafer lokalnih CRDT inkremenata (buffered mode za CRDTViewCountService).
+ *
+ * Inkrementi se skupljaju po videu u LongAdder-u, a na svaki tick se
+ * upisuju u tabelu replike jednim batch upsert-om
+ * (INSERT ... ON CONFLICT DO UPDATE SET count = count + EXCLUDED.count).
+ * Push ka drugim replikama ide jednom po videu po tick-u, ne po pregledu.
+ *
+ * G-Counter semantika se ne menja - lokalni brojač i dalje samo raste,
+ * samo se upisuje u većim koracima.
+ */
+@Component
+public class CRDTViewCountBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CRDTViewCountBuffer.class);
+
+    @Autowired
+    private ViewCountRepository viewCountRepository;
+
+    @Autowired
+    private ReplicaSyncService syncService;
+
+    @Autowired
+    private CRDTViewCountCache viewCountCache;
+
+    @Value("${crdt.replica.id}")
+    private String replicaId;
+
+    @Value("${crdt.sync.push-enabled:true}")
+    private boolean pushEnabled;
+
+    private final ConcurrentHashMap<Long, Stripe> stripes = new ConcurrentHashMap<>();
+
+    /**
+     * Write lock drži flush dok upisuje delte i pomera "flushed",
+     * read lock drže čitanja baza + pending, pa čitanje nikad ne vidi
+     * isti pregled dva puta (ni u bazi ni u baferu).
+     */
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public boolean isTracked(Long videoId) {
+        return stripes.containsKey(videoId);
+    }
+
+    public void increment(Long videoId) {
+        stripes.computeIfAbsent(videoId, id -> new Stripe()).views.increment();
+    }
+
+    /**
+     * Broj lokalnih pregleda koji još nisu upisani u tabelu replike.
+     */
+    public long getPendingViews(Long videoId) {
+        Stripe stripe = stripes.get(videoId);
+        return stripe == null ? 0L : stripe.pendingDelta();
+    }
+
+    /**
+     * Izvršava čitanje lokalnog brojača iz baze i dodaje pending deltu,
+     * konzistentno u odnosu na flush - rezultat je monoton.
+     */
+    public long readWithPending(Long videoId, Supplier<Long> persistedCount) {
+        return readLocked(() -> persistedCount.get() + getPendingViews(videoId));
+    }
+
+    /**
+     * Izvršava čitanje (baza + getPendingViews za više video-a) pod read lock-om,
+     * konzistentno u odnosu na flush.
+     */
+    public <T> T readLocked(Supplier<T> read) {
+        flushLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${crdt.view-count.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+
+        flushLock.writeLock().lock();
+        try {
+            stripes.forEach((videoId, stripe) -> {
+                long delta = stripe.pendingDelta();
+                if (delta > 0) {
+                    deltas.put(videoId, delta);
+                }
+            });
+
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Integer> updated = viewCountRepository.upsertDeltas(replicaId, deltas);
+
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                Long videoId = entry.getKey();
+                if (updated.getOrDefault(videoId, 0) == 0) {
+                    stripes.remove(videoId);
+                    LOG.warn("[{}] Video {} no longer exists, dropped {} buffered views",
+                            replicaId, videoId, entry.getValue());
+                } else {
+                    stripes.get(videoId).flushed += entry.getValue();
+                }
+                // Pod write lock-om, pa čitanje ne vidi stari keš + praznu pending deltu
+                viewCountCache.invalidate(videoId);
+            }
+
+            LOG.debug("[{}] Flushed buffered views for {} videos", replicaId, deltas.size());
+
+        } catch (Exception e) {
+            LOG.error("[{}] Buffered view flush failed, will retry: {}", replicaId, e.getMessage());
+            return;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        // Jedan push po videu po tick-u (van lock-a); ReplicaSyncService ih dalje spaja u batch
+        if (pushEnabled) {
+            for (Long videoId : deltas.keySet()) {
+                if (stripes.containsKey(videoId)) {
+                    syncService.pushUpdateToOtherReplicas(videoId);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        LOG.info("[{}] Shutting down - flushing buffered CRDT views", replicaId);
+        flush();
+    }
+
+    /**
+     * Brojač za jedan video. flushed menja samo nit koja drži write lock.
+     */
+    private static class Stripe {
+        private final LongAdder views = new LongAdder();
+        private volatile long flushed;
+
+        long pendingDelta() {
+            return views.sum() - flushed;
+        }
+    }
+}
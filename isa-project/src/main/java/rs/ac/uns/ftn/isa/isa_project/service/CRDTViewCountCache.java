@@ -0,0 +1,119 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materijalizovani merged G-Counter po videu za čitanje view count-a.
+ *
+ * GET /api/videos i /api/videos/{id} čitaju odavde umesto da pri svakom
+ * zahtevu pitaju druge replike i čitaju sve view_counts_* tabele.
+ *
+ * Svežina:
+ * - push i anti-entropy merge-uju pristigla stanja u keš (MAX po replici),
+ * - flush lokalnog bafera briše zapis (sledeće čitanje ga ponovo učitava),
+ * - zapis stariji od max-staleness-ms se ponovo učitava iz baze.
+ */
+@Component
+public class CRDTViewCountCache {
+
+    @Value("${crdt.view-count.read-cache.max-staleness-ms:5000}")
+    private long maxStalenessMs;
+
+    @Value("${crdt.view-count.read-cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void initMetrics() {
+        hits = Counter.builder("crdt.read-cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("crdt.read-cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Vraća keširane brojače po replici ili null ako zapis ne postoji ili je prestar.
+     */
+    public Map<String, Long> get(Long videoId) {
+        Entry entry = entries.get(videoId);
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt > maxStalenessMs) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.counts;
+    }
+
+    /**
+     * Upisuje stanje učitano iz baze (sve tabele replika).
+     */
+    public void put(Long videoId, Map<String, Long> counts) {
+        if (entries.size() >= maxEntries && !entries.containsKey(videoId)) {
+            evictStale();
+        }
+        entries.put(videoId, new Entry(Map.copyOf(counts), System.currentTimeMillis()));
+    }
+
+    /**
+     * Merge-uje stanje pristiglo od druge replike u postojeći zapis (MAX po replici).
+     * Ako je u toku transakcija, merge se radi tek posle commit-a.
+     */
+    public void merge(Long videoId, Map<String, Long> counts) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mergeNow(videoId, counts);
+                }
+            });
+        } else {
+            mergeNow(videoId, counts);
+        }
+    }
+
+    public void invalidate(Long videoId) {
+        entries.remove(videoId);
+    }
+
+    private void mergeNow(Long videoId, Map<String, Long> counts) {
+        entries.computeIfPresent(videoId, (id, entry) -> {
+            Map<String, Long> merged = new HashMap<>(entry.counts);
+            counts.forEach((replica, count) -> merged.merge(replica, count, Math::max));
+            return new Entry(Map.copyOf(merged), entry.loadedAt);
+        });
+    }
+
+    /**
+     * Pri popunjenom kešu prvo izbacuje prestare zapise, a ako ih nema - sve.
+     */
+    private void evictStale() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now - entry.loadedAt > maxStalenessMs);
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+    }
+
+    private record Entry(Map<String, Long> counts, long loadedAt) {
+    }
+}
@@ -5,12 +5,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import rs.ac.uns.ftn.isa.isa_project.crdt.GCounter;
 import rs.ac.uns.ftn.isa.isa_project.model.ViewCount;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
 import rs.ac.uns.ftn.isa.isa_project.repository.ViewCountRepository;
 
 import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,15 +36,29 @@ public class CRDTViewCountService {
     @Autowired
     private ReplicaSyncService syncService;
 
+    @Autowired
+    private CRDTViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private CRDTViewCountCache viewCountCache;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Value("${crdt.replica.id}")
     private String replicaId;
 
-    @Value("${crdt.replica.urls}")
-    private List<String> replicaUrls;
-
     @Value("${crdt.sync.push-enabled:true}")
     private boolean pushEnabled;
 
+    @Value("${crdt.view-count.buffered:true}")
+    private boolean bufferedEnabled;
+
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Automatski kreira tabelu za trenutnu repliku prilikom startup-a.
      */
@@ -47,20 +66,50 @@ public class CRDTViewCountService {
     public void init() {
         LOG.info("[{}] Initializing CRDT View Count Service", replicaId);
 
-        // Kreiraj tabelu za ovu repliku ako ne postoji
+        // Kreiraj tabelu (ili particiju unified tabele) za ovu repliku ako ne postoji
         viewCountRepository.createTableIfNotExists(replicaId);
 
+        // Prebaci stare view_counts_<replika> tabele u unified tabelu (no-op u per-replica modu)
+        int migrated = viewCountRepository.migrateLegacyTables();
+        if (migrated > 0) {
+            LOG.info("[{}] Migrated {} view count rows into unified table", replicaId, migrated);
+        }
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
         LOG.info("[{}] Table created/verified for replica", replicaId);
     }
 
     /**
      * Inkrementuje view count NA LOKALNOJ TABELI te replike.
      *
+     * U buffered modu inkrement ide u CRDTViewCountBuffer (bez baze),
+     * a bafer na svaki tick radi batch upsert i jedan push po videu.
+     */
+    public void incrementViewCount(Long videoId) {
+        if (bufferedEnabled) {
+            // Postojanje videa se proverava samo pri prvom pregledu
+            if (!viewCountBuffer.isTracked(videoId) && !videoRepository.existsById(videoId)) {
+                throw new RuntimeException("Video not found with id: " + videoId);
+            }
+            viewCountBuffer.increment(videoId);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> incrementViewCountImmediately(videoId));
+        viewCountCache.invalidate(videoId);
+
+        // Push update drugim replikama
+        if (pushEnabled) {
+            syncService.pushUpdateToOtherReplicas(videoId);
+        }
+    }
+
+    /**
      * NEMA if-else logike!
      * Dinamički koristi tabelu zasnovanu na replicaId.
      */
-    @Transactional
-    public void incrementViewCount(Long videoId) {
+    private void incrementViewCountImmediately(Long videoId) {
         LOG.debug("[{}] Incrementing view count for video {}", replicaId, videoId);
 
         // 1. Pronađi ili kreiraj zapis u tabeli TRENUTNE replike
@@ -77,65 +126,114 @@ public class CRDTViewCountService {
 
         LOG.debug("[{}] View count incremented for video {}: new count = {}",
                 replicaId, videoId, viewCount.getCount());
+    }
 
-        // 3. Push update drugim replikama
-        if (pushEnabled) {
-            syncService.pushUpdateToOtherReplicas(videoId);
-        }
+    /**
+     * Vraća UKUPAN broj pregleda koristeći G-Counter MERGE (eventual consistency).
+     *
+     * Čita materijalizovani merged G-Counter iz CRDTViewCountCache; druge replike
+     * se ne pitaju, a baza se čita samo kad zapis ne postoji ili je prestar.
+     */
+    public long getTotalViewCount(Long videoId) {
+        return getTotalViewCount(videoId, false);
     }
 
     /**
      * Vraća UKUPAN broj pregleda koristeći G-Counter MERGE.
      *
-     * Čita iz SVIHtabela (view_counts_replica_1, view_counts_replica_2, ...)
-     * i merge-uje ih koristeći CRDT princip.
+     * strong = true zadržava staro ponašanje: pull od svih replika, pa čitanje
+     * brojača SVIH replika (unified view_counts ili view_counts_<replika> tabele).
      */
-    @Transactional(readOnly = true)
-    public long getTotalViewCount(Long videoId) {
-        LOG.debug("[{}] Getting total view count for video {}", replicaId, videoId);
+    public long getTotalViewCount(Long videoId, boolean strong) {
+        return getTotalViewCounts(List.of(videoId), strong).get(videoId);
+    }
 
-        // 1. Pull sinhronizacija
-        syncService.pullAndMergeFromOtherReplicas(videoId);
+    /**
+     * Vraća UKUPAN broj pregleda za više video-a odjednom (lista videa).
+     *
+     * Video-i kojih nema u kešu se učitavaju iz SVIH tabela jednim upitom,
+     * a lokalni pregledi koji su još u baferu se dodaju pod istim read lock-om
+     * kao čitanje baze (monotono čitanje).
+     */
+    public Map<Long, Long> getTotalViewCounts(Collection<Long> videoIds, boolean strong) {
+        return readTotalViewCounts(videoIds, strong).getCounts();
+    }
 
-        // 2. Dobavi listu svih poznatih replika
-        List<String> allReplicaIds = getAllKnownReplicaIds();
+    /**
+     * Isto kao getTotalViewCounts, uz informaciju da li je strong čitanje potpuno.
+     *
+     * strong = true radi jedan batch pull po replici za sve video-e, sa zajedničkim rokom;
+     * ako neka replika ne odgovori, brojači su vraćeni bez njenog stanja i stale = true.
+     */
+    public ViewCountTotals readTotalViewCounts(Collection<Long> videoIds, boolean strong) {
+        LOG.debug("[{}] Getting total view counts for {} videos (strong={})", replicaId, videoIds.size(), strong);
 
-        // 3. Učitaj SVE ViewCount zapise za ovaj video (iz svih tabela)
-        List<ViewCount> allReplicas = viewCountRepository.findAllByVideoId(videoId, allReplicaIds);
+        // 1. Pull sinhronizacija samo na eksplicitan zahtev
+        boolean stale = strong && !syncService.pullAndMergeFromOtherReplicas(videoIds);
 
-        LOG.debug("[{}] Found {} replica entries for video {}", replicaId, allReplicas.size(), videoId);
+        Map<Long, Long> counts = viewCountBuffer.readLocked(() -> {
+            // 2. Merged stanje iz keša, ostatak iz SVIH tabela jednim upitom
+            Map<Long, Map<String, Long>> merged = new HashMap<>();
+            List<Long> missing = new ArrayList<>();
+            for (Long videoId : videoIds) {
+                Map<String, Long> cached = strong ? null : viewCountCache.get(videoId);
+                if (cached == null) {
+                    missing.add(videoId);
+                } else {
+                    merged.put(videoId, cached);
+                }
+            }
 
-        // 4. Kreiraj G-Counter iz svih replika
-        Map<String, Long> counts = new HashMap<>();
-        for (ViewCount vc : allReplicas) {
-            counts.put(vc.getReplicaId(), vc.getCount());
-            LOG.trace("[{}] Replica {}: {} views", replicaId, vc.getReplicaId(), vc.getCount());
-        }
+            if (!missing.isEmpty()) {
+                Map<Long, Map<String, Long>> loaded = loadMergedCounts(missing);
+                for (Long videoId : missing) {
+                    Map<String, Long> counts = loaded.getOrDefault(videoId, Map.of());
+                    viewCountCache.put(videoId, counts);
+                    merged.put(videoId, counts);
+                }
+            }
 
-        GCounter counter = new GCounter(counts);
-        long total = counter.getValue();
+            // 3. G-Counter po videu + lokalni pregledi iz bafera
+            Map<Long, Long> totals = new HashMap<>();
+            merged.forEach((videoId, counts) -> {
+                GCounter counter = new GCounter(counts);
+                counter.increment(replicaId, viewCountBuffer.getPendingViews(videoId));
 
-        LOG.info("[{}] Total view count for video {}: {} (from {} replicas)",
-                replicaId, videoId, total, allReplicas.size());
+                long total = counter.getValue();
+                totals.put(videoId, total);
 
-        return total;
+                LOG.debug("[{}] Total view count for video {}: {} (from {} replicas)",
+                        replicaId, videoId, total, counter.getReplicaCount());
+            });
+            return totals;
+        });
+        return new ViewCountTotals(counts, stale);
+    }
+
+    /**
+     * Učitava SVE ViewCount zapise za video-e (iz svih tabela, jedan upit).
+     */
+    private Map<Long, Map<String, Long>> loadMergedCounts(Collection<Long> videoIds) {
+        Map<Long, Map<String, Long>> counts = new HashMap<>();
+        for (ViewCount vc : viewCountRepository.findAllByVideoIds(videoIds)) {
+            counts.computeIfAbsent(vc.getVideoId(), id -> new HashMap<>()).put(vc.getReplicaId(), vc.getCount());
+            LOG.trace("[{}] Video {} replica {}: {} views", replicaId, vc.getVideoId(), vc.getReplicaId(), vc.getCount());
+        }
+        return counts;
     }
 
     /**
      * Vraća listu svih poznatih replika u sistemu.
-     * Ovo uključuje trenutnu repliku + sve replike iz konfiguracije.
+     * Ovo uključuje trenutnu repliku + sve replike koje imaju tabelu u bazi
+     * (registar iz kataloga u ViewCountRepository).
      */
-    private List<String> getAllKnownReplicaIds() {
-        List<String> allIds = new java.util.ArrayList<>();
+    public List<String> getAllKnownReplicaIds() {
+        List<String> allIds = new ArrayList<>();
 
         // Dodaj trenutnu repliku
         allIds.add(replicaId);
 
-        // Ekstraktuj replica ID-ove iz URL-ova
-        // Npr. "http://backend1:8080" -> pretpostavljamo "replica-1"
-        // ALI, bolje je imati eksplicitnu konfiguraciju
-        for (int i = 1; i <= replicaUrls.size() + 1; i++) {
-            String id = "replica-" + i;
+        for (String id : viewCountRepository.getReplicaIds()) {
             if (!allIds.contains(id)) {
                 allIds.add(id);
             }
@@ -145,13 +243,43 @@ public class CRDTViewCountService {
     }
 
     /**
-     * Vraća view count za TRENUTNU repliku (bez merging-a).
+     * Vraća view count za TRENUTNU repliku (bez merging-a),
+     * uključujući preglede koji su još u baferu.
      */
     @Transactional(readOnly = true)
     public long getLocalViewCount(Long videoId) {
-        return viewCountRepository
+        return viewCountBuffer.readWithPending(videoId, () -> viewCountRepository
                 .findByVideoIdAndReplicaId(videoId, replicaId)
                 .map(ViewCount::getCount)
-                .orElse(0L);
+                .orElse(0L));
+    }
+
+    /**
+     * Vraća broj lokalnih pregleda koji još nisu upisani u tabelu replike.
+     */
+    public long getPendingViewCount(Long videoId) {
+        return viewCountBuffer.getPendingViews(videoId);
+    }
+
+    /**
+     * Brojači pregleda za listu videa. stale = true znači da strong pull nije stigao
+     * do svih replika, pa brojači mogu da kasne za ostatkom klastera.
+     */
+    public static class ViewCountTotals {
+        private final Map<Long, Long> counts;
+        private final boolean stale;
+
+        ViewCountTotals(Map<Long, Long> counts, boolean stale) {
+            this.counts = counts;
+            this.stale = stale;
+        }
+
+        public Map<Long, Long> getCounts() {
+            return counts;
+        }
+
+        public boolean isStale() {
+            return stale;
+        }
     }
-}
\ No newline at end of file
+}
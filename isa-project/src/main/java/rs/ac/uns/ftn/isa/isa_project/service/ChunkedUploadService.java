@@ -0,0 +1,322 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import rs.ac.uns.ftn.isa.isa_project.dto.UploadInitRequest;
+import rs.ac.uns.ftn.isa.isa_project.model.UploadSession;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UploadSessionRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Chunked (resumable) upload videa: init -> PUT chunk N -> commit.
+ *
+ * - Chunk N se piše pozicionim FileChannel.write na offset N * chunkSize u storage/uploads/<id>.part,
+ *   pa redosled i ponavljanje chunk-ova nisu bitni. Chunk se beleži u bazi tek posle force(),
+ *   tako da posle restarta klijenta ili servera GET sesije vraća tačno šta još fali.
+ * - Commit šalje fajl u storage van transakcije, pa kratkom transakcijom (pod zaključanom sesijom)
+ *   kreira Video i briše sesiju; ako transakcija ne uspe, fajl se vraća i commit može da se ponovi.
+ * - Sesije bez aktivnosti duže od video.upload.session-ttl-ms briše collectGarbage.
+ * - .part je na lokalnom disku replike koja je pokrenula upload. Id sesije počinje id-em te replike
+ *   (nginx po njemu rutira chunk-ove i commit), a chunk ili commit koji ipak stigne na drugu repliku
+ *   se odbija (IllegalStateException) umesto da se piše u novi, prazan .part.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${video.upload.max-bytes:209715200}")
+    private long maxUploadBytes;
+
+    @Value("${video.upload.chunk-size:8388608}")
+    private int chunkSize;
+
+    @Value("${replica.id:local}")
+    private String replicaId;
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    public UploadSession start(UploadInitRequest request, User owner) throws IOException {
+        if (request.getTotalSize() > maxUploadBytes) {
+            throw new MaxUploadSizeExceededException(maxUploadBytes);
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(replicaId + "." + UUID.randomUUID());
+        session.setOwnerId(owner.getId());
+        session.setOwnerReplica(replicaId);
+        session.setTitle(request.getTitle());
+        session.setDescription(request.getDescription());
+        session.setTags(request.getTags());
+        session.setLatitude(request.getLatitude());
+        session.setLongitude(request.getLongitude());
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setChecksum(request.getChecksum() != null ? request.getChecksum().toLowerCase() : null);
+
+        session.setThumbnailPath(fileStorageService.claimStagedFile(request.getThumbnailId(), "thumbs"));
+
+        UploadSession saved;
+        try {
+            // Prazan .part fajl - chunk-ovi se upisuju na svoje pozicije
+            try (FileChannel ignored = FileChannel.open(fileStorageService.uploadPartPath(session.getId()),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                // samo kreiranje
+            }
+            saved = uploadSessionRepository.save(session);
+        } catch (IOException | RuntimeException e) {
+            fileStorageService.unclaimStagedFile(session.getThumbnailPath(), request.getThumbnailId(), "thumbs");
+            throw e;
+        }
+        LOG.info("Upload {} started: {} bytes in {} chunks", saved.getId(), saved.getTotalSize(), saved.getChunkCount());
+        return saved;
+    }
+
+    public UploadSession getSession(String uploadId, User owner) {
+        UploadSession session = uploadSessionRepository.findWithChunksById(uploadId)
+                .orElseThrow(() -> new NoSuchElementException("Upload nije pronađen"));
+        if (!session.getOwnerId().equals(owner.getId())) {
+            throw new NoSuchElementException("Upload nije pronađen");
+        }
+        return session;
+    }
+
+    /**
+     * Upisuje chunk index. Telo mora imati tačno očekivanu dužinu (poslednji chunk je kraći).
+     */
+    public void writeChunk(String uploadId, int index, InputStream body, long contentLength, User owner) throws IOException {
+        UploadSession session = getSession(uploadId, owner);
+        requireLocalPart(session);
+
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk " + index + " je van opsega 0.." + (session.getChunkCount() - 1));
+        }
+        long expected = session.getChunkLength(index);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new IllegalArgumentException("Chunk " + index + " mora imati " + expected + " bajtova");
+        }
+
+        long written;
+        try {
+            written = fileStorageService.writeAt(fileStorageService.uploadPartPath(uploadId),
+                    session.getChunkOffset(index), body, expected);
+        } catch (NoSuchFileException e) {
+            // Sesija je i dalje u bazi, ali .part je nestao (ručno brisanje, novi volume)
+            throw new IllegalStateException("Fajl upload-a " + uploadId + " ne postoji na replici " + replicaId);
+        }
+        if (written != expected) {
+            throw new IllegalArgumentException("Chunk " + index + " je nepotpun (" + written + "/" + expected + ")");
+        }
+
+        uploadSessionRepository.markChunkReceived(uploadId, index);
+        uploadSessionRepository.touch(uploadId, LocalDateTime.now());
+    }
+
+    /**
+     * Sklapa upload u Video.
+     *
+     * .part se prvo atomično preimenuje u .committing - samo jedan od istovremenih commit-a ga dobija.
+     * Fajl se zatim šalje u storage (sa S3 backend-om multipart upload) BEZ transakcije i lock-a,
+     * pa spor upload ne drži konekciju iz pool-a. Tek onda kratka transakcija pod zaključanom sesijom
+     * upisuje Video i briše sesiju; ako ona ne uspe, objekat se vraća u .part (i briše iz storage-a)
+     * i commit može da se ponovi.
+     */
+    public Video commit(String uploadId, User author) throws IOException {
+        UploadSession session = getSession(uploadId, author);
+        requireLocalPart(session);
+
+        List<Integer> missing = session.getMissingChunks();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Nedostaju chunk-ovi: " + missing);
+        }
+
+        Path part = fileStorageService.uploadPartPath(uploadId);
+        Path committing = part.resolveSibling(uploadId + ".committing");
+        try {
+            Files.move(part, committing, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("Upload " + uploadId + " se već završava");
+        }
+        // GC ne dira sesiju dok traje slanje u storage
+        uploadSessionRepository.touch(uploadId, LocalDateTime.now());
+
+        String stored = null;
+        Video committed;
+        try {
+            String checksum = fileStorageService.sha256(committing);
+            if (session.getChecksum() != null && !session.getChecksum().equals(checksum)) {
+                throw new IllegalArgumentException("Checksum videa ne odgovara (primljeno " + checksum + ")");
+            }
+
+            stored = fileStorageService.moveToStorage(committing, "videos", ".mp4", checksum);
+            String videoPath = stored;
+
+            committed = tx.execute(status -> {
+                if (uploadSessionRepository.findLockedById(uploadId).isEmpty()) {
+                    throw new IllegalStateException("Upload je već završen");
+                }
+
+                Video video = new Video();
+                video.setTitle(session.getTitle());
+                video.setDescription(session.getDescription());
+                video.setTags(parseTags(session.getTags()));
+                video.setLatitude(session.getLatitude());
+                video.setLongitude(session.getLongitude());
+                video.setAuthor(author);
+                video.setVideoPath(videoPath);
+                video.setVideoChecksum(checksum);
+                video.setThumbnailPath(session.getThumbnailPath());
+
+                Video saved = videoRepository.save(video);
+                uploadSessionRepository.deleteById(uploadId);
+                return saved;
+            });
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Commit of upload {} failed, restoring files: {}", uploadId, e.getMessage());
+            restore(stored, committing, part);
+            throw e;
+        }
+        thumbnailService.scheduleVariants(committed.getThumbnailPath());
+        return committed;
+    }
+
+    public void abort(String uploadId, User owner) {
+        getSession(uploadId, owner);
+        deleteSession(uploadId, null);
+    }
+
+    /**
+     * Briše sesije bez aktivnosti duže od ttl i .part fajlove bez sesije.
+     */
+    public int collectGarbage(Duration ttl) throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        int collected = 0;
+
+        for (String uploadId : uploadSessionRepository.findIdsUpdatedBefore(cutoff)) {
+            if (deleteSession(uploadId, cutoff)) {
+                collected++;
+            }
+        }
+
+        // .part bez sesije: pad između kreiranja fajla i upisa sesije, ili ručno obrisana sesija
+        Instant fileCutoff = Instant.now().minus(ttl);
+        for (Path part : fileStorageService.listUploadParts()) {
+            String uploadId = part.getFileName().toString().replace(".part", "");
+            if (Files.getLastModifiedTime(part).toInstant().isBefore(fileCutoff)
+                    && !uploadSessionRepository.existsById(uploadId)
+                    && fileStorageService.deleteFile(part.toString())) {
+                collected++;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Briše sesiju i njen .part fajl. Sa cutoff-om (GC) samo ako sesija i dalje nije aktivna.
+     */
+    private boolean deleteSession(String uploadId, LocalDateTime cutoff) {
+        String thumbnailPath = tx.execute(status -> uploadSessionRepository.findLockedById(uploadId)
+                .filter(session -> cutoff == null || session.getUpdatedAt().isBefore(cutoff))
+                .map(session -> {
+                    uploadSessionRepository.delete(session);
+                    return session.getThumbnailPath();
+                })
+                .orElse(null));
+
+        if (thumbnailPath != null) {
+            fileStorageService.deleteFile(thumbnailPath);
+            try {
+                Path part = fileStorageService.uploadPartPath(uploadId);
+                fileStorageService.deleteFile(part.toString());
+                // Ostatak commit-a prekinutog padom servera
+                Files.deleteIfExists(part.resolveSibling(uploadId + ".committing"));
+            } catch (IOException e) {
+                LOG.warn("Could not delete part file of upload {}: {}", uploadId, e.getMessage());
+            }
+            LOG.info("Upload session {} deleted", uploadId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Chunk-ovi i commit rade samo na replici na čijem disku je .part.
+     */
+    private void requireLocalPart(UploadSession session) {
+        if (!replicaId.equals(session.getOwnerReplica())) {
+            LOG.warn("Upload {} owned by replica {} reached replica {}", session.getId(),
+                    session.getOwnerReplica(), replicaId);
+            throw new IllegalStateException("Upload " + session.getId() + " se nalazi na replici "
+                    + session.getOwnerReplica());
+        }
+    }
+
+    /**
+     * Vraća fajl commit-a u .part: objekat iz storage-a (ako je već poslat) nazad u .committing,
+     * pa .committing u .part.
+     */
+    private void restore(String videoPath, Path committing, Path part) {
+        try {
+            if (videoPath != null) {
+                fileStorageService.restoreToFile(videoPath, committing);
+            }
+            Files.move(committing, part, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Could not restore upload file {}: {}", part, e.getMessage());
+        }
+    }
+
+    private static Set<String> parseTags(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(Arrays.asList(tags.split(",")));
+    }
+}
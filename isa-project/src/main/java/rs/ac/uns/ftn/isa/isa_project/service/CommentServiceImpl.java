@@ -14,6 +14,7 @@ import rs.ac.uns.ftn.isa.isa_project.model.User;
 import rs.ac.uns.ftn.isa.isa_project.model.Video;
 import rs.ac.uns.ftn.isa.isa_project.repository.CommentRepository;
 import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoStatsRepository;
 
 import java.time.LocalDateTime;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,6 +31,9 @@ public class CommentServiceImpl implements CommentService {
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private VideoStatsRepository videoStatsRepository;
+
     private final ConcurrentHashMap<Long, ReentrantLock> userLocks = new ConcurrentHashMap<>();
 
     @Override
@@ -67,6 +71,7 @@ public class CommentServiceImpl implements CommentService {
 
             Comment comment = new Comment(content, video, user);
             comment = commentRepository.save(comment);
+            videoStatsRepository.addComments(videoId, 1);
 
             System.out.println("[CACHE] EVICTED - cache cleared after adding comment");
             LOG.info("User {} added comment to video {}", user.getUsername(), videoId);
@@ -93,12 +98,14 @@ public class CommentServiceImpl implements CommentService {
         }
 
         commentRepository.delete(comment);
+        videoStatsRepository.addComments(comment.getVideo().getId(), -1);
         LOG.info("Comment {} deleted by user {}", commentId, user.getUsername());
     }
 
     @Override
     public long getCommentCount(Long videoId) {
-        return commentRepository.countByVideoId(videoId);
+        // Denormalizovan brojač (O(1)), ne COUNT(*) nad comments
+        return videoStatsRepository.getCommentCount(videoId);
     }
 
     @Override
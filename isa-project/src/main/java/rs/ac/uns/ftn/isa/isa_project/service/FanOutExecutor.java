@@ -0,0 +1,129 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Paralelno izvršavanje nezavisnih blokirajućih poziva (HTTP ka replikama, upiti za listu videa).
+ *
+ * fanout.virtual-threads.enabled=true: svaki poziv ide u svoju virtuelnu nit, a svi
+ * zajedno imaju jedan rok (fanout.deadline-ms). Pozivi koji ne stignu do roka se
+ * prekidaju i rezultat je delimičan (isPartial) - pozivalac vraća ono što ima.
+ *
+ * Podrazumevano (false) se pozivi izvršavaju redom u pozivajućoj niti, bez roka,
+ * i greške se propagiraju kao i ranije.
+ */
+@Component
+public class FanOutExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FanOutExecutor.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${fanout.virtual-threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${fanout.deadline-ms:1000}")
+    private long deadlineMs;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (virtualThreadsEnabled) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Izvršava sve pozive i vraća rezultate po ključu.
+     * Ključevi poziva koji nisu završeni do roka (ili su pukli) nedostaju u rezultatu.
+     */
+    public <K, V> Result<K, V> invokeAll(Map<K, Callable<V>> tasks) throws Exception {
+        if (executor == null) {
+            Map<K, V> values = new HashMap<>();
+            for (Map.Entry<K, Callable<V>> task : tasks.entrySet()) {
+                values.put(task.getKey(), task.getValue().call());
+            }
+            return new Result<>(values, false);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+
+        Map<K, Future<V>> futures = new LinkedHashMap<>();
+        for (Map.Entry<K, Callable<V>> task : tasks.entrySet()) {
+            futures.put(task.getKey(), executor.submit(task.getValue()));
+        }
+
+        Map<K, V> values = new HashMap<>();
+        boolean partial = false;
+        for (Map.Entry<K, Future<V>> entry : futures.entrySet()) {
+            Future<V> future = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                values.put(entry.getKey(), future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                partial = true;
+            } catch (ExecutionException e) {
+                LOG.debug("Fan-out call {} failed: {}", entry.getKey(), e.getCause().getMessage());
+                partial = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                partial = true;
+                break;
+            }
+        }
+
+        meterRegistry.counter("fanout.calls", "outcome", partial ? "partial" : "complete").increment();
+        return new Result<>(values, partial);
+    }
+
+    /**
+     * Rezultati fan-out-a. partial = true znači da bar jedan poziv nije završen do roka
+     * ili je pukao, pa su podaci nepotpuni (stale).
+     */
+    public static class Result<K, V> {
+        private final Map<K, V> values;
+        private final boolean partial;
+
+        Result(Map<K, V> values, boolean partial) {
+            this.values = values;
+            this.partial = partial;
+        }
+
+        public Map<K, V> getValues() {
+            return values;
+        }
+
+        public boolean isPartial() {
+            return partial;
+        }
+    }
+}
@@ -1,40 +1,144 @@
 package rs.ac.uns.ftn.isa.isa_project.service;
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import rs.ac.uns.ftn.isa.isa_project.repository.StorageBlobRepository;
+import rs.ac.uns.ftn.isa.isa_project.storage.LocalStorageBackend;
+import rs.ac.uns.ftn.isa.isa_project.storage.StorageBackend;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class FileStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
-    private final String STORAGE_DIR = "storage/";
+    private static final String STAGED_DIR = "staged";
+    private static final String UPLOADS_DIR = "uploads";
+    private static final Pattern STAGED_ID = Pattern.compile("[0-9a-f\\-]{36}\\.[A-Za-z0-9]{1,8}");
+    // Content-addressed blob: <subfolder>/<prva 2 hex cifre>/<sha256>.<ext>
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,8})?");
+
+    @Autowired
+    private StorageBlobRepository storageBlobRepository;
+
+    /**
+     * Lokalni disk - radni prostor za upload-e (.part, staged, chunk-ovi) i podrazumevani backend.
+     */
+    @Autowired
+    private LocalStorageBackend localStorage;
+
+    @Autowired
+    private List<StorageBackend> backends;
+
+    /**
+     * Gde idu gotovi fajlovi: local (storage/ na disku replike) ili s3 (zajednički bucket).
+     */
+    @Value("${storage.backend:local}")
+    private String backendName;
+
+    private StorageBackend storage;
+
+    /**
+     * true: fajlovi se čuvaju pod SHA-256 sadržaja, isti sadržaj samo jednom (sa brojačem referenci).
+     * false: svaki fajl dobija novo UUID ime (staro ponašanje).
+     */
+    @Value("${storage.content-addressed:false}")
+    private boolean contentAddressed;
+
+    /**
+     * Veličina bafera za streaming upload - toliko memorije zauzima jedan upload, bez obzira na veličinu fajla.
+     */
+    @Value("${video.upload.buffer-size:65536}")
+    private int uploadBufferSize;
+
+    @PostConstruct
+    public void init() {
+        storage = backends.stream()
+                .filter(backend -> backend.getName().equals(backendName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Nepoznat storage.backend: " + backendName));
+        logger.info("Storage backend: {}", storage.getName());
+
+        if (contentAddressed) {
+            storageBlobRepository.createTableIfNotExists();
+            logger.info("Content-addressed storage enabled");
+        }
+    }
 
     /**
      * Sinhronizovano čuvanje fajla
      */
     public String saveFile(MultipartFile file, String subfolder) throws IOException {
+        if (contentAddressed) {
+            // Hash se računa dok se fajl kopira, pa se odmah zna da li isti sadržaj već postoji
+            try (InputStream in = file.getInputStream()) {
+                return saveStream(in, subfolder, getExtension(file.getOriginalFilename()),
+                        Long.MAX_VALUE, System.nanoTime() + TimeUnit.DAYS.toNanos(1)).getPath();
+            } catch (TimeoutException e) {
+                throw new IOException(e);
+            }
+        }
+        Path local = Paths.get(saveWithUniqueName(file, subfolder));
+        return storage.put(subfolder + "/" + local.getFileName(), local);
+    }
+
+    /**
+     * Backend kome pripada sačuvana lokacija (stari redovi mogu biti na drugom backend-u od aktivnog).
+     */
+    public StorageBackend backendFor(String location) {
+        for (StorageBackend backend : backends) {
+            if (backend != localStorage && backend.owns(location)) {
+                return backend;
+            }
+        }
+        if (localStorage.owns(location)) {
+            return localStorage;
+        }
+        throw new IllegalArgumentException("Nepoznata lokacija fajla: " + location);
+    }
+
+    private String saveWithUniqueName(MultipartFile file, String subfolder) throws IOException {
         System.out.println("=== SAVE FILE START ===");
         System.out.println("Original filename: " + file.getOriginalFilename());
         System.out.println("File size: " + file.getSize());
         System.out.println("Content type: " + file.getContentType());
 
-        String projectPath = System.getProperty("user.dir");
-        System.out.println("Project path: " + projectPath);
-
-        Path storageDirectory = Paths.get(projectPath, STORAGE_DIR, subfolder);
+        Path storageDirectory = localStorage.resolve(subfolder);
         System.out.println("Storage directory: " + storageDirectory);
 
         Files.createDirectories(storageDirectory);
@@ -85,22 +189,331 @@ public class FileStorageService {
     }
 
     /**
-     * Briše fajl sa diska
+     * Streaming čuvanje: telo zahteva ide kroz jedan bafer direktno u storage/<subfolder>,
+     * bez multipart temp fajla. SHA-256 se računa usput, a limit veličine i rok se proveravaju
+     * posle svakog bafera - prekoračenje prekida upload bez čitanja ostatka tela.
+     *
+     * Fajl se piše kao .part i tek na kraju atomski preimenuje (u content-addressed modu pod
+     * izračunati SHA-256), pa se nedovršen upload nikad ne servira.
+     */
+    public StoredFile saveStream(InputStream body, String subfolder, String extension,
+                                 long maxBytes, long deadlineNanos) throws IOException, TimeoutException {
+        Path storageDirectory = localStorage.resolve(subfolder);
+        Files.createDirectories(storageDirectory);
+
+        Path partialPath = storageDirectory.resolve(UUID.randomUUID() + extension + ".part");
+
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(uploadBufferSize);
+        long size = 0;
+        boolean completed = false;
+
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(partialPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) >= 0) {
+                if (System.nanoTime() - deadlineNanos > 0) {
+                    throw new TimeoutException("Upload exceeded deadline after " + size + " bytes");
+                }
+                if (buffer.position() < buffer.capacity()) {
+                    continue;
+                }
+                size += drain(buffer, digest, out, size, maxBytes);
+            }
+            size += drain(buffer, digest, out, size, maxBytes);
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(partialPath);
+            }
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        String storedPath = publish(partialPath, subfolder, extension, sha256);
+        logger.info("Fajl sačuvan (stream): {} ({} bytes)", storedPath, size);
+        return new StoredFile(storedPath, size, sha256);
+    }
+
+    /**
+     * Privremeno čuva mali fajl (thumbnail za streaming upload) u storage/<subfolder>/staged.
+     * Vraća ID pod kojim se kasnije preuzima sa claimStagedFile.
+     */
+    public String stageFile(MultipartFile file, String subfolder) throws IOException {
+        Path staged = Paths.get(saveWithUniqueName(file, subfolder + "/" + STAGED_DIR));
+        return staged.getFileName().toString();
+    }
+
+    /**
+     * Premešta pripremljen fajl u storage/<subfolder> i vraća njegovu konačnu putanju.
+     */
+    public String claimStagedFile(String stagedId, String subfolder) throws IOException {
+        if (stagedId == null || !STAGED_ID.matcher(stagedId).matches()) {
+            throw new IllegalArgumentException("Neispravan ID pripremljenog fajla");
+        }
+        Path stagedPath = localStorage.resolve(subfolder).resolve(STAGED_DIR).resolve(stagedId);
+        if (!Files.exists(stagedPath)) {
+            throw new IllegalArgumentException("Pripremljen fajl nije pronađen: " + stagedId);
+        }
+        try {
+            return publish(stagedPath, subfolder, stagedId.substring(stagedId.lastIndexOf('.')), null);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Pripremljen fajl nije pronađen: " + stagedId);
+        }
+    }
+
+    /**
+     * Briše pripremljene fajlove starije od maxAge (nikad preuzeti upload-i).
+     */
+    public int deleteStagedOlderThan(String subfolder, Duration maxAge) throws IOException {
+        Path stagedDirectory = localStorage.resolve(subfolder).resolve(STAGED_DIR);
+        if (!Files.isDirectory(stagedDirectory)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(maxAge);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stagedDirectory)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && deleteFile(file.toString())) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Vraća ranije pripremljen fajl nazad u staged pod istim ID-em (poništavanje claimStagedFile).
+     */
+    public void unclaimStagedFile(String claimedPath, String stagedId, String subfolder) throws IOException {
+        Path stagedDirectory = localStorage.resolve(subfolder).resolve(STAGED_DIR);
+        Files.createDirectories(stagedDirectory);
+        restoreToFile(claimedPath, stagedDirectory.resolve(stagedId));
+    }
+
+    /**
+     * Vraća sačuvan fajl na privremenu lokaciju (poništavanje moveToStorage / claimStagedFile).
+     * Deljeni content-addressed blob se ne pomera - kopira se i skida se referenca.
+     */
+    public void restoreToFile(String storedPath, Path target) throws IOException {
+        StorageBackend backend = backendFor(storedPath);
+        Path stored = backend.localPath(storedPath);
+        if (stored != null && blobDigest(storedPath) == null) {
+            Files.move(stored, target, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        backend.download(storedPath, target);
+        deleteFile(storedPath);
+    }
+
+    /**
+     * Fajl u koji se sklapa chunked upload (storage/uploads/<uploadId>.part).
+     */
+    public Path uploadPartPath(String uploadId) throws IOException {
+        return uploadsDirectory().resolve(uploadId + ".part");
+    }
+
+    /**
+     * Svi .part fajlovi chunked upload-a, za proveru siročića.
+     */
+    public List<Path> listUploadParts() throws IOException {
+        List<Path> parts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadsDirectory(), "*.part")) {
+            files.forEach(parts::add);
+        }
+        return parts;
+    }
+
+    /**
+     * Upisuje telo zahteva u fajl od pozicije offset (pozicioni FileChannel.write, bez seek-a
+     * i bez deljenja pozicije - više chunk-ova istog upload-a može da se piše paralelno).
+     * Podaci su na disku (force) pre nego što metoda vrati, pa chunk preživljava restart servera.
+     * Fajl mora već postojati - ako ga nema (npr. zahtev je stigao na drugu repliku),
+     * baca se NoSuchFileException umesto da se napravi prazan sparse fajl.
+     *
+     * @return broj upisanih bajtova; čitanje se prekida čim se pređe maxBytes
+     */
+    public long writeAt(Path file, long offset, InputStream body, long maxBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(uploadBufferSize);
+        long written = 0;
+
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) >= 0) {
+                if (buffer.position() < buffer.capacity()) {
+                    continue;
+                }
+                written += writeBuffer(buffer, out, offset + written, written, maxBytes);
+            }
+            written += writeBuffer(buffer, out, offset + written, written, maxBytes);
+            out.force(false);
+        }
+        return written;
+    }
+
+    /**
+     * Premešta gotov fajl u storage/<subfolder> (novo UUID ime, ili blob pod sha256).
+     *
+     * Poziva se van transakcije: referenca na blob mora biti upisana odmah. Kada bi se vratila
+     * rollback-om spoljne transakcije, restoreToFile / deleteFile bi posle toga skinuli tuđu
+     * referencu (dedup) i mogli da obrišu blob koji koristi drugi video.
+     */
+    public String moveToStorage(Path source, String subfolder, String extension, String sha256) throws IOException {
+        if (contentAddressed && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("moveToStorage ne sme da se zove unutar transakcije");
+        }
+        return publish(source, subfolder, extension, sha256);
+    }
+
+    /**
+     * SHA-256 iz imena content-addressed blob-a (putanja ili s3:// lokacija), ili null ako nije blob.
+     */
+    public static String blobDigest(String location) {
+        String normalized = location.replace('\\', '/');
+        int slash = normalized.lastIndexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        Matcher matcher = BLOB_NAME.matcher(normalized.substring(slash + 1));
+        if (!matcher.matches()) {
+            return null;
+        }
+        String digest = matcher.group(1);
+        String parent = normalized.substring(normalized.lastIndexOf('/', slash - 1) + 1, slash);
+        return parent.equals(digest.substring(0, 2)) ? digest : null;
+    }
+
+    /**
+     * SHA-256 (hex) celog fajla.
+     */
+    public String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(uploadBufferSize);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Briše fajl iz storage-a. Content-addressed blob se samo odjavljuje, a fizički
+     * se briše tek kada ga nijedan video više ne referencira.
      */
     public boolean deleteFile(String path) {
         try {
-            return Files.deleteIfExists(Paths.get(path));
-        } catch (IOException e) {
+            StorageBackend backend = backendFor(path);
+            if (blobDigest(path) != null) {
+                String key = backend.keyOf(path);
+                long remaining = storageBlobRepository.release(key, () -> deleteBlob(backend, path));
+                if (remaining > 0) {
+                    logger.info("Blob {} i dalje ima {} referenci", key, remaining);
+                }
+                return remaining >= 0;
+            }
+            return backend.delete(path);
+        } catch (Exception e) {
             logger.error("Greška pri brisanju fajla: {}", path);
             return false;
         }
     }
 
     /**
-     * Čita fajl sa diska
+     * Smešta gotov fajl (source) u storage/<subfolder> aktivnog backend-a.
+     *
+     * Content-addressed: ime je sha256 sadržaja. Referenca se dodaje PRE provere postojanja
+     * fajla - ako je paralelno poslednja referenca upravo puštena, acquire čeka na zaključan red
+     * i posle toga vidi da fajla nema. Ako blob već postoji, novi primerak se samo briše (dedup).
+     */
+    private String publish(Path source, String subfolder, String extension, String sha256) throws IOException {
+        if (!contentAddressed) {
+            return storage.put(subfolder + "/" + UUID.randomUUID() + extension, source);
+        }
+
+        String digest = sha256 != null ? sha256 : sha256(source);
+        // Ključ blob-a je ujedno i ključ u storage_blobs (relativno na storage/)
+        String key = subfolder + "/" + digest.substring(0, 2) + "/" + digest + extension.toLowerCase();
+        String blob = storage.locationOf(key);
+
+        storageBlobRepository.acquire(key);
+        try {
+            if (storage.exists(blob)) {
+                Files.delete(source);
+                logger.info("Dedup: sadržaj već postoji kao {}", blob);
+            } else {
+                storage.put(key, source);
+            }
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(source);
+        } catch (IOException | RuntimeException e) {
+            storageBlobRepository.release(key, () -> { });
+            throw e;
+        }
+        return blob;
+    }
+
+    private void deleteBlob(StorageBackend backend, String blob) {
+        try {
+            backend.delete(blob);
+            logger.info("Blob obrisan (poslednja referenca): {}", blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Čita ceo fajl iz storage-a (lokalni disk ili S3)
      */
     public byte[] readFile(String path) throws IOException {
-        return Files.readAllBytes(Paths.get(path));
+        StorageBackend backend = backendFor(path);
+        try (InputStream in = backend.openStream(path, 0, backend.stat(path).getSize())) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static long drain(ByteBuffer buffer, MessageDigest digest, FileChannel out,
+                              long writtenSoFar, long maxBytes) throws IOException {
+        buffer.flip();
+        int chunk = buffer.remaining();
+        if (writtenSoFar + chunk > maxBytes) {
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+        digest.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        return chunk;
+    }
+
+    private Path uploadsDirectory() throws IOException {
+        Path uploadsDirectory = localStorage.resolve(UPLOADS_DIR);
+        Files.createDirectories(uploadsDirectory);
+        return uploadsDirectory;
+    }
+
+    private static long writeBuffer(ByteBuffer buffer, FileChannel out, long position,
+                                    long writtenSoFar, long maxBytes) throws IOException {
+        buffer.flip();
+        int chunk = buffer.remaining();
+        if (writtenSoFar + chunk > maxBytes) {
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += out.write(buffer, at);
+        }
+        buffer.clear();
+        return chunk;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private String getExtension(String filename) {
@@ -108,4 +521,31 @@ public class FileStorageService {
         int lastDot = filename.lastIndexOf('.');
         return lastDot > 0 ? filename.substring(lastDot) : "";
     }
+
+    /**
+     * Rezultat streaming upload-a: putanja, broj bajtova i SHA-256 (hex).
+     */
+    public static class StoredFile {
+        private final String path;
+        private final long size;
+        private final String sha256;
+
+        StoredFile(String path, long size, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
 }
@@ -10,6 +10,7 @@ import rs.ac.uns.ftn.isa.isa_project.model.Video;
 import rs.ac.uns.ftn.isa.isa_project.model.VideoLike;
 import rs.ac.uns.ftn.isa.isa_project.repository.VideoLikeRepository;
 import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoStatsRepository;
 
 @Service
 public class LikeServiceImpl implements LikeService {
@@ -22,6 +23,9 @@ public class LikeServiceImpl implements LikeService {
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private VideoStatsRepository videoStatsRepository;
+
     @Override
     @Transactional
     public boolean toggleLike(Long videoId, User user) {
@@ -32,13 +36,15 @@ public class LikeServiceImpl implements LikeService {
 
         if (exists) {
             // Ukloni lajk
-            likeRepository.deleteByVideoIdAndUserId(videoId, user.getId());
+            int deleted = likeRepository.deleteByVideoIdAndUserId(videoId, user.getId());
+            videoStatsRepository.addLikes(videoId, -deleted);
             LOG.info("User {} unliked video {}", user.getUsername(), videoId);
             return false;
         } else {
             // Dodaj lajk
             VideoLike like = new VideoLike(video, user);
             likeRepository.save(like);
+            videoStatsRepository.addLikes(videoId, 1);
             LOG.info("User {} liked video {}", user.getUsername(), videoId);
             return true;
         }
@@ -51,6 +57,7 @@ public class LikeServiceImpl implements LikeService {
 
     @Override
     public long getLikeCount(Long videoId) {
-        return likeRepository.countByVideoId(videoId);
+        // Denormalizovan brojač (O(1)), ne COUNT(*) nad video_likes
+        return videoStatsRepository.getLikeCount(videoId);
     }
 }
\ No newline at end of file
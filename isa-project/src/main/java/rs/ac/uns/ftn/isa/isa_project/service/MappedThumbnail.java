@@ -0,0 +1,106 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Thumbnail mapiran iz fajla (read-only MappedByteBuffer) kao Spring Resource.
+ *
+ * Telo se piše iz mapiranja direktno u kanal response-a (transferTo), pa odgovor ne alocira
+ * byte[] veličine slike - bajtovi su u page cache-u, ne u heap-u. Svaki zahtev radi nad svojim
+ * duplicate() pogledom, pa isto mapiranje može da služi više zahteva istovremeno.
+ */
+public class MappedThumbnail extends AbstractResource {
+
+    private final ByteBuffer buffer;
+    private final String contentType;
+    private final int width;
+    private final boolean pending;
+    private final String etag;
+
+    MappedThumbnail(ByteBuffer buffer, String contentType, int width, boolean pending, String etag) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.contentType = contentType;
+        this.width = width;
+        this.pending = pending;
+        this.etag = etag;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Mapped thumbnail [" + buffer.capacity() + " bytes]";
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer view = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, view.remaining());
+                view.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+
+            @Override
+            public long transferTo(OutputStream out) throws IOException {
+                // Kanal nad response stream-om piše iz mapiranja kroz mali fiksni bafer
+                long count = view.remaining();
+                WritableByteChannel channel = Channels.newChannel(out);
+                while (view.hasRemaining()) {
+                    channel.write(view);
+                }
+                return count;
+            }
+        };
+    }
+
+    // Getters
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
@@ -0,0 +1,341 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import rs.ac.uns.ftn.isa.isa_project.dto.MembershipGossip;
+import rs.ac.uns.ftn.isa.isa_project.dto.ReplicaMember;
+import rs.ac.uns.ftn.isa.isa_project.repository.ViewCountRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Dinamičko članstvo u CRDT klasteru (gossip + heartbeat).
+ *
+ * - crdt.replica.urls su samo seed-ovi za ulazak u klaster. Gossip stiže na /api/crdt/**, koji
+ *   traži tajnu klastera (X-Replica-Token), pa se član koga javi autentifikovana replika prihvata
+ *   bez izmene konfiguracije ostalih replika - nova replika treba samo tajnu i jedan seed.
+ * - URL člana mora da odgovara crdt.membership.allowed-url-pattern (npr. http://backend[0-9]+:8080),
+ *   pa ni replika sa tajnom ne može da natera ostale da šalju zahteve na proizvoljnu adresu (SSRF).
+ * - Svaka replika na svaki tick povećava svoj heartbeat i razmenjuje listu članova
+ *   sa nekoliko nasumičnih replika (POST /api/crdt/membership/gossip).
+ * - Gossip radi na svojoj niti (membership-gossip), ne na zajedničkom @Scheduled pool-u -
+ *   spor flush ili sync ne sme da zaustavi heartbeat, jer bi zdrave replike bile proglašene DEAD.
+ * - Član čiji se heartbeat ne menja suspectAfterMs je SUSPECT, a posle deadAfterMs DEAD
+ *   i izlazi iz sync fan-out-a dok se ponovo ne javi.
+ */
+@Service
+public class MembershipService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MembershipService.class);
+
+    public enum Status { ALIVE, SUSPECT, DEAD }
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ViewCountRepository viewCountRepository;
+
+    @Value("${crdt.replica.id}")
+    private String replicaId;
+
+    /**
+     * URL na kome je ova replika dostupna drugim replikama (npr. http://backend1:8080).
+     */
+    @Value("${crdt.replica.self-url:}")
+    private String selfUrl;
+
+    @Value("${crdt.replica.urls}")
+    private List<String> seedUrls;
+
+    @Value("${crdt.membership.gossip-interval-ms:1000}")
+    private long gossipIntervalMs;
+
+    @Value("${crdt.membership.fanout:2}")
+    private int fanout;
+
+    @Value("${crdt.membership.suspect-after-ms:5000}")
+    private long suspectAfterMs;
+
+    @Value("${crdt.membership.dead-after-ms:15000}")
+    private long deadAfterMs;
+
+    /**
+     * Dozvoljeni URL-ovi članova (regex nad celim URL-om). Podrazumevano samo http(s)://host[:port],
+     * bez putanje i korisničkih podataka.
+     */
+    @Value("${crdt.membership.allowed-url-pattern:https?://[A-Za-z0-9.-]+(:[0-9]+)?}")
+    private String allowedUrlPattern;
+
+    private final Map<String, MemberState> members = new ConcurrentHashMap<>();
+
+    private ReplicaMember self;
+
+    private Pattern allowedUrl;
+
+    private ScheduledExecutorService gossipExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (selfUrl == null || selfUrl.isBlank()) {
+            LOG.warn("[{}] crdt.replica.self-url is not set - other replicas will not push to this one", replicaId);
+        }
+        self = new ReplicaMember(replicaId, normalize(selfUrl), System.currentTimeMillis(), 0);
+
+        allowedUrl = Pattern.compile(allowedUrlPattern);
+
+        gossipExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "membership-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gossipExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                gossip();
+            } catch (RuntimeException e) {
+                // Izuzetak bi zauvek ugasio periodični zadatak
+                LOG.warn("[{}] Gossip tick failed: {}", replicaId, e.getMessage());
+            }
+        }, gossipIntervalMs, gossipIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gossip tick: heartbeat + razmena liste članova sa nasumičnim replikama.
+     */
+    public void gossip() {
+        synchronized (this) {
+            self.setHeartbeat(self.getHeartbeat() + 1);
+        }
+
+        List<String> targets = new ArrayList<>(getPeerUrls());
+        Collections.shuffle(targets);
+
+        for (String peerUrl : targets.subList(0, Math.min(fanout, targets.size()))) {
+            exchange(peerUrl);
+        }
+    }
+
+    /**
+     * Prima gossip od druge replike i vraća svoju listu članova.
+     */
+    public MembershipGossip receiveGossip(MembershipGossip gossip) {
+        merge(gossip.getMembers());
+        return snapshot();
+    }
+
+    /**
+     * URL-ovi replika kojima se šalje sync (ALIVE i SUSPECT, bez ove replike).
+     * Seed-ovi za koje još nije stigao gossip su uključeni - tako nova replika nađe klaster.
+     */
+    public List<String> getPeerUrls() {
+        Set<String> peers = new LinkedHashSet<>();
+        Set<String> knownUrls = new HashSet<>();
+
+        for (MemberState state : members.values()) {
+            String url = state.member.getUrl();
+            if (url == null) {
+                continue;
+            }
+            knownUrls.add(url);
+            if (statusOf(state) != Status.DEAD) {
+                peers.add(url);
+            }
+        }
+
+        for (String seed : seedUrls) {
+            String url = normalize(seed);
+            if (url != null && !knownUrls.contains(url) && !url.equals(self.getUrl())) {
+                peers.add(url);
+            }
+        }
+
+        return new ArrayList<>(peers);
+    }
+
+    /**
+     * ID-evi svih replika za koje se zna (i DEAD - njihovi brojači i dalje važe).
+     */
+    public Set<String> getMemberIds() {
+        Set<String> ids = new HashSet<>(members.keySet());
+        ids.add(replicaId);
+        return ids;
+    }
+
+    /**
+     * Vraća samo brojače replika koje su članovi klastera ili već imaju tabelu/particiju.
+     * Stanja od drugih replika se filtriraju ovim pre G-Counter-a i read keša, pa nepoznati
+     * ID-evi iz tela zahteva ne ulaze u zbir pregleda i ne zauzimaju memoriju.
+     */
+    public Map<String, Long> retainKnownReplicas(Map<String, Long> counts) {
+        Set<String> memberIds = getMemberIds();
+        List<String> tableIds = viewCountRepository.getReplicaIds();
+
+        Map<String, Long> known = new HashMap<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            String id = entry.getKey();
+            if (entry.getValue() != null && (memberIds.contains(id) || tableIds.contains(id))) {
+                known.put(id, entry.getValue());
+            }
+        }
+        if (known.size() < counts.size()) {
+            LOG.debug("[{}] Dropped counts of unknown replicas: {}", replicaId, counts.keySet());
+        }
+        return known;
+    }
+
+    /**
+     * Pregled članstva za GET /api/crdt/membership.
+     */
+    public List<Map<String, Object>> getMembersView() {
+        List<Map<String, Object>> view = new ArrayList<>();
+        view.add(describe(self, "SELF"));
+        for (MemberState state : members.values()) {
+            view.add(describe(state.member, statusOf(state).name()));
+        }
+        return view;
+    }
+
+    /**
+     * Pri gašenju javlja ostalim replikama da odlazi - odmah izlazi iz njihovog fan-out-a.
+     */
+    @PreDestroy
+    public void leave() {
+        gossipExecutor.shutdownNow();
+        synchronized (this) {
+            self.setLeaving(true);
+            self.setHeartbeat(self.getHeartbeat() + 1);
+        }
+        for (String peerUrl : getPeerUrls()) {
+            exchange(peerUrl);
+        }
+    }
+
+    private void exchange(String peerUrl) {
+        try {
+            MembershipGossip response = restTemplate.postForObject(
+                    peerUrl + "/api/crdt/membership/gossip", snapshot(), MembershipGossip.class);
+            if (response != null) {
+                merge(response.getMembers());
+            }
+        } catch (Exception e) {
+            LOG.debug("[{}] Gossip to {} failed: {}", replicaId, peerUrl, e.getMessage());
+        }
+    }
+
+    private synchronized MembershipGossip snapshot() {
+        List<ReplicaMember> known = new ArrayList<>();
+        known.add(copy(self));
+        for (MemberState state : members.values()) {
+            // DEAD članovi se ne šire dalje - ne bi trebalo da "ožive" kod replike koja ih ne zna
+            if (statusOf(state) != Status.DEAD) {
+                known.add(copy(state.member));
+            }
+        }
+        return new MembershipGossip(replicaId, known);
+    }
+
+    private synchronized void merge(List<ReplicaMember> incoming) {
+        boolean newMember = false;
+
+        for (ReplicaMember member : incoming) {
+            if (member.getId() == null || member.getId().equals(replicaId)) {
+                continue;
+            }
+            member.setUrl(normalize(member.getUrl()));
+
+            // Gossip je autentifikovan tajnom klastera; URL se i dalje proverava pre prvog poziva
+            if (!ViewCountRepository.isValidReplicaId(member.getId()) || member.getUrl() == null
+                    || !allowedUrl.matcher(member.getUrl()).matches()) {
+                LOG.debug("[{}] Ignoring gossip about unknown replica {} at {}",
+                        replicaId, member.getId(), member.getUrl());
+                continue;
+            }
+
+            MemberState current = members.get(member.getId());
+            if (current == null) {
+                members.put(member.getId(), new MemberState(member));
+                newMember = true;
+                LOG.info("[{}] Replica {} joined at {}", replicaId, member.getId(), member.getUrl());
+            } else if (member.isNewerThan(current.member)) {
+                if (member.isLeaving() && !current.member.isLeaving()) {
+                    LOG.info("[{}] Replica {} is leaving", replicaId, member.getId());
+                }
+                current.member = member;
+                current.lastUpdated = System.currentTimeMillis();
+            }
+        }
+
+        if (newMember) {
+            // Tabela nove replike se vidi odmah, ne tek na sledećem osvežavanju registra
+            viewCountRepository.refreshReplicaIds();
+        }
+    }
+
+    private Status statusOf(MemberState state) {
+        if (state.member.isLeaving()) {
+            return Status.DEAD;
+        }
+        long silentFor = System.currentTimeMillis() - state.lastUpdated;
+        if (silentFor > deadAfterMs) {
+            return Status.DEAD;
+        }
+        return silentFor > suspectAfterMs ? Status.SUSPECT : Status.ALIVE;
+    }
+
+    private static Map<String, Object> describe(ReplicaMember member, String status) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", member.getId());
+        view.put("url", member.getUrl());
+        view.put("incarnation", member.getIncarnation());
+        view.put("heartbeat", member.getHeartbeat());
+        view.put("status", status);
+        return view;
+    }
+
+    private static ReplicaMember copy(ReplicaMember member) {
+        ReplicaMember copy = new ReplicaMember(member.getId(), member.getUrl(),
+                member.getIncarnation(), member.getHeartbeat());
+        copy.setLeaving(member.isLeaving());
+        return copy;
+    }
+
+    private static String normalize(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    /**
+     * Poslednja poznata informacija o članu i kada je lokalno primljena.
+     */
+    private static class MemberState {
+        private volatile ReplicaMember member;
+        private volatile long lastUpdated;
+
+        MemberState(ReplicaMember member) {
+            this.member = member;
+            this.lastUpdated = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
+import rs.ac.uns.ftn.isa.isa_project.crdt.MerkleTree;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestResponse;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+import rs.ac.uns.ftn.isa.isa_project.model.ViewCount;
+import rs.ac.uns.ftn.isa.isa_project.repository.ViewCountRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merkle digest razmena za duboku sinhronizaciju view count-ova.
+ *
+ * Dve replike porede Merkle stabla nad view_counts_* tabelama nivo po nivo
+ * i razmenjuju pune G-Counter vektore samo za bucket-e koji se razlikuju.
+ * Sinhronizacija je dvosmerna: lokalno se merge-uje stanje druge replike,
+ * a drugoj replici se šalje lokalno stanje za iste bucket-e.
+ */
+@Service
+public class MerkleSyncService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MerkleSyncService.class);
+
+    @Autowired
+    private ViewCountRepository viewCountRepository;
+
+    @Autowired
+    private CRDTViewCountService viewCountService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private CRDTViewCountCache viewCountCache;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Value("${crdt.replica.id}")
+    private String replicaId;
+
+    /**
+     * Koliko dugo se izračunato stablo koristi pre ponovnog računanja.
+     * Jedna razmena traži stablo DEPTH + 1 puta - bez keša bi to bilo
+     * DEPTH + 1 GROUP BY upita nad celom tabelom.
+     */
+    @Value("${crdt.digest.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private volatile MerkleTree cachedTree;
+    private volatile long cachedAt;
+
+    /**
+     * Vraća Merkle stablo nad svim poznatim view_counts_* tabelama.
+     */
+    public MerkleTree getLocalTree() {
+        MerkleTree tree = cachedTree;
+        if (tree != null && System.currentTimeMillis() - cachedAt < cacheTtlMs) {
+            return tree;
+        }
+        return rebuildLocalTree();
+    }
+
+    private synchronized MerkleTree rebuildLocalTree() {
+        long[] leaves = new long[MerkleTree.LEAF_COUNT];
+
+        for (String id : viewCountService.getAllKnownReplicaIds()) {
+            long[] tableLeaves = viewCountRepository.computeLeafHashes(id, MerkleTree.LEAF_COUNT);
+            for (int i = 0; i < leaves.length; i++) {
+                leaves[i] += tableLeaves[i];
+            }
+        }
+
+        cachedTree = new MerkleTree(leaves);
+        cachedAt = System.currentTimeMillis();
+        return cachedTree;
+    }
+
+    public CRDTDigestResponse getDigest(CRDTDigestRequest request) {
+        Map<Integer, Long> hashes = getLocalTree().getHashes(request.getLevel(), request.getNodes());
+        return new CRDTDigestResponse(replicaId, request.getLevel(), hashes);
+    }
+
+    /**
+     * Vraća pune G-Counter vektore (sve replike) za video-e u datim bucket-ima.
+     */
+    public List<CRDTSyncRequest> getStatesForBuckets(List<Integer> buckets) {
+        Map<Long, Map<String, Long>> vectors = new HashMap<>();
+
+        for (String id : viewCountService.getAllKnownReplicaIds()) {
+            for (ViewCount vc : viewCountRepository.findByBuckets(id, MerkleTree.LEAF_COUNT, buckets)) {
+                vectors.computeIfAbsent(vc.getVideoId(), v -> new HashMap<>()).put(id, vc.getCount());
+            }
+        }
+
+        List<CRDTSyncRequest> states = new ArrayList<>(vectors.size());
+        vectors.forEach((videoId, counts) -> states.add(new CRDTSyncRequest(videoId, replicaId, counts)));
+        return states;
+    }
+
+    /**
+     * Merge-uje pune G-Counter vektore: za svaku repliku count = MAX(lokalno, udaljeno).
+     * MAX nikad ne povećava tuđi brojač preko vrednosti koju je ta replika zaista upisala.
+     *
+     * Prihvataju se samo brojači replika iz članstva klastera koje već imaju tabelu/particiju -
+     * merge nikad ne kreira tabele, pa ID-evi iz tela zahteva ne mogu da pokrenu DDL.
+     */
+    @Transactional
+    public void mergeFullStates(List<CRDTSyncRequest> states) {
+        Set<String> accepted = new HashSet<>(membershipService.getMemberIds());
+        accepted.retainAll(viewCountRepository.getReplicaIds());
+
+        // Grupisano po replici - jedan batch MAX upis po replici
+        Map<String, Map<Long, Long>> byReplica = new HashMap<>();
+        List<CRDTSyncRequest> acceptedStates = new ArrayList<>(states.size());
+        Set<String> rejected = new HashSet<>();
+        for (CRDTSyncRequest state : states) {
+            Map<String, Long> counts = new HashMap<>();
+            for (Map.Entry<String, Long> entry : state.getCounts().entrySet()) {
+                if (!accepted.contains(entry.getKey())) {
+                    rejected.add(entry.getKey());
+                    continue;
+                }
+                counts.put(entry.getKey(), entry.getValue());
+                byReplica.computeIfAbsent(entry.getKey(), id -> new HashMap<>())
+                        .merge(state.getVideoId(), entry.getValue(), Math::max);
+            }
+            acceptedStates.add(new CRDTSyncRequest(state.getVideoId(), state.getSourceReplicaId(), counts));
+        }
+
+        if (!rejected.isEmpty()) {
+            LOG.warn("[{}] Ignoring counts of unknown replicas {} in full state merge", replicaId, rejected);
+        }
+
+        for (Map.Entry<String, Map<Long, Long>> entry : byReplica.entrySet()) {
+            viewCountRepository.mergeMaxBatch(entry.getKey(), entry.getValue());
+        }
+
+        for (CRDTSyncRequest state : acceptedStates) {
+            viewCountCache.merge(state.getVideoId(), state.getCounts());
+        }
+        cachedTree = null;
+    }
+
+    /**
+     * Kreira tabele/particije za članove klastera koji ih još nemaju.
+     * Poziva se samo iz deep sync-a ove replike, nikad iz obrade zahteva druge replike.
+     */
+    private void ensureMemberTables() {
+        List<String> existing = viewCountRepository.getReplicaIds();
+        for (String id : membershipService.getMemberIds()) {
+            if (!existing.contains(id) && ViewCountRepository.isValidReplicaId(id)) {
+                viewCountRepository.createTableIfNotExists(id);
+            }
+        }
+    }
+
+    /**
+     * Poredi stablo sa drugom replikom i sinhronizuje samo bucket-e koji se razlikuju.
+     *
+     * @return broj bucket-a koji su se razlikovali
+     */
+    public int reconcileWith(String peerUrl) {
+        MerkleTree localTree = rebuildLocalTree();
+
+        List<Integer> divergent = localTree.findDivergentBuckets((level, nodes) -> {
+            CRDTDigestResponse response = restTemplate.postForObject(
+                    peerUrl + "/api/crdt/digest", new CRDTDigestRequest(level, nodes), CRDTDigestResponse.class);
+            return response != null ? response.getHashes() : Map.of();
+        });
+
+        if (divergent.isEmpty()) {
+            LOG.debug("[{}] Merkle root matches {}, nothing to sync", replicaId, peerUrl);
+            return 0;
+        }
+
+        LOG.info("[{}] {} divergent buckets with {}", replicaId, divergent.size(), peerUrl);
+
+        ensureMemberTables();
+
+        // 1. Povuci stanje druge replike za bucket-e koji se razlikuju
+        ResponseEntity<CRDTSyncBatchRequest> remote = restTemplate.postForEntity(
+                peerUrl + "/api/crdt/digest/buckets",
+                new CRDTDigestRequest(MerkleTree.DEPTH, divergent),
+                CRDTSyncBatchRequest.class);
+
+        List<CRDTSyncRequest> localStates = getStatesForBuckets(divergent);
+
+        if (remote.getBody() != null) {
+            mergeFullStates(remote.getBody().getStates());
+        }
+
+        // 2. Pošalji lokalno stanje za iste bucket-e
+        restTemplate.postForEntity(
+                peerUrl + "/api/crdt/digest/merge",
+                new CRDTSyncBatchRequest(replicaId, localStates),
+                String.class);
+
+        return divergent.size();
+    }
+}
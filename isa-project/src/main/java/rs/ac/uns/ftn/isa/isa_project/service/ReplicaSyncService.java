@@ -1,22 +1,42 @@
 package rs.ac.uns.ftn.isa.isa_project.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import rs.ac.uns.ftn.isa.isa_project.crdt.CRDTBinaryHttpMessageConverter;
 import rs.ac.uns.ftn.isa.isa_project.crdt.GCounter;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTChangesPage;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
 import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
 import rs.ac.uns.ftn.isa.isa_project.model.ViewCount;
 import rs.ac.uns.ftn.isa.isa_project.repository.ViewCountRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ReplicaSyncService {
@@ -29,77 +49,252 @@ public class ReplicaSyncService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private CRDTViewCountCache viewCountCache;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+
     @Value("${crdt.replica.id}")
     private String replicaId;
 
-    @Value("${crdt.replica.urls}")
-    private List<String> replicaUrls;
+    @Value("${crdt.sync.push-max-batch:500}")
+    private int maxBatchSize;
+
+    @Value("${crdt.sync.push-max-pending:100000}")
+    private int maxPendingPerPeer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Format poruka ka drugim replikama: binary (application/x-crdt-binary) ili json.
+     */
+    @Value("${crdt.sync.wire-format:binary}")
+    private String wireFormat;
+
+    /**
+     * Replike koje su odbile binarni format (415) - njima se šalje JSON.
+     */
+    private final Set<String> jsonOnlyPeers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Video-i čije stanje još nije poslato, po peer URL-u.
+     * Više pregleda istog videa u jednom prozoru se svodi na jedan zapis.
+     */
+    private final Map<String, Set<Long>> dirtyByPeer = new ConcurrentHashMap<>();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    // Kratka transakcija za merge posle pull-a - HTTP pozivi su van nje
+    private TransactionTemplate mergeTx;
+
+    @PostConstruct
+    public void init() {
+        mergeTx = new TransactionTemplate(transactionManager);
+
+        batchSizeSummary = DistributionSummary.builder("crdt.push.batch.size")
+                .description("Broj video stanja u jednom push batch-u")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("crdt.push.flush.latency")
+                .description("Trajanje jednog push flush-a ka svim replikama")
+                .register(meterRegistry);
+    }
 
     /**
-     * PUSH sync - šalje update drugim replikama.
+     * PUSH sync - označava video kao promenjen.
+     *
+     * Stanje se ne šalje odmah: flushPendingPushes na kraju prozora
+     * šalje jedan batch po replici sa svim promenjenim video-ima.
      */
-    @Async
     public void pushUpdateToOtherReplicas(Long videoId) {
-        LOG.info("[{}] Pushing update for video {} to other replicas", replicaId, videoId);
+        for (String peerUrl : getPeerUrls()) {
+            dirtyByPeer.computeIfAbsent(peerUrl, url -> ConcurrentHashMap.newKeySet()).add(videoId);
+        }
+    }
 
-        try {
-            // Čitaj SAMO iz tabele trenutne replike
-            Map<String, Long> currentCounts = getCurrentLocalCounts(videoId);
-
-            CRDTSyncRequest syncRequest = new CRDTSyncRequest(videoId, replicaId, currentCounts);
-
-            int successCount = 0;
-            for (String replicaUrl : replicaUrls) {
-                if (!replicaUrl.isEmpty()) {
-                    try {
-                        sendSyncRequest(replicaUrl, syncRequest);
-                        successCount++;
-                    } catch (Exception e) {
-                        LOG.warn("[{}] Failed to push to {}: {}", replicaId, replicaUrl, e.getMessage());
-                    }
+    /**
+     * Šalje nagomilane promene - jedan POST /api/crdt/sync/batch po replici
+     * (po maxBatchSize stanja). Neuspeli batch se vraća u red za sledeći prozor,
+     * osim ako red nije pun - tada se odbacuje (periodični sync ga pokriva).
+     */
+    @Scheduled(fixedDelayString = "${crdt.sync.push-window-ms:200}")
+    public void flushPendingPushes() {
+        if (dirtyByPeer.values().stream().allMatch(Set::isEmpty)) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // Stanje videa se čita jednom po prozoru, bez obzira na broj replika
+        Map<Long, CRDTSyncRequest> stateCache = new HashMap<>();
+        List<String> livePeers = getPeerUrls();
+
+        for (Map.Entry<String, Set<Long>> entry : dirtyByPeer.entrySet()) {
+            String peerUrl = entry.getKey();
+            List<Long> videoIds = drain(entry.getValue());
+
+            // Replika je u međuvremenu DEAD - kada se vrati, stanje stiže kroz periodični sync
+            if (!livePeers.contains(peerUrl)) {
+                continue;
+            }
+
+            for (int from = 0; from < videoIds.size(); from += maxBatchSize) {
+                List<Long> chunk = videoIds.subList(from, Math.min(from + maxBatchSize, videoIds.size()));
+
+                loadLocalStates(chunk, stateCache);
+
+                List<CRDTSyncRequest> states = new ArrayList<>(chunk.size());
+                for (Long videoId : chunk) {
+                    states.add(stateCache.get(videoId));
+                }
+
+                try {
+                    sendSyncBatch(peerUrl, new CRDTSyncBatchRequest(replicaId, states));
+                    batchSizeSummary.record(states.size());
+                } catch (Exception e) {
+                    LOG.warn("[{}] Failed to push batch of {} to {}: {}",
+                            replicaId, states.size(), peerUrl, e.getMessage());
+                    meterRegistry.counter("crdt.push.batches.failed", "peer", peerUrl).increment();
+                    requeue(peerUrl, entry.getValue(), chunk);
                 }
             }
+        }
+
+        sample.stop(flushTimer);
+    }
 
-            LOG.info("[{}] Successfully pushed update for video {} to {}/{} replicas",
-                    replicaId, videoId, successCount, replicaUrls.size());
+    @PreDestroy
+    public void flushOnShutdown() {
+        LOG.info("[{}] Shutting down - flushing pending pushes", replicaId);
+        flushPendingPushes();
+    }
 
-        } catch (Exception e) {
-            LOG.error("[{}] Failed to push update for video {}: {}", replicaId, videoId, e.getMessage());
+    private List<Long> drain(Set<Long> dirty) {
+        List<Long> drained = new ArrayList<>();
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext()) {
+            drained.add(it.next());
+            it.remove();
         }
+        return drained;
+    }
+
+    private void requeue(String peerUrl, Set<Long> dirty, List<Long> videoIds) {
+        if (dirty.size() + videoIds.size() > maxPendingPerPeer) {
+            LOG.warn("[{}] Push queue for {} is full, dropping batch of {} videos",
+                    replicaId, peerUrl, videoIds.size());
+            Counter.builder("crdt.push.batches.dropped")
+                    .tag("peer", peerUrl)
+                    .register(meterRegistry)
+                    .increment();
+            return;
+        }
+        dirty.addAll(videoIds);
+    }
+
+    /**
+     * Vraća URL-ove ostalih živih replika (iz gossip članstva, videti MembershipService).
+     */
+    public List<String> getPeerUrls() {
+        return membershipService.getPeerUrls();
     }
 
     /**
      * PULL sync - traži stanje od drugih replika i merge-uje.
+     *
+     * Isti put kao batch pull: HTTP pozivi ka replikama (paralelno, sa zajedničkim
+     * rokom) idu van transakcije, pa konekcija iz pool-a nije zauzeta dok se čeka
+     * na mrežu; merge je kratka transakcija posle toga.
+     *
+     * @return false ako bar jedna replika nije odgovorila
      */
-    @Transactional
-    public void pullAndMergeFromOtherReplicas(Long videoId) {
+    public boolean pullAndMergeFromOtherReplicas(Long videoId) {
         LOG.debug("[{}] Pulling updates for video {} from other replicas", replicaId, videoId);
+        return pullAndMergeFromOtherReplicas(List.of(videoId));
+    }
 
-        try {
-            GCounter localCounter = getLocalGCounter(videoId);
-
-            int successCount = 0;
-            for (String replicaUrl : replicaUrls) {
-                if (!replicaUrl.isEmpty()) {
-                    try {
-                        GCounter remoteCounter = fetchRemoteGCounter(replicaUrl, videoId);
-                        localCounter = localCounter.merge(remoteCounter);
-                        successCount++;
-                    } catch (Exception e) {
-                        LOG.warn("[{}] Failed to fetch from replica {}: {}", replicaId, replicaUrl, e.getMessage());
-                    }
+    /**
+     * PULL sync za više video-a odjednom (strong čitanje liste videa).
+     *
+     * Svaka replika dobija JEDAN zahtev sa svim video-ima (POST /api/crdt/state/batch),
+     * a sve replike zajedno imaju jedan rok FanOutExecutor-a. HTTP pozivi idu van
+     * transakcije; primljena stanja se merge-uju u jednoj kratkoj transakciji.
+     *
+     * @return false ako bar jedna replika nije odgovorila (rok ili greška) - merge-ovano
+     *         je samo ono što je stiglo, pa je rezultat čitanja stale
+     */
+    public boolean pullAndMergeFromOtherReplicas(Collection<Long> videoIds) {
+        List<String> peerUrls = getPeerUrls();
+        if (videoIds.isEmpty() || peerUrls.isEmpty()) {
+            return true;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(videoIds));
+
+        Map<String, Callable<List<CRDTSyncRequest>>> fetches = new LinkedHashMap<>();
+        for (String replicaUrl : peerUrls) {
+            fetches.put(replicaUrl, () -> {
+                try {
+                    return fetchRemoteStates(replicaUrl, ids);
+                } catch (Exception e) {
+                    LOG.warn("[{}] Failed to fetch states from replica {}: {}", replicaId, replicaUrl, e.getMessage());
+                    return null;
                 }
-            }
+            });
+        }
 
-            // Primeni merged stanje SAMO na lokalnu tabelu
-            applyMergedCountsToLocalTable(videoId, localCounter);
+        FanOutExecutor.Result<String, List<CRDTSyncRequest>> remote;
+        try {
+            remote = fanOutExecutor.invokeAll(fetches);
+        } catch (Exception e) {
+            LOG.error("[{}] Failed to pull updates for {} videos: {}", replicaId, ids.size(), e.getMessage());
+            return false;
+        }
 
-            LOG.debug("[{}] Successfully pulled and merged updates for video {} from {}/{} replicas",
-                    replicaId, videoId, successCount, replicaUrls.size());
+        // Najveća vrednost NAŠEG slota koju je neka replika videla - isto kao receiveSyncBatch
+        Map<Long, Long> remoteCounts = new HashMap<>();
+        int successCount = 0;
+        for (List<CRDTSyncRequest> states : remote.getValues().values()) {
+            if (states == null) {
+                continue;
+            }
+            successCount++;
+            for (CRDTSyncRequest state : states) {
+                Long count = state.getCounts().get(replicaId);
+                if (count != null) {
+                    remoteCounts.merge(state.getVideoId(), count, Math::max);
+                }
+            }
+        }
 
-        } catch (Exception e) {
-            LOG.error("[{}] Failed to pull updates for video {}: {}", replicaId, videoId, e.getMessage());
+        if (!remoteCounts.isEmpty()) {
+            mergeTx.executeWithoutResult(status -> {
+                Map<Long, Long> raised = new HashMap<>();
+                Map<Long, Long> localCounts = new HashMap<>();
+                for (ViewCount vc : viewCountRepository.findByVideoIdsAndReplicaId(remoteCounts.keySet(), replicaId)) {
+                    localCounts.put(vc.getVideoId(), vc.getCount());
+                }
+                remoteCounts.forEach((videoId, count) -> {
+                    if (count > localCounts.getOrDefault(videoId, 0L)) {
+                        raised.put(videoId, count);
+                    }
+                });
+                viewCountRepository.mergeMaxBatch(replicaId, raised);
+            });
         }
+
+        boolean complete = successCount == peerUrls.size();
+        LOG.debug("[{}] Pulled and merged {} videos from {}/{} replicas{}",
+                replicaId, ids.size(), successCount, peerUrls.size(),
+                remote.isPartial() ? " (deadline exceeded)" : "");
+        return complete;
     }
 
     /**
@@ -116,6 +311,72 @@ public class ReplicaSyncService {
         return counts;
     }
 
+    /**
+     * Vraća stanje SAMO LOKALNE tabele za više video-a (jedan upit).
+     * Video-i bez zapisa se vraćaju sa praznim counts.
+     */
+    public List<CRDTSyncRequest> getCurrentLocalStates(List<Long> videoIds) {
+        Map<Long, CRDTSyncRequest> states = new LinkedHashMap<>();
+        loadLocalStates(videoIds, states);
+        return new ArrayList<>(states.values());
+    }
+
+    /**
+     * Učitava lokalno stanje video-a kojih nema u stateCache jednim upitom.
+     */
+    private void loadLocalStates(List<Long> videoIds, Map<Long, CRDTSyncRequest> stateCache) {
+        List<Long> missing = new ArrayList<>();
+        for (Long videoId : videoIds) {
+            if (!stateCache.containsKey(videoId)) {
+                missing.add(videoId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> localCounts = new HashMap<>();
+        for (ViewCount vc : viewCountRepository.findByVideoIdsAndReplicaId(missing, replicaId)) {
+            localCounts.put(vc.getVideoId(), vc.getCount());
+        }
+        for (Long videoId : missing) {
+            Long count = localCounts.get(videoId);
+            stateCache.put(videoId, new CRDTSyncRequest(videoId, replicaId,
+                    count == null ? new HashMap<>() : Map.of(replicaId, count)));
+        }
+    }
+
+    /**
+     * Vraća jednu stranicu lokalnih promena posle date verzije (delta anti-entropy).
+     */
+    public CRDTChangesPage getLocalChangesSince(long sinceVersion, int limit) {
+        List<ViewCount> changed = viewCountRepository.findChangedSince(replicaId, sinceVersion, limit);
+
+        List<CRDTSyncRequest> states = new ArrayList<>(changed.size());
+        long nextSince = sinceVersion;
+        for (ViewCount vc : changed) {
+            states.add(new CRDTSyncRequest(vc.getVideoId(), replicaId, Map.of(replicaId, vc.getCount())));
+            nextSince = Math.max(nextSince, vc.getVersion());
+        }
+
+        // Stranica se ne seče usred transakcije, pa može biti i veća od limit-a
+        return new CRDTChangesPage(replicaId, states, nextSince, changed.size() >= limit);
+    }
+
+    /**
+     * Traži stranicu promena od udaljene replike (GET /api/crdt/changes).
+     */
+    public CRDTChangesPage fetchRemoteChanges(String replicaUrl, long sinceVersion, int limit) {
+        String url = replicaUrl + "/api/crdt/changes?since=" + sinceVersion + "&limit=" + limit;
+
+        ResponseEntity<CRDTChangesPage> response = restTemplate.getForEntity(url, CRDTChangesPage.class);
+
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new RuntimeException("Failed to fetch changes: " + response.getStatusCode());
+        }
+        return response.getBody();
+    }
+
     /**
      * Kreira G-Counter iz lokalne tabele.
      */
@@ -125,43 +386,72 @@ public class ReplicaSyncService {
     }
 
     /**
-     * Šalje HTTP POST zahtev drugoj replici.
+     * Šalje HTTP POST sa batch-om stanja drugoj replici.
+     *
+     * U binary modu šalje application/x-crdt-binary; ako replika odgovori 415
+     * (ne zna binarni format), pamti je i ponavlja isti batch kao JSON.
      */
-    private void sendSyncRequest(String replicaUrl, CRDTSyncRequest syncRequest) {
-        String url = replicaUrl + "/api/crdt/sync";
+    private void sendSyncBatch(String replicaUrl, CRDTSyncBatchRequest batch) {
+        String url = replicaUrl + "/api/crdt/sync/batch";
+
+        if (useBinary(replicaUrl)) {
+            try {
+                postSyncBatch(url, batch, CRDTBinaryHttpMessageConverter.CRDT_BINARY);
+                return;
+            } catch (HttpClientErrorException.UnsupportedMediaType e) {
+                LOG.info("[{}] Replica {} does not accept binary CRDT frames, falling back to JSON",
+                        replicaId, replicaUrl);
+                jsonOnlyPeers.add(replicaUrl);
+            }
+        }
+
+        postSyncBatch(url, batch, MediaType.APPLICATION_JSON);
+    }
 
+    private void postSyncBatch(String url, CRDTSyncBatchRequest batch, MediaType contentType) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentType(contentType);
 
-        HttpEntity<CRDTSyncRequest> entity = new HttpEntity<>(syncRequest, headers);
+        HttpEntity<CRDTSyncBatchRequest> entity = new HttpEntity<>(batch, headers);
 
         ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
 
         if (!response.getStatusCode().is2xxSuccessful()) {
-            throw new RuntimeException("Failed to send sync request: " + response.getStatusCode());
+            throw new RuntimeException("Failed to send sync batch: " + response.getStatusCode());
         }
     }
 
     /**
-     * Traži G-Counter stanje od udaljene replike.
+     * Traži stanja više video-a od udaljene replike, u stranicama od najviše
+     * crdt.sync.push-max-batch video-a. Greška se propagira - pozivalac je broji
+     * kao repliku koja nije odgovorila.
      */
-    private GCounter fetchRemoteGCounter(String replicaUrl, Long videoId) {
-        try {
-            String url = replicaUrl + "/api/crdt/state/" + videoId;
+    private List<CRDTSyncRequest> fetchRemoteStates(String replicaUrl, List<Long> videoIds) {
+        String url = replicaUrl + "/api/crdt/state/batch";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(useBinary(replicaUrl)
+                ? List.of(CRDTBinaryHttpMessageConverter.CRDT_BINARY, MediaType.APPLICATION_JSON)
+                : List.of(MediaType.APPLICATION_JSON));
 
-            ResponseEntity<CRDTSyncRequest> response = restTemplate.getForEntity(url, CRDTSyncRequest.class);
+        List<CRDTSyncRequest> states = new ArrayList<>(videoIds.size());
+        for (int from = 0; from < videoIds.size(); from += maxBatchSize) {
+            List<Long> page = videoIds.subList(from, Math.min(from + maxBatchSize, videoIds.size()));
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                CRDTSyncRequest remoteState = response.getBody();
-                return new GCounter(remoteState.getCounts());
-            } else {
-                return new GCounter();
-            }
+            ResponseEntity<CRDTSyncBatchRequest> response = restTemplate.exchange(
+                    url, HttpMethod.POST, new HttpEntity<>(page, headers), CRDTSyncBatchRequest.class);
 
-        } catch (Exception e) {
-            LOG.error("[{}] Error fetching state from {}: {}", replicaId, replicaUrl, e.getMessage());
-            return new GCounter();
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                throw new RuntimeException("Failed to fetch states: " + response.getStatusCode());
+            }
+            states.addAll(response.getBody().getStates());
         }
+        return states;
+    }
+
+    private boolean useBinary(String replicaUrl) {
+        return "binary".equalsIgnoreCase(wireFormat) && !jsonOnlyPeers.contains(replicaUrl);
     }
 
     /**
@@ -177,15 +467,15 @@ public class ReplicaSyncService {
         // Uzmi merged vrednost za TRENUTNU repliku
         Long mergedCount = mergedCounter.getReplicaCount(replicaId);
 
-        // Update SAMO lokalnu tabelu
-        ViewCount localViewCount = viewCountRepository
+        // Update SAMO lokalnu tabelu - MAX operacija (CRDT svojstvo) se radi atomski u bazi,
+        // pa ne može da pregazi delte koje je u međuvremenu upisao CRDTViewCountBuffer
+        long localCount = viewCountRepository
                 .findByVideoIdAndReplicaId(videoId, replicaId)
-                .orElse(new ViewCount(videoId, replicaId));
+                .map(ViewCount::getCount)
+                .orElse(0L);
 
-        // MAX operacija (CRDT svojstvo)
-        if (mergedCount > localViewCount.getCount()) {
-            localViewCount.setCount(mergedCount);
-            viewCountRepository.save(localViewCount);
+        if (mergedCount > localCount) {
+            viewCountRepository.mergeMax(videoId, replicaId, mergedCount);
 
             LOG.debug("[{}] Updated local count for video {} to {}",
                     replicaId, videoId, mergedCount);
@@ -201,12 +491,7 @@ public class ReplicaSyncService {
                 replicaId, syncRequest.getSourceReplicaId(), syncRequest.getVideoId());
 
         try {
-            GCounter localCounter = getLocalGCounter(syncRequest.getVideoId());
-            GCounter remoteCounter = new GCounter(syncRequest.getCounts());
-
-            GCounter merged = localCounter.merge(remoteCounter);
-
-            applyMergedCountsToLocalTable(syncRequest.getVideoId(), merged);
+            mergeRemoteState(syncRequest);
 
             LOG.info("[{}] Successfully merged sync request from {} for video {}",
                     replicaId, syncRequest.getSourceReplicaId(), syncRequest.getVideoId());
@@ -216,4 +501,50 @@ public class ReplicaSyncService {
                     replicaId, syncRequest.getSourceReplicaId(), e.getMessage());
         }
     }
+
+    /**
+     * Prima batch stanja od druge replike i merge-uje ceo batch u jednoj transakciji.
+     * Ako bilo koji merge pukne, cela transakcija se poništava i pošiljalac ponavlja batch.
+     */
+    @Transactional
+    public void receiveSyncBatch(CRDTSyncBatchRequest batch) {
+        List<Long> videoIds = new ArrayList<>(batch.getStates().size());
+        for (CRDTSyncRequest state : batch.getStates()) {
+            videoIds.add(state.getVideoId());
+        }
+
+        Map<Long, Long> localCounts = new HashMap<>();
+        for (ViewCount vc : viewCountRepository.findByVideoIdsAndReplicaId(videoIds, replicaId)) {
+            localCounts.put(vc.getVideoId(), vc.getCount());
+        }
+
+        // Isto kao mergeRemoteState, ali jedan upit za čitanje i jedan batch MAX upis za ceo batch
+        Map<Long, Long> raised = new HashMap<>();
+        for (CRDTSyncRequest state : batch.getStates()) {
+            Long remoteCount = state.getCounts().get(replicaId);
+            if (remoteCount != null && remoteCount > localCounts.getOrDefault(state.getVideoId(), 0L)) {
+                raised.merge(state.getVideoId(), remoteCount, Math::max);
+            }
+        }
+        viewCountRepository.mergeMaxBatch(replicaId, raised);
+
+        for (CRDTSyncRequest state : batch.getStates()) {
+            viewCountCache.merge(state.getVideoId(), membershipService.retainKnownReplicas(state.getCounts()));
+        }
+
+        LOG.debug("[{}] Merged sync batch of {} videos from {}",
+                replicaId, batch.getStates().size(), batch.getSourceReplicaId());
+    }
+
+    private void mergeRemoteState(CRDTSyncRequest syncRequest) {
+        // Samo replike iz članstva - nepoznati ID ne sme da uđe u G-Counter i read keš
+        Map<String, Long> counts = membershipService.retainKnownReplicas(syncRequest.getCounts());
+        GCounter merged = getLocalGCounter(syncRequest.getVideoId())
+                .mergeInto(new GCounter(counts));
+
+        applyMergedCountsToLocalTable(syncRequest.getVideoId(), merged);
+
+        // Push/anti-entropy drže materijalizovani merged brojač svežim
+        viewCountCache.merge(syncRequest.getVideoId(), counts);
+    }
 }
\ No newline at end of file
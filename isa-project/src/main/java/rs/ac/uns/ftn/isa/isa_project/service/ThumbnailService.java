@@ -0,0 +1,418 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailContent;
+import rs.ac.uns.ftn.isa.isa_project.storage.LocalStorageBackend;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Umanjene varijante thumbnail-a (podrazumevano 160/320/640 px širine, JPEG).
+ *
+ * - Varijante pravi poseban ograničen pool (thumbnail.pipeline.threads, red thumbnail.pipeline.queue-capacity),
+ *   odvojen od request niti; pun red ne blokira upload - varijanta se napravi pri prvom zahtevu.
+ * - Upload zakazuje izradu posle commit-a; stariji videi (ili druga replika) dobijaju varijante
+ *   pri prvom ?w= zahtevu, a do tada se vraća original (pending).
+ * - Varijante se čuvaju na lokalnom disku u storage/thumbs/variants/<ime originala>/<širina>.jpg -
+ *   ime originala je UUID ili SHA-256, pa se varijante nikad ne mešaju između različitih slika.
+ * - thumbnail.serving-mode=mapped: fajl se mapira (read-only MappedByteBuffer) i šalje iz mapiranja,
+ *   bez byte[] po zahtevu; mapiranja se drže u LRU mapi (thumbnail.mapped.max-entries).
+ *   Podrazumevano (cache) slika se čita u byte[] i kešira u ehcache-u.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final String VARIANTS_DIR = "thumbs/variants";
+    // Original koji ImageIO ne ume da pročita - varijante se ne prave, servira se original
+    private static final String UNSUPPORTED_MARKER = "unsupported";
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private LocalStorageBackend localStorage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thumbnail.variant-widths:160,320,640}")
+    private int[] variantWidths;
+
+    @Value("${thumbnail.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${thumbnail.pipeline.threads:2}")
+    private int threads;
+
+    @Value("${thumbnail.pipeline.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${thumbnail.serving-mode:cache}")
+    private String servingMode;
+
+    @Value("${thumbnail.mapped.max-entries:10000}")
+    private int mappedMaxEntries;
+
+    private ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // "videoId:širina" -> mapiranje; najstarije izbačeno mapiranje GC oslobađa (munmap)
+    private Map<String, MappedThumbnail> mappedThumbnails;
+
+    @PostConstruct
+    public void init() {
+        variantWidths = Arrays.stream(variantWidths).filter(width -> width > 0).sorted().distinct().toArray();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        meterRegistry.gauge("thumbnail.pipeline.queue", executor, pool -> pool.getQueue().size());
+
+        mappedThumbnails = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MappedThumbnail> eldest) {
+                return size() > mappedMaxEntries;
+            }
+        });
+        meterRegistry.gauge("thumbnail.mapped.entries", mappedThumbnails, Map::size);
+        meterRegistry.gauge("thumbnail.mapped.bytes", mappedThumbnails, this::mappedBytes);
+
+        LOG.info("Thumbnail variants {} px, {} worker(s), serving mode {}",
+                Arrays.toString(variantWidths), threads, servingMode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Zakazuje izradu varijanti. Ako je u toku transakcija, tek posle commit-a
+     * (rollback-ovan upload nema šta da umanjuje).
+     */
+    public void scheduleVariants(String thumbnailPath) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(thumbnailPath);
+                }
+            });
+        } else {
+            submit(thumbnailPath);
+        }
+    }
+
+    /**
+     * Najmanja varijanta široka bar koliko je traženo; 0 (original) ako širina nije zadata
+     * ili je veća od najveće varijante.
+     */
+    public int selectWidth(Integer requestedWidth) {
+        if (requestedWidth == null || requestedWidth <= 0) {
+            return 0;
+        }
+        for (int width : variantWidths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Varijanta sa diska, ili original (pending) ako varijanta još ne postoji.
+     * Poziva se samo na promašaj keša, pa thumbnail.cache.load.bytes meri šta ulazi u keš.
+     */
+    public ThumbnailContent load(String thumbnailPath, int width) throws IOException {
+        ThumbnailContent thumbnail = null;
+        boolean pending = false;
+        if (width > 0) {
+            Path directory = variantDirectory(thumbnailPath);
+            try {
+                byte[] data = Files.readAllBytes(directory.resolve(width + ".jpg"));
+                thumbnail = new ThumbnailContent(data, MediaType.IMAGE_JPEG_VALUE, width, false,
+                        etagOf(ByteBuffer.wrap(data)));
+            } catch (NoSuchFileException e) {
+                if (!Files.exists(directory.resolve(UNSUPPORTED_MARKER))) {
+                    submit(thumbnailPath);
+                    pending = true;
+                }
+            }
+        }
+        if (thumbnail == null) {
+            byte[] data = fileStorageService.readFile(thumbnailPath);
+            thumbnail = new ThumbnailContent(data, detectContentType(ByteBuffer.wrap(data)), 0, pending,
+                    etagOf(ByteBuffer.wrap(data)));
+        }
+
+        DistributionSummary.builder("thumbnail.cache.load.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(thumbnail.getData().length);
+        return thumbnail;
+    }
+
+    public boolean isMappedMode() {
+        return "mapped".equalsIgnoreCase(servingMode);
+    }
+
+    /**
+     * Mapiran thumbnail (varijanta ili original), ili null ako original nije na lokalnom disku
+     * (S3 backend) - tada pozivalac ide preko keša. thumbnailPath se čita iz baze samo na promašaj.
+     */
+    public MappedThumbnail getMapped(Long videoId, int width, Callable<String> thumbnailPath) throws Exception {
+        String key = videoId + ":" + width;
+        MappedThumbnail cached = mappedThumbnails.get(key);
+        if (cached != null) {
+            meterRegistry.counter("thumbnail.mapped.requests", "result", "hit").increment();
+            return cached;
+        }
+        meterRegistry.counter("thumbnail.mapped.requests", "result", "miss").increment();
+
+        String location = thumbnailPath.call();
+        Path file = null;
+        boolean pending = false;
+        if (width > 0) {
+            Path directory = variantDirectory(location);
+            Path variant = directory.resolve(width + ".jpg");
+            if (Files.exists(variant)) {
+                file = variant;
+            } else if (!Files.exists(directory.resolve(UNSUPPORTED_MARKER))) {
+                submit(location);
+                pending = true;
+            }
+        }
+        int servedWidth = file != null ? width : 0;
+        if (file == null) {
+            file = fileStorageService.backendFor(location).localPath(location);
+            if (file == null) {
+                return null;
+            }
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Mapiranje ostaje važeće i posle zatvaranja kanala
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        String contentType = servedWidth > 0 ? MediaType.IMAGE_JPEG_VALUE : detectContentType(buffer);
+        MappedThumbnail thumbnail = new MappedThumbnail(buffer, contentType, servedWidth, pending, etagOf(buffer));
+
+        // Original umesto varijante u izradi se ne pamti - sledeći zahtev proverava varijantu ponovo
+        if (!pending) {
+            mappedThumbnails.put(key, thumbnail);
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Beleži poslate bajtove po varijanti (thumbnail.bytes.served) - zbir po učitavanju
+     * početne strane se vidi iz sum / count za variant=original i za varijante.
+     */
+    public void recordServed(int width, long bytes) {
+        DistributionSummary.builder("thumbnail.bytes.served")
+                .baseUnit("bytes")
+                .tag("variant", width > 0 ? String.valueOf(width) : "original")
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    public void recordNotModified() {
+        meterRegistry.counter("thumbnail.not-modified").increment();
+    }
+
+    private void submit(String thumbnailPath) {
+        String name = baseName(thumbnailPath);
+        if (!inFlight.add(name)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(thumbnailPath);
+                } catch (Exception e) {
+                    LOG.warn("Thumbnail variants for {} failed: {}", thumbnailPath, e.getMessage());
+                } finally {
+                    inFlight.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(name);
+            meterRegistry.counter("thumbnail.variants.rejected").increment();
+            LOG.warn("Thumbnail queue full, variants for {} postponed", thumbnailPath);
+        }
+    }
+
+    private void generateVariants(String thumbnailPath) throws IOException {
+        long started = System.nanoTime();
+        Path directory = variantDirectory(thumbnailPath);
+        Files.createDirectories(directory);
+
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(fileStorageService.readFile(thumbnailPath)));
+        if (original == null) {
+            Files.write(directory.resolve(UNSUPPORTED_MARKER), new byte[0]);
+            LOG.warn("Thumbnail {} is not a readable image, serving original only", thumbnailPath);
+            return;
+        }
+
+        for (int width : variantWidths) {
+            Path target = directory.resolve(width + ".jpg");
+            if (Files.exists(target)) {
+                continue;
+            }
+            // Manji original se ne uvećava - varijanta je samo ponovo kodiran JPEG
+            byte[] jpeg = encodeJpeg(resize(original, Math.min(width, original.getWidth())));
+            Path temp = directory.resolve(width + "." + UUID.randomUUID() + ".tmp");
+            Files.write(temp, jpeg);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        meterRegistry.timer("thumbnail.variants.generation").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        LOG.info("Thumbnail variants for {} created", directory.getFileName());
+    }
+
+    /**
+     * Umanjenje u koracima od najviše pola (bilinearno) - jedan veliki korak preskače piksele
+     * i daje nazubljenu sliku. Providnost se popunjava belom jer JPEG nema alfa kanal.
+     */
+    static BufferedImage resize(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * (double) targetWidth / source.getWidth()));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Tip slike po potpisu (magic bytes) - original može biti PNG, GIF ili WebP, ne samo JPEG.
+     */
+    static String detectContentType(ByteBuffer data) {
+        int length = data.limit();
+        if (length >= 3 && (data.get(0) & 0xff) == 0xFF && (data.get(1) & 0xff) == 0xD8 && (data.get(2) & 0xff) == 0xFF) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (length >= 8 && (data.get(0) & 0xff) == 0x89 && data.get(1) == 'P' && data.get(2) == 'N' && data.get(3) == 'G') {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (length >= 6 && data.get(0) == 'G' && data.get(1) == 'I' && data.get(2) == 'F' && data.get(3) == '8') {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (length >= 12 && data.get(0) == 'R' && data.get(1) == 'I' && data.get(2) == 'F' && data.get(3) == 'F'
+                && data.get(8) == 'W' && data.get(9) == 'E' && data.get(10) == 'B' && data.get(11) == 'P') {
+            return "image/webp";
+        }
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /**
+     * Jak ETag: prvih 128 bita SHA-256 sadržaja (isti na svim replikama i u oba serving moda).
+     */
+    private static String etagOf(ByteBuffer data) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(data.duplicate());
+            byte[] digest = sha256.digest();
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double mappedBytes(Map<String, MappedThumbnail> thumbnails) {
+        synchronized (thumbnails) {
+            return thumbnails.values().stream().mapToLong(MappedThumbnail::contentLength).sum();
+        }
+    }
+
+    private Path variantDirectory(String thumbnailPath) {
+        return localStorage.resolve(VARIANTS_DIR).resolve(baseName(thumbnailPath));
+    }
+
+    private static String baseName(String location) {
+        String name = location.substring(location.replace('\\', '/').lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
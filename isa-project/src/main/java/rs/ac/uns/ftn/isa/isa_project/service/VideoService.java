@@ -1,14 +1,22 @@
 package rs.ac.uns.ftn.isa.isa_project.service;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailContent;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoCursor;
 import rs.ac.uns.ftn.isa.isa_project.dto.VideoResponseDTO;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoStreamUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.dto.VideoUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import java.io.InputStream;
 import java.util.List;
 
 public interface VideoService {
     Video createVideo(VideoUploadDTO dto) throws Exception;
-    byte[] getThumbnailContent(Long videoId) throws Exception;
+    Video createVideoFromStream(VideoStreamUploadDTO dto, InputStream body, long contentLength,
+                                String expectedChecksum) throws Exception;
+    ThumbnailContent getThumbnailContent(Long videoId, int width) throws Exception;
     Video getVideoById(Long videoId) throws Exception;
     List<Video> getAllVideos();
+    List<Video> getVideosPage(VideoCursor after, int size);
     void incrementViewCount(Long videoId);
+    void incrementViewCountLocked(Long videoId);
 }
 
@@ -1,23 +1,31 @@
 package rs.ac.uns.ftn.isa.isa_project.service;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailContent;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoCursor;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoStreamUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.dto.VideoUploadDTO;
 import rs.ac.uns.ftn.isa.isa_project.model.User;
 import rs.ac.uns.ftn.isa.isa_project.model.Video;
 import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -33,6 +41,35 @@ public class VideoServiceImpl implements VideoService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private VideoViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${video.view-count.write-behind:true}")
+    private boolean writeBehindEnabled;
+
+    @Value("${video.upload.max-bytes:209715200}")
+    private long maxUploadBytes;
+
+    @Value("${video.upload.timeout-ms:300000}")
+    private long uploadTimeoutMs;
+
+    private TransactionTemplate lockedIncrementTx;
+
+    private TransactionTemplate createVideoTx;
+
+    @PostConstruct
+    public void init() {
+        lockedIncrementTx = new TransactionTemplate(transactionManager);
+        lockedIncrementTx.setTimeout(5);
+        createVideoTx = new TransactionTemplate(transactionManager);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Video createVideo(VideoUploadDTO dto) throws Exception {
@@ -65,7 +102,9 @@ public class VideoServiceImpl implements VideoService {
             video.setVideoPath(videoPath);
             video.setThumbnailPath(thumbnailPath);
 
-            return videoRepository.save(video);
+            Video saved = videoRepository.save(video);
+            thumbnailService.scheduleVariants(thumbnailPath);
+            return saved;
 
         } catch (TimeoutException e) {
             logger.error("TIMEOUT! Pokrećem rollback fajlova...");
@@ -83,6 +122,79 @@ public class VideoServiceImpl implements VideoService {
             throw new Exception("Kreiranje videa neuspelo: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Streaming varijanta createVideo: video se čita iz tela zahteva u request niti i piše
+     * direktno na konačnu lokaciju (bez multipart temp fajla i bez čekanja na Future).
+     * Rollback je isti - pri bilo kojoj grešci se brišu thumbnail i video fajl.
+     *
+     * Transakcija obuhvata samo upis u bazu: konekcija iz pool-a se ne drži dok traje upload.
+     */
+    @Override
+    public Video createVideoFromStream(VideoStreamUploadDTO dto, InputStream body, long contentLength,
+                                       String expectedChecksum) throws Exception {
+        User author = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        // Content-Length je poznat unapred - preveliki upload se odbija pre čitanja tela
+        if (contentLength > maxUploadBytes) {
+            throw new MaxUploadSizeExceededException(maxUploadBytes);
+        }
+
+        List<String> uploadedFiles = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(uploadTimeoutMs);
+
+        try {
+            // 1. Thumbnail pripremljen na POST /api/videos/thumbnails
+            String thumbnailPath = fileStorageService.claimStagedFile(dto.getThumbnailId(), "thumbs");
+            uploadedFiles.add(thumbnailPath);
+
+            // 2. Video iz tela zahteva, sa limitom veličine i rokom
+            FileStorageService.StoredFile stored = fileStorageService.saveStream(
+                    body, "videos", ".mp4", maxUploadBytes, deadline);
+            uploadedFiles.add(stored.getPath());
+
+            if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(stored.getSha256())) {
+                throw new IllegalArgumentException("Checksum videa ne odgovara (primljeno " + stored.getSha256() + ")");
+            }
+
+            // 3. Kreiranje Video objekta
+            Video video = new Video();
+            video.setTitle(dto.getTitle());
+            video.setDescription(dto.getDescription());
+            video.setTags(dto.getParsedTags());
+            video.setLatitude(dto.getLatitude());
+            video.setLongitude(dto.getLongitude());
+            video.setAuthor(author);
+            video.setVideoPath(stored.getPath());
+            video.setVideoChecksum(stored.getSha256());
+            video.setThumbnailPath(thumbnailPath);
+
+            Video saved = createVideoTx.execute(status -> videoRepository.save(video));
+            thumbnailService.scheduleVariants(thumbnailPath);
+            return saved;
+
+        } catch (TimeoutException e) {
+            logger.error("TIMEOUT! Pokrećem rollback fajlova...");
+            rollbackFiles(uploadedFiles);
+            throw e;
+
+        } catch (IOException e) {
+            logger.error("I/O GREŠKA! Pokrećem rollback fajlova...");
+            rollbackFiles(uploadedFiles);
+            throw e;
+
+        } catch (MaxUploadSizeExceededException | IllegalArgumentException e) {
+            logger.warn("Upload odbijen ({}), pokrećem rollback fajlova", e.getMessage());
+            rollbackFiles(uploadedFiles);
+            throw e;
+
+        } catch (Exception e) {
+            logger.error("GREŠKA! Pokrećem rollback fajlova: {}", e.getMessage());
+            rollbackFiles(uploadedFiles);
+            throw new Exception("Kreiranje videa neuspelo: " + e.getMessage(), e);
+        }
+    }
+
     private void rollbackFiles(List<String> uploadedFiles) {
         for (String filePath : uploadedFiles) {
             boolean deleted = fileStorageService.deleteFile(filePath);
@@ -94,15 +206,14 @@ public class VideoServiceImpl implements VideoService {
         }
     }
     @Override
-    @Cacheable(value = "thumbnails", key = "#videoId")
-    public byte[] getThumbnailContent(Long videoId) throws Exception {
-        // Ova metoda se izvršava SAMO ako slika nije u kešu
+    @Cacheable(value = "thumbnails", key = "#videoId + ':' + #width", unless = "#result.pending")
+    public ThumbnailContent getThumbnailContent(Long videoId, int width) throws Exception {
+        // Ova metoda se izvršava SAMO ako slika (ta varijanta) nije u kešu
         Video v = videoRepository.findById(videoId)
                 .orElseThrow(() -> new Exception("Video nije pronađen"));
 
-        Path path = Paths.get(v.getThumbnailPath());
-        System.out.println("ČITAM THUMBNAIL SA DISKA");
-        return Files.readAllBytes(path);
+        logger.debug("Thumbnail cache miss for video {} (width {}), reading from storage", videoId, width);
+        return thumbnailService.load(v.getThumbnailPath(), width);
     }
 
     @Override
@@ -115,20 +226,61 @@ public class VideoServiceImpl implements VideoService {
     @Override
     @Transactional(readOnly = true)
     public List<Video> getAllVideos() {
-        return videoRepository.findAllByOrderByCreatedAtDesc();
+        return videoRepository.findAllWithAuthorOrderByCreatedAtDesc();
     }
 
-    // Increment SA TRANSAKCIJOM i LOCK-om
+    /**
+     * Keyset stranica: prvo id-evi stranice (indeks na created_at, id + LIMIT),
+     * pa video-i sa autorom i tagovima za te id-eve. JOIN FETCH kolekcija zajedno
+     * sa LIMIT-om bi Hibernate radio u memoriji nad celom tabelom.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Video> getVideosPage(VideoCursor after, int size) {
+        PageRequest limit = PageRequest.of(0, size);
+        List<Long> ids = after == null
+                ? videoRepository.findPageIds(limit)
+                : videoRepository.findPageIdsAfter(after.getCreatedAt(), after.getId(), limit);
+
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<Video> videos = new ArrayList<>(videoRepository.findAllWithAuthorByIdIn(ids));
+        videos.sort(Comparator.comparing(Video::getCreatedAt).thenComparing(Video::getId).reversed());
+        return videos;
+    }
+
+    /**
+     * Inkrement pregleda. U write-behind modu samo uvećava brojač u memoriji
+     * (bez lock-a i bez konekcije ka bazi), a bafer periodično upisuje delte.
+     */
     @Override
-    @Transactional(timeout = 5)
     public void incrementViewCount(Long videoId) {
-        // 1. Pročitaj video SA LOCK-om (drugi korisnici ČEKAJU ovde)
-        Video video = videoRepository.findByIdForUpdate(videoId)
-                .orElseThrow(() -> new RuntimeException("Video ne postoji!"));
+        if (!writeBehindEnabled) {
+            incrementViewCountLocked(videoId);
+            return;
+        }
+
+        // Postojanje videa se proverava samo pri prvom pregledu
+        if (!viewCountBuffer.isTracked(videoId) && !videoRepository.existsById(videoId)) {
+            throw new RuntimeException("Video ne postoji!");
+        }
 
-        video.setViewCount(video.getViewCount() + 1);
+        viewCountBuffer.increment(videoId);
+    }
+
+    // Increment SA TRANSAKCIJOM i LOCK-om
+    @Override
+    public void incrementViewCountLocked(Long videoId) {
+        lockedIncrementTx.executeWithoutResult(status -> {
+            // 1. Pročitaj video SA LOCK-om (drugi korisnici ČEKAJU ovde)
+            Video video = videoRepository.findByIdForUpdate(videoId)
+                    .orElseThrow(() -> new RuntimeException("Video ne postoji!"));
 
-        videoRepository.save(video);
+            video.setViewCount(video.getViewCount() + 1);
 
+            videoRepository.save(video);
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import rs.ac.uns.ftn.isa.isa_project.storage.StorageBackend;
+import rs.ac.uns.ftn.isa.isa_project.storage.StorageObject;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Slanje video fajla sa podrškom za HTTP Range (RFC 7233) i uslovne GET zahteve.
+ *
+ * - Range: bytes=... -> 206 sa jednim opsegom ili multipart/byteranges za više opsega;
+ *   nezadovoljiv opseg -> 416 (Content-Range nosi samo veličinu fajla).
+ * - ETag (SHA-256 za content-addressed blob, inače veličina + vreme izmene) i Last-Modified; If-None-Match / If-Modified-Since -> 304,
+ *   If-Match / If-Unmodified-Since -> 412, If-Range se poštuje (inače ide ceo fajl).
+ * - Ceo fajl i pojedinačan opseg idu preko Tomcat sendfile-a kada ga konektor podržava
+ *   (video.stream.sendfile-enabled), a inače preko FileChannel.transferTo.
+ * - Fajl bez lokalne putanje (S3 backend) se šalje iz ranged GET-a - čita se samo traženi opseg.
+ */
+@Service
+public class VideoStreamingService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VideoStreamingService.class);
+
+    // Tomcat request atributi za sendfile (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    @Value("${video.stream.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${video.stream.cache-max-age-seconds:86400}")
+    private long cacheMaxAgeSeconds;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    /**
+     * Šalje fajl (ili traženi deo fajla) direktno u response.
+     */
+    public void stream(String location, MediaType contentType,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StorageBackend backend = fileStorageService.backendFor(location);
+        StorageObject object;
+        try {
+            object = backend.stat(location);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StoredVideo video = new StoredVideo(backend, location, backend.localPath(location));
+
+        long length = object.getSize();
+        long lastModified = object.getLastModified();
+
+        // Content-addressed blob: ime je sam SHA-256 sadržaja - stabilan ETag na svim replikama
+        String digest = FileStorageService.blobDigest(location);
+        String etag = digest != null
+                ? "\"" + digest + "\""
+                : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Fajl videa se ne menja (jedinstveno ime po uploadu), pa ga nginx/browser mogu keširati
+        response.setHeader(HttpHeaders.CACHE_CONTROL, digest != null
+                ? "public, max-age=31536000, immutable"
+                : "public, max-age=" + cacheMaxAgeSeconds);
+
+        // Postavlja ETag i Last-Modified; 304 / 412 su već upisani ako vrati true
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                sendRegion(video, 0, length, request, response);
+            }
+            return;
+        }
+
+        List<long[]> ranges = resolveRanges(rangeHeader, length);
+        if (ranges == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                sendRegion(video, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        sendMultipart(video, contentType, ranges, length, head, response);
+    }
+
+    /**
+     * Prepisuje [start, start + count) iz fajla u izlazni kanal preko FileChannel.transferTo.
+     * Ako je out FileChannel ili SocketChannel, JDK koristi sendfile/splice (bez kopiranja kroz heap).
+     */
+    public static void transferRegion(FileChannel file, long start, long count,
+                                      WritableByteChannel out) throws IOException {
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = file.transferTo(position, remaining, out);
+            if (transferred <= 0) {
+                // Fajl je skraćen u međuvremenu - Content-Length više ne važi
+                throw new EOFException("File ended at " + position + ", expected " + (start + count));
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private void sendRegion(StoredVideo video, long start, long count,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (video.path != null && sendfileEnabled
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat šalje fajl sam kada servlet završi (sendfile iz page cache-a u socket)
+            request.setAttribute(SENDFILE_FILENAME_ATTR, video.path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try {
+            OutputStream out = response.getOutputStream();
+            writeRegion(video, start, count, out);
+            out.flush();
+        } catch (IOException e) {
+            // Plejer prekida konekciju pri svakom seek-u - nije greška servera
+            LOG.debug("Streaming of {} [{}-{}] aborted: {}", video.location, start, start + count - 1, e.getMessage());
+        }
+    }
+
+    /**
+     * Lokalni fajl ide preko transferTo, a objekat bez lokalne putanje preko ranged GET-a.
+     */
+    private void writeRegion(StoredVideo video, long start, long count, OutputStream out) throws IOException {
+        if (video.path != null) {
+            try (FileChannel file = FileChannel.open(video.path, StandardOpenOption.READ)) {
+                transferRegion(file, start, count, Channels.newChannel(out));
+            }
+            return;
+        }
+        try (InputStream in = video.backend.openStream(video.location, start, count)) {
+            if (in.transferTo(out) != count) {
+                throw new EOFException("Object " + video.location + " ended before " + (start + count));
+            }
+        }
+    }
+
+    private void sendMultipart(StoredVideo video, MediaType contentType, List<long[]> ranges, long length,
+                               boolean head, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            String header = (i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range[0], range[1], length) + "\r\n"
+                    + "\r\n";
+            byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + (range[1] - range[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        try {
+            OutputStream out = response.getOutputStream();
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                writeRegion(video, range[0], range[1] - range[0] + 1, out);
+            }
+            out.write(closing);
+            out.flush();
+        } catch (IOException e) {
+            LOG.debug("Multipart streaming of {} aborted: {}", video.location, e.getMessage());
+        }
+    }
+
+    /**
+     * Opsezi kao [start, end] (uključivo), ili null ako Range nije zadovoljiv.
+     */
+    private List<long[]> resolveRanges(String rangeHeader, long length) {
+        List<long[]> resolved = new ArrayList<>();
+        long total = 0;
+        try {
+            for (HttpRange range : HttpRange.parseRanges(rangeHeader)) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                resolved.add(new long[]{start, end});
+                total += end - start + 1;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (resolved.isEmpty() || total > length) {
+            // Preklopljeni opsezi veći od fajla - odbijamo umesto da šaljemo iste bajtove više puta
+            return null;
+        }
+        return resolved;
+    }
+
+    /**
+     * If-Range: Range važi samo ako se validator poklapa sa trenutnom verzijom fajla.
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Slabi ETag nikad ne odgovara za Range (strong comparison)
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+
+    /**
+     * Video koji se šalje: backend, lokacija i lokalna putanja (null ako fajl nije na disku).
+     */
+    private static class StoredVideo {
+        private final StorageBackend backend;
+        private final String location;
+        private final Path path;
+
+        StoredVideo(StorageBackend backend, String location, Path path) {
+            this.backend = backend;
+            this.location = location;
+            this.path = path;
+        }
+    }
+}
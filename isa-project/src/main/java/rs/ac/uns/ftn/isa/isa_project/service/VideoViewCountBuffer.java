@@ -0,0 +1,204 @@
+package rs.ac.uns.ftn.isa.isa_project.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoViewCountRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind bafer za videos.view_count.
+ *
+ * Inkrementi se skupljaju u memoriji (LongAdder po videu, bez lock-a),
+ * a periodično se agregirane delte upisuju u bazu jednim batch UPDATE-om.
+ * Pri gašenju aplikacije radi se poslednji flush.
+ *
+ * LongAdder se nikad ne resetuje - pamti se koliko je već upisano (flushed),
+ * pa delta = sum() - flushed. Inkrement koji se desi tokom flush-a ostaje
+ * za sledeći tick i nijedan pregled se ne gubi.
+ *
+ * Stripe koji je upisan i do sledećeg flush-a nije dobio nijedan pregled se izbacuje
+ * iz mape, pa mapa drži samo video-e koji se trenutno gledaju.
+ */
+@Component
+public class VideoViewCountBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VideoViewCountBuffer.class);
+
+    @Autowired
+    private VideoViewCountRepository viewCountRepository;
+
+    private final ConcurrentHashMap<Long, Stripe> stripes = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Da li je video već viđen u baferu (postojanje je provereno pri prvom pregledu).
+     */
+    public boolean isTracked(Long videoId) {
+        return stripes.containsKey(videoId);
+    }
+
+    /**
+     * Lock-free inkrement - ne dira bazu.
+     */
+    public void increment(Long videoId) {
+        add(videoId, 1);
+    }
+
+    /**
+     * Ako je flush izbacio stripe pre nego što je video ovaj pregled, pregledi koji su
+     * stigli posle izbacivanja se prenose na novi stripe.
+     */
+    private void add(Long videoId, long views) {
+        Stripe stripe = stripes.computeIfAbsent(videoId, id -> new Stripe());
+        stripe.views.add(views);
+        if (stripe.isEvicted()) {
+            long late = stripe.claimLateViews();
+            if (late > 0) {
+                add(videoId, late);
+            }
+        }
+    }
+
+    /**
+     * Broj pregleda koji su primljeni ali još nisu upisani u bazu.
+     */
+    public long getPendingViews(Long videoId) {
+        Stripe stripe = stripes.get(videoId);
+        return stripe == null ? 0L : stripe.pendingDelta();
+    }
+
+    /**
+     * Upisuje sve nagomilane delte u bazu jednim batch UPDATE-om.
+     * Ako upis ne uspe, delte ostaju u baferu za sledeći pokušaj.
+     */
+    @Scheduled(fixedDelayString = "${video.view-count.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Long> deltas = new HashMap<>();
+            // Stripe čija je delta upisana - get() bi posle izbacivanja mogao da vrati novi stripe
+            Map<Long, Stripe> flushedStripes = new HashMap<>();
+            stripes.forEach((videoId, stripe) -> {
+                if (stripe.state == Stripe.EVICTED) {
+                    // Iteracija mape može da vrati već izbačen stripe; njegove preglede broji novi
+                    return;
+                }
+                long delta = stripe.pendingDelta();
+                if (delta > 0) {
+                    deltas.put(videoId, delta);
+                    flushedStripes.put(videoId, stripe);
+                } else {
+                    // Sve je upisano prethodnim flush-om i od tada nema pregleda
+                    evictIfIdle(videoId, stripe);
+                }
+            });
+
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Integer> updated = viewCountRepository.addViewCountDeltas(deltas);
+
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                Long videoId = entry.getKey();
+                if (updated.getOrDefault(videoId, 0) == 0) {
+                    // Video je obrisan u međuvremenu - nema gde da se upiše
+                    stripes.remove(videoId);
+                    LOG.warn("Video {} ne postoji, odbačeno {} pregleda", videoId, entry.getValue());
+                } else {
+                    flushedStripes.get(videoId).flushed += entry.getValue();
+                }
+            }
+
+            LOG.debug("View count flush: {} video-a upisano", deltas.size());
+
+        } catch (Exception e) {
+            LOG.error("View count flush neuspešan, pokušaće se ponovo: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Izbacuje stripe bez neupisanih pregleda. Inkrement koji stigne tokom izbacivanja
+     * čeka odluku: ako ga pendingDelta vidi, stripe ostaje; ako ne vidi, stripe je
+     * izbačen i inkrement se ponavlja na novom - pregled se ne broji dvaput ni ne gubi.
+     */
+    private void evictIfIdle(Long videoId, Stripe stripe) {
+        stripe.state = Stripe.EVICTING;
+        if (stripe.pendingDelta() == 0) {
+            // Prvo iz mape, pa tek onda EVICTED - preneti pregledi ne smeju da završe u istom stripe-u
+            stripes.remove(videoId, stripe);
+            stripe.state = Stripe.EVICTED;
+        } else {
+            stripe.state = Stripe.LIVE;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        LOG.info("Gašenje aplikacije - flush view count bafera");
+        flush();
+    }
+
+    /**
+     * Brojač za jedan video. flushed i state menja samo nit koja drži flushLock.
+     *
+     * Izbačen stripe je upisan tačno do flushed; sve preko toga su pregledi koji su stigli
+     * posle izbacivanja i njih preuzimaju (claimLateViews) niti koje su ih dodale.
+     */
+    private static class Stripe {
+        static final int LIVE = 0;
+        static final int EVICTING = 1;
+        static final int EVICTED = 2;
+
+        private final LongAdder views = new LongAdder();
+        private final AtomicLong claimed = new AtomicLong();
+        private volatile long flushed;
+        private volatile int state = LIVE;
+
+        long pendingDelta() {
+            return views.sum() - flushed;
+        }
+
+        /**
+         * Da li je stripe izbačen - dok flush odlučuje (EVICTING), kratko čeka.
+         * Ako nije izbačen, inkrement koji je upravo urađen vidi svaki sledeći flush.
+         */
+        boolean isEvicted() {
+            int current;
+            while ((current = state) == EVICTING) {
+                Thread.onSpinWait();
+            }
+            return current == EVICTED;
+        }
+
+        /**
+         * Preuzima preglede izbačenog stripe-a koje flush nije upisao i koje niko još nije preuzeo.
+         * Sopstveni inkrement je već u sum(), pa posle ovoga sigurno pripada nekome.
+         */
+        long claimLateViews() {
+            while (true) {
+                long late = views.sum() - flushed;
+                long alreadyClaimed = claimed.get();
+                if (late <= alreadyClaimed) {
+                    return 0;
+                }
+                if (claimed.compareAndSet(alreadyClaimed, late)) {
+                    return late - alreadyClaimed;
+                }
+            }
+        }
+    }
+}
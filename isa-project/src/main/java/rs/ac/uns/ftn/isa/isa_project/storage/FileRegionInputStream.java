@@ -0,0 +1,65 @@
+package rs.ac.uns.ftn.isa.isa_project.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream preko dela fajla [start, start + length), pozicionim čitanjem iz FileChannel-a -
+ * više ovakvih stream-ova nad istim fajlom (delovi multipart upload-a) ne dele poziciju.
+ */
+public class FileRegionInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    public FileRegionInputStream(Path file, long start, long length) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = start;
+        this.end = start + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (read < 0) {
+            return -1;
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
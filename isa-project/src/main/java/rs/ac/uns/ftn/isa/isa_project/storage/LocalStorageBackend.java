@@ -0,0 +1,101 @@
+package rs.ac.uns.ftn.isa.isa_project.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Fajlovi na lokalnom disku, u storage.local.root (podrazumevano <user.dir>/storage).
+ * Lokacija je apsolutna putanja, kao i pre uvođenja backend-a, pa stari redovi u bazi i dalje važe.
+ *
+ * Ovaj backend uvek postoji - i kada je aktivan S3, tu je lokalni radni prostor za upload-e
+ * (storage/uploads, storage/thumbs/staged, .part fajlovi).
+ */
+@Component
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String NAME = "local";
+
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${storage.local.root:}") String root) {
+        this.root = (root == null || root.isBlank()
+                ? Paths.get(System.getProperty("user.dir"), "storage")
+                : Paths.get(root)).toAbsolutePath();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path resolve(String key) {
+        return root.resolve(key);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean owns(String location) {
+        return !location.contains("://");
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return resolve(key).toString();
+    }
+
+    @Override
+    public String keyOf(String location) {
+        return root.relativize(Paths.get(location).toAbsolutePath()).toString().replace('\\', '/');
+    }
+
+    @Override
+    public String put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        if (!target.equals(source.toAbsolutePath())) {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return target.toString();
+    }
+
+    @Override
+    public boolean exists(String location) {
+        return Files.exists(Paths.get(location));
+    }
+
+    @Override
+    public StorageObject stat(String location) throws IOException {
+        Path path = Paths.get(location);
+        return new StorageObject(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    @Override
+    public InputStream openStream(String location, long start, long length) throws IOException {
+        return new FileRegionInputStream(Paths.get(location), start, length);
+    }
+
+    @Override
+    public Path localPath(String location) {
+        return Paths.get(location);
+    }
+
+    @Override
+    public boolean delete(String location) throws IOException {
+        return Files.deleteIfExists(Paths.get(location));
+    }
+
+    @Override
+    public void download(String location, Path target) throws IOException {
+        Files.copy(Paths.get(location), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,368 @@
+package rs.ac.uns.ftn.isa.isa_project.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fajlovi u S3 kompatibilnom object storage-u (AWS S3, MinIO). Lokacija je s3://bucket/ključ,
+ * pa sve replike vide iste objekte bez deljenog diska.
+ *
+ * - Fajl veći od storage.s3.part-size ide kao multipart upload: delovi se šalju paralelno
+ *   (storage.s3.upload-concurrency niti za ceo servis), svaki deo se čita direktno iz fajla
+ *   (FileRegionInputStream), pa memorija ne zavisi od veličine fajla. Ako neki deo ne uspe,
+ *   upload se prekida (AbortMultipartUpload) da nedovršeni delovi ne ostanu u bucket-u.
+ * - openStream je ranged GET (Range: bytes=start-end), pa seek u plejeru ne vuče ceo objekat.
+ *   Stream zatvoren pre kraja opsega (plejer prekinuo konekciju) se abortuje, ne dočitava.
+ * - Za MinIO: storage.s3.endpoint=http://minio:9000 i storage.s3.path-style-access=true.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = S3StorageBackend.NAME)
+public class S3StorageBackend implements StorageBackend {
+
+    public static final String NAME = "s3";
+
+    private static final Logger LOG = LoggerFactory.getLogger(S3StorageBackend.class);
+    private static final String SCHEME = "s3://";
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    @Value("${storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${storage.s3.bucket:isa-storage}")
+    private String bucket;
+
+    @Value("${storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    /**
+     * Veličina dela multipart upload-a (S3 minimum je 5 MB, osim za poslednji deo).
+     */
+    @Value("${storage.s3.part-size:16777216}")
+    private long partSize;
+
+    @Value("${storage.s3.upload-concurrency:4}")
+    private int uploadConcurrency;
+
+    private S3Client s3;
+    private ExecutorService partExecutor;
+
+    @PostConstruct
+    public void init() {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        s3 = builder.build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        partExecutor = Executors.newFixedThreadPool(uploadConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ensureBucket();
+        LOG.info("S3 storage backend: bucket={}, endpoint={}, partSize={}, concurrency={}",
+                bucket, endpoint.isBlank() ? "aws" : endpoint, partSize, uploadConcurrency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdownNow();
+        s3.close();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean owns(String location) {
+        return location.startsWith(SCHEME);
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return SCHEME + bucket + "/" + key;
+    }
+
+    @Override
+    public String keyOf(String location) {
+        String prefix = SCHEME + bucket + "/";
+        if (!location.startsWith(prefix)) {
+            throw new IllegalArgumentException("Lokacija nije u bucket-u " + bucket + ": " + location);
+        }
+        return location.substring(prefix.length());
+    }
+
+    @Override
+    public String put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size <= partSize) {
+                s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentLength(size).build(),
+                        RequestBody.fromFile(source));
+            } else {
+                multipartUpload(key, source, size);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("S3 upload of " + key + " failed: " + e.getMessage(), e);
+        }
+        Files.deleteIfExists(source);
+        return locationOf(key);
+    }
+
+    @Override
+    public boolean exists(String location) throws IOException {
+        try {
+            head(location);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public StorageObject stat(String location) throws IOException {
+        HeadObjectResponse head = head(location);
+        return new StorageObject(head.contentLength(), head.lastModified().toEpochMilli());
+    }
+
+    @Override
+    public InputStream openStream(String location, long start, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return new RangeInputStream(s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(keyOf(location))
+                    .range("bytes=" + start + "-" + (start + length - 1))
+                    .build()), length);
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(location);
+        } catch (S3Exception e) {
+            throw new IOException("S3 read of " + location + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Path localPath(String location) {
+        return null;
+    }
+
+    @Override
+    public boolean delete(String location) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(keyOf(location)).build());
+            return true;
+        } catch (S3Exception e) {
+            throw new IOException("S3 delete of " + location + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void download(String location, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            s3.getObject(GetObjectRequest.builder().bucket(bucket).key(keyOf(location)).build(),
+                    ResponseTransformer.toFile(target));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(location);
+        } catch (S3Exception e) {
+            throw new IOException("S3 download of " + location + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void multipartUpload(String key, Path source, long size) throws IOException {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).contentType(CONTENT_TYPE).build()).uploadId();
+
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        List<Future<CompletedPart>> futures = new ArrayList<>(partCount);
+        try {
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long offset = i * partSize;
+                long length = Math.min(partSize, size - offset);
+                futures.add(partExecutor.submit(() -> uploadPart(key, uploadId, partNumber, source, offset, length)));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(partCount);
+            for (Future<CompletedPart> future : futures) {
+                parts.add(future.get());
+            }
+
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            LOG.info("S3 multipart upload of {} done: {} bytes in {} parts", key, size, partCount);
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            abort(key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException("S3 multipart upload of " + key + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber,
+                                     Path source, long offset, long length) {
+        // SDK otvara novi stream za svaki pokušaj (retry), uvek od početka dela
+        RequestBody body = RequestBody.fromContentProvider(() -> {
+            try {
+                return new FileRegionInputStream(source, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, length, CONTENT_TYPE);
+
+        String eTag = s3.uploadPart(UploadPartRequest.builder()
+                .bucket(bucket).key(key).uploadId(uploadId)
+                .partNumber(partNumber).contentLength(length)
+                .build(), body).eTag();
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId).build());
+        } catch (S3Exception e) {
+            LOG.warn("Could not abort S3 multipart upload {} of {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private HeadObjectResponse head(String location) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(keyOf(location)).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(location);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(location);
+            }
+            throw new IOException("S3 head of " + location + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void ensureBucket() {
+        try {
+            s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+        } catch (NoSuchBucketException e) {
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            LOG.info("S3 bucket {} created", bucket);
+        }
+    }
+
+    /**
+     * Telo ranged GET-a. close() pre kraja opsega radi abort(): obično zatvaranje bi pročitalo
+     * ostatak opsega iz S3 (da vrati konekciju u pool), a prvi zahtev plejera je često bytes=0-,
+     * pa bi svaki seek povukao ostatak videa.
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private final ResponseInputStream<GetObjectResponse> response;
+        private long remaining;
+
+        RangeInputStream(ResponseInputStream<GetObjectResponse> response, long length) {
+            super(response);
+            this.response = response;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            remaining = b < 0 ? 0 : remaining - 1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            remaining = count < 0 ? 0 : remaining - count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (remaining > 0) {
+                response.abort();
+            }
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package rs.ac.uns.ftn.isa.isa_project.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Mesto gde žive sačuvani fajlovi (videi, thumbnail-i).
+ *
+ * Ključ je relativna putanja (npr. videos/ab/ab12...ef.mp4), a lokacija je ono što se upisuje
+ * u bazu (videos.video_path / thumbnail_path) - za lokalni disk apsolutna putanja, za S3
+ * s3://bucket/ključ. Upload, chunk-ovi i staged thumbnail-i se i dalje sklapaju na lokalnom disku,
+ * a backend dobija samo gotov fajl preko put().
+ */
+public interface StorageBackend {
+
+    /**
+     * Ime backend-a za storage.backend (local, s3).
+     */
+    String getName();
+
+    /**
+     * Da li lokacija pripada ovom backend-u.
+     */
+    boolean owns(String location);
+
+    String locationOf(String key);
+
+    String keyOf(String location);
+
+    /**
+     * Smešta lokalni fajl pod ključ i vraća lokaciju. Izvorni fajl se troši (premešta ili briše).
+     */
+    String put(String key, Path source) throws IOException;
+
+    boolean exists(String location) throws IOException;
+
+    /**
+     * Veličina i vreme izmene; NoSuchFileException ako objekat ne postoji.
+     */
+    StorageObject stat(String location) throws IOException;
+
+    /**
+     * Čita [start, start + length) - za S3 je to jedan ranged GET.
+     */
+    InputStream openStream(String location, long start, long length) throws IOException;
+
+    /**
+     * Putanja na lokalnom disku ako je ima (sendfile / transferTo), inače null.
+     */
+    Path localPath(String location);
+
+    boolean delete(String location) throws IOException;
+
+    /**
+     * Kopira objekat u lokalni fajl (target se prepisuje).
+     */
+    void download(String location, Path target) throws IOException;
+}
@@ -0,0 +1,24 @@
+package rs.ac.uns.ftn.isa.isa_project.storage;
+
+/**
+ * Metapodaci sačuvanog objekta: veličina u bajtovima i vreme izmene (epoch ms).
+ */
+public class StorageObject {
+
+    private final long size;
+    private final long lastModified;
+
+    public StorageObject(long size, long lastModified) {
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    // Getters
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,62 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import rs.ac.uns.ftn.isa.isa_project.crdt.CRDTBinaryCodec;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncBatchRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CRDTBinaryCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        List<CRDTSyncRequest> states = new ArrayList<>();
+        states.add(new CRDTSyncRequest(42L, "replica-1", Map.of("replica-1", 30L, "replica-2", 20L)));
+        states.add(new CRDTSyncRequest(7L, "replica-1", Map.of("replica-1", Long.MAX_VALUE)));
+        states.add(new CRDTSyncRequest(1_000_000L, "replica-1", Map.of()));
+
+        CRDTSyncBatchRequest decoded = CRDTBinaryCodec.decode(
+                CRDTBinaryCodec.encode(new CRDTSyncBatchRequest("replica-1", states)));
+
+        assertEquals("replica-1", decoded.getSourceReplicaId());
+        assertEquals(states.size(), decoded.getStates().size());
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(states.get(i).getVideoId(), decoded.getStates().get(i).getVideoId());
+            assertEquals(states.get(i).getCounts(), decoded.getStates().get(i).getCounts());
+        }
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJson() throws Exception {
+        List<CRDTSyncRequest> states = new ArrayList<>();
+        for (long videoId = 1; videoId <= 500; videoId++) {
+            states.add(new CRDTSyncRequest(videoId, "replica-1",
+                    Map.of("replica-1", 1_000 + videoId, "replica-2", 2_000 + videoId)));
+        }
+        CRDTSyncBatchRequest batch = new CRDTSyncBatchRequest("replica-1", states);
+
+        int json = new ObjectMapper().writeValueAsBytes(batch).length;
+        int binary = CRDTBinaryCodec.encode(batch).length;
+
+        System.out.printf("500 states: JSON %d bytes, binary %d bytes%n", json, binary);
+        assertTrue(binary * 5 < json, "Binary frame should be at least 5x smaller than JSON");
+    }
+
+    @Test
+    void testTruncatedFrameIsRejected() {
+        byte[] frame = CRDTBinaryCodec.encode(new CRDTSyncBatchRequest("replica-1",
+                List.of(new CRDTSyncRequest(1L, "replica-1", Map.of("replica-1", 300L)))));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CRDTBinaryCodec.decode(Arrays.copyOf(frame, frame.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> CRDTBinaryCodec.decode("{\"videoId\":1}".getBytes()));
+    }
+}
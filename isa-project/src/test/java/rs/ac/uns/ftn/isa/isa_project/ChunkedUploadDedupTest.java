@@ -0,0 +1,148 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.dto.UploadInitRequest;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.StorageBlobRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.UploadSessionRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.service.ChunkedUploadService;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Commit chunked upload-a u content-addressed modu kada transakcija commit-a ne uspe:
+ * referenca na blob mora da se vrati tačno jednom, bez diranja tuđih referenci.
+ *
+ * Transakcija se obara brisanjem autora pre commit-a (author_id FK na videos).
+ */
+@SpringBootTest(properties = {
+        "storage.content-addressed=true",
+        "video.upload.chunk-size=1048576",
+        "replica.id=replica-test"
+})
+@ActiveProfiles("test")
+class ChunkedUploadDedupTest {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StorageBlobRepository storageBlobRepository;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Sadržaj je jedinstven po testu - storage_blobs i blob fajlovi ostaju između pokretanja
+    private byte[] content;
+    private String blobKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        videoRepository.deleteAll();
+        uploadSessionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        content = ("dedup-" + UUID.randomUUID()).getBytes(StandardCharsets.US_ASCII);
+        String digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        blobKey = "videos/" + digest.substring(0, 2) + "/" + digest + ".mp4";
+    }
+
+    @Test
+    void testFailedCommitOfDeduplicatedBlob_KeepsOtherVideosReference() throws Exception {
+        User first = userRepository.save(user("first", "first@isa.com"));
+        Video existing = upload(first);
+        assertEquals(1, storageBlobRepository.getRefCount(blobKey));
+
+        User second = userRepository.save(user("second", "second@isa.com"));
+        String id = startAndWrite(second);
+        userRepository.delete(second);
+
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.commit(id, second));
+
+        // Referenca prvog videa je netaknuta i blob je i dalje tu
+        assertEquals(1, storageBlobRepository.getRefCount(blobKey));
+        assertArrayEquals(content, fileStorageService.readFile(existing.getVideoPath()));
+
+        // Neuspeli commit je vraćen u .part i može da se ponovi
+        assertTrue(uploadSessionRepository.existsById(id));
+        assertArrayEquals(content, Files.readAllBytes(fileStorageService.uploadPartPath(id)));
+    }
+
+    @Test
+    void testFailedCommitOfNewBlob_LeavesNoOrphan() throws Exception {
+        User owner = userRepository.save(user("owner", "owner@isa.com"));
+        String id = startAndWrite(owner);
+        userRepository.delete(owner);
+
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.commit(id, owner));
+
+        assertEquals(0, storageBlobRepository.getRefCount(blobKey));
+        assertFalse(fileStorageService.backendFor(blobKey).exists(
+                fileStorageService.backendFor(blobKey).locationOf(blobKey)));
+        assertArrayEquals(content, Files.readAllBytes(fileStorageService.uploadPartPath(id)));
+    }
+
+    private Video upload(User owner) throws Exception {
+        return chunkedUploadService.commit(startAndWrite(owner), owner);
+    }
+
+    private String startAndWrite(User owner) throws Exception {
+        UploadInitRequest request = new UploadInitRequest();
+        request.setTitle("Dedup video");
+        request.setThumbnailId(fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", "thumb.png", "image/png", png()), "thumbs"));
+        request.setTotalSize((long) content.length);
+
+        String id = chunkedUploadService.start(request, owner).getId();
+        chunkedUploadService.writeChunk(id, 0, new ByteArrayInputStream(content), content.length, owner);
+        return id;
+    }
+
+    private static User user(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("pass123");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setAddress("Test Adresa 1");
+        user.setActivated(true);
+        user.setEnabled(true);
+        return user;
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
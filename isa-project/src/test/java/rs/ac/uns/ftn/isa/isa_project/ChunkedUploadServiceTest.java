@@ -0,0 +1,288 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.dto.UploadInitRequest;
+import rs.ac.uns.ftn.isa.isa_project.model.UploadSession;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UploadSessionRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.service.ChunkedUploadService;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chunked upload: upis chunk-ova van redosleda, nastavak posle prekida, commit i GC.
+ * chunk-size je 4 bajta, pa fajl od 10 bajtova ima chunk-ove 0..2 (4 + 4 + 2).
+ */
+@SpringBootTest(properties = {
+        "video.upload.chunk-size=4",
+        "replica.id=replica-test"
+})
+@ActiveProfiles("test")
+class ChunkedUploadServiceTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        videoRepository.deleteAll();
+        uploadSessionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        // .part fajlovi prethodnih testova bi GC brojao kao siročad
+        for (Path part : fileStorageService.listUploadParts()) {
+            Files.deleteIfExists(part);
+        }
+
+        testUser = userRepository.save(user("chunkuser", "chunk@isa.com"));
+    }
+
+    @Test
+    void testStart_CreatesLocalPartAndReplicaPrefixedId() throws Exception {
+        UploadSession session = chunkedUploadService.start(request(null), testUser);
+
+        assertTrue(session.getId().startsWith("replica-test."));
+        assertEquals("replica-test", session.getOwnerReplica());
+        assertEquals(3, session.getChunkCount());
+        assertEquals(List.of(0, 1, 2), session.getMissingChunks());
+        assertTrue(Files.exists(fileStorageService.uploadPartPath(session.getId())));
+    }
+
+    @Test
+    void testChunksOutOfOrderAndResume_CommitAssemblesFile() throws Exception {
+        UploadSession session = chunkedUploadService.start(request(sha256(CONTENT)), testUser);
+        String id = session.getId();
+
+        write(id, 2);
+        write(id, 0);
+
+        // "Prekid": klijent pita šta fali i nastavlja
+        assertEquals(List.of(1), chunkedUploadService.getSession(id, testUser).getMissingChunks());
+
+        // Ponovljen chunk je no-op
+        write(id, 0);
+        write(id, 1);
+        assertTrue(chunkedUploadService.getSession(id, testUser).getMissingChunks().isEmpty());
+
+        Video video = chunkedUploadService.commit(id, testUser);
+
+        assertNotNull(video.getId());
+        assertEquals(sha256(CONTENT), video.getVideoChecksum());
+        assertArrayEquals(CONTENT, fileStorageService.readFile(video.getVideoPath()));
+        assertFalse(uploadSessionRepository.existsById(id));
+        assertFalse(Files.exists(fileStorageService.uploadPartPath(id)));
+
+        // Drugi commit iste sesije ne pravi drugi video
+        assertThrows(NoSuchElementException.class, () -> chunkedUploadService.commit(id, testUser));
+        assertEquals(1, videoRepository.count());
+    }
+
+    @Test
+    void testChunkWithWrongLength_IsRejectedAndNotRecorded() throws Exception {
+        String id = chunkedUploadService.start(request(null), testUser).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.writeChunk(id, 2,
+                new ByteArrayInputStream(CONTENT, 0, 4), 4, testUser));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.writeChunk(id, 0,
+                new ByteArrayInputStream(CONTENT, 0, 3), -1, testUser));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.writeChunk(id, 3,
+                new ByteArrayInputStream(CONTENT, 0, 2), 2, testUser));
+
+        assertEquals(List.of(0, 1, 2), chunkedUploadService.getSession(id, testUser).getMissingChunks());
+    }
+
+    @Test
+    void testCommitWithMissingChunks_IsConflict() throws Exception {
+        String id = chunkedUploadService.start(request(null), testUser).getId();
+        write(id, 0);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> chunkedUploadService.commit(id, testUser));
+        assertTrue(e.getMessage().contains("[1, 2]"));
+        assertEquals(0, videoRepository.count());
+    }
+
+    @Test
+    void testCommitWithWrongChecksum_KeepsSession() throws Exception {
+        String id = chunkedUploadService.start(request("0".repeat(64)), testUser).getId();
+        write(id, 0);
+        write(id, 1);
+        write(id, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.commit(id, testUser));
+        assertTrue(uploadSessionRepository.existsById(id));
+        assertTrue(Files.exists(fileStorageService.uploadPartPath(id)));
+        assertEquals(0, videoRepository.count());
+    }
+
+    @Test
+    void testCommitWhileAnotherCommitRuns_IsConflict() throws Exception {
+        String id = chunkedUploadService.start(request(null), testUser).getId();
+        write(id, 0);
+        write(id, 1);
+        write(id, 2);
+
+        // Drugi commit je već preuzeo .part (preimenovan u .committing) i šalje ga u storage
+        Path part = fileStorageService.uploadPartPath(id);
+        Path committing = part.resolveSibling(id + ".committing");
+        Files.move(part, committing);
+
+        assertThrows(IllegalStateException.class, () -> chunkedUploadService.commit(id, testUser));
+        assertTrue(Files.exists(committing));
+        assertTrue(uploadSessionRepository.existsById(id));
+        assertEquals(0, videoRepository.count());
+        Files.delete(committing);
+    }
+
+    @Test
+    void testChunkOnAnotherReplica_IsRejectedAndNotRecorded() throws Exception {
+        UploadSession session = chunkedUploadService.start(request(null), testUser);
+        session.setOwnerReplica("replica-other");
+        uploadSessionRepository.save(session);
+
+        assertThrows(IllegalStateException.class, () -> write(session.getId(), 0));
+        assertThrows(IllegalStateException.class, () -> chunkedUploadService.commit(session.getId(), testUser));
+        assertEquals(List.of(0, 1, 2),
+                chunkedUploadService.getSession(session.getId(), testUser).getMissingChunks());
+    }
+
+    @Test
+    void testChunkWithoutPartFile_DoesNotCreateSparseFile() throws Exception {
+        String id = chunkedUploadService.start(request(null), testUser).getId();
+        Path part = fileStorageService.uploadPartPath(id);
+        Files.delete(part);
+
+        assertThrows(IllegalStateException.class, () -> write(id, 2));
+        assertFalse(Files.exists(part));
+        assertEquals(List.of(0, 1, 2), chunkedUploadService.getSession(id, testUser).getMissingChunks());
+    }
+
+    @Test
+    void testOtherUser_CannotSeeUpload() throws Exception {
+        String id = chunkedUploadService.start(request(null), testUser).getId();
+        User other = userRepository.save(user("otheruser", "other@isa.com"));
+
+        assertThrows(NoSuchElementException.class, () -> chunkedUploadService.getSession(id, other));
+        assertThrows(NoSuchElementException.class, () -> chunkedUploadService.writeChunk(id, 0,
+                new ByteArrayInputStream(CONTENT, 0, 4), 4, other));
+        assertThrows(NoSuchElementException.class, () -> chunkedUploadService.commit(id, other));
+    }
+
+    @Test
+    void testAbort_DeletesSessionPartAndThumbnail() throws Exception {
+        UploadSession session = chunkedUploadService.start(request(null), testUser);
+        write(session.getId(), 0);
+
+        chunkedUploadService.abort(session.getId(), testUser);
+
+        assertFalse(uploadSessionRepository.existsById(session.getId()));
+        assertFalse(Files.exists(fileStorageService.uploadPartPath(session.getId())));
+        assertFalse(Files.exists(Path.of(session.getThumbnailPath())));
+    }
+
+    @Test
+    void testCollectGarbage_RemovesIdleSessionsAndOrphanParts() throws Exception {
+        UploadSession idle = chunkedUploadService.start(request(null), testUser);
+        UploadSession active = chunkedUploadService.start(request(null), testUser);
+        uploadSessionRepository.touch(idle.getId(), LocalDateTime.now().minusHours(2));
+
+        // .part bez sesije (pad između kreiranja fajla i upisa sesije)
+        Path orphan = fileStorageService.uploadPartPath("replica-test.orphan");
+        Files.write(orphan, CONTENT);
+        Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        int collected = chunkedUploadService.collectGarbage(Duration.ofHours(1));
+
+        assertEquals(2, collected);
+        assertFalse(uploadSessionRepository.existsById(idle.getId()));
+        assertFalse(Files.exists(fileStorageService.uploadPartPath(idle.getId())));
+        assertFalse(Files.exists(orphan));
+
+        assertTrue(uploadSessionRepository.existsById(active.getId()));
+        assertTrue(Files.exists(fileStorageService.uploadPartPath(active.getId())));
+    }
+
+    private void write(String uploadId, int index) throws Exception {
+        int offset = index * 4;
+        int length = Math.min(4, CONTENT.length - offset);
+        chunkedUploadService.writeChunk(uploadId, index,
+                new ByteArrayInputStream(CONTENT, offset, length), length, testUser);
+    }
+
+    private UploadInitRequest request(String checksum) throws Exception {
+        UploadInitRequest request = new UploadInitRequest();
+        request.setTitle("Chunked video");
+        request.setDescription("Test opis");
+        request.setTags("test,chunked");
+        request.setThumbnailId(fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", "thumb.png", "image/png", png()), "thumbs"));
+        request.setTotalSize((long) CONTENT.length);
+        request.setChecksum(checksum);
+        return request;
+    }
+
+    private static User user(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("pass123");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setAddress("Test Adresa 1");
+        user.setActivated(true);
+        user.setEnabled(true);
+        return user;
+    }
+
+    // Prava slika, da pipeline varijanti thumbnail-a posle commit-a ne pada
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -169,4 +169,43 @@ class GCounterTest {
         assertTrue(str.contains("50"));
         assertTrue(str.contains("total=50"));
     }
+
+    @Test
+    void testManyReplicas_NoGlobalLimit() {
+        GCounter counter = new GCounter();
+
+        // Slotovi su po brojaču - nema globalnog registra koji se puni
+        for (int i = 0; i < 2000; i++) {
+            counter.increment("replica-" + i, 1);
+        }
+
+        assertEquals(2000, counter.getValue());
+        assertEquals(2000, counter.getReplicaCount());
+    }
+
+    @Test
+    void testZeroEntry_DiffersFromMissingReplica() {
+        GCounter withZero = new GCounter(Map.of("replica-1", 0L));
+        GCounter empty = new GCounter();
+
+        assertNotEquals(withZero, empty);
+        assertEquals(1, withZero.getReplicaCount());
+        assertEquals(Map.of("replica-1", 0L), withZero.getCounts());
+        assertEquals(Map.of("replica-1", 0L), empty.merge(withZero).getCounts());
+    }
+
+    @Test
+    void testEqualsAndHashCode_IgnoreSlotOrder() {
+        GCounter counter1 = new GCounter();
+        counter1.increment("replica-1", 30);
+        counter1.increment("replica-2", 10);
+
+        GCounter counter2 = new GCounter();
+        counter2.increment("replica-2", 10);
+        counter2.increment("replica-1", 30);
+
+        assertEquals(counter1, counter2);
+        assertEquals(counter1.hashCode(), counter2.hashCode());
+        assertEquals(counter1.getCounts().hashCode(), counter1.hashCode());
+    }
 }
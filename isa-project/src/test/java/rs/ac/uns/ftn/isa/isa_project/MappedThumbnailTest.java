@@ -0,0 +1,133 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+import rs.ac.uns.ftn.isa.isa_project.service.MappedThumbnail;
+import rs.ac.uns.ftn.isa.isa_project.service.ThumbnailService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * thumbnail.serving-mode=mapped: telo iz mapiranog fajla, LRU mapa mapiranja
+ * i isti ETag kao u cache modu.
+ */
+@SpringBootTest(properties = "thumbnail.serving-mode=mapped")
+@ActiveProfiles("test")
+class MappedThumbnailTest {
+
+    // Mapiranja su po video ID-u, a ovde nema videa u bazi - svaki test uzima svoje ID-eve
+    private static final AtomicLong VIDEO_IDS = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private byte[] original;
+    private String path;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", out);
+        original = out.toByteArray();
+
+        String stagedId = fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", "thumb.png", "image/png", original), "thumbs");
+        path = fileStorageService.claimStagedFile(stagedId, "thumbs");
+    }
+
+    @Test
+    void testMappedOriginal_ServesFileContentWithSameEtagAsCacheMode() throws Exception {
+        assertTrue(thumbnailService.isMappedMode());
+
+        MappedThumbnail mapped = thumbnailService.getMapped(VIDEO_IDS.incrementAndGet(), 0, () -> path);
+
+        assertNotNull(mapped);
+        assertEquals(original.length, mapped.contentLength());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, mapped.getContentType());
+        assertFalse(mapped.isPending());
+        assertEquals(thumbnailService.load(path, 0).getEtag(), mapped.getEtag());
+        try (InputStream in = mapped.getInputStream()) {
+            assertArrayEquals(original, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testSecondRequest_IsServedFromMappingWithoutLookup() throws Exception {
+        long videoId = VIDEO_IDS.incrementAndGet();
+        AtomicInteger lookups = new AtomicInteger();
+
+        MappedThumbnail first = thumbnailService.getMapped(videoId, 0, () -> {
+            lookups.incrementAndGet();
+            return path;
+        });
+        MappedThumbnail second = thumbnailService.getMapped(videoId, 0, () -> {
+            lookups.incrementAndGet();
+            return path;
+        });
+
+        assertSame(first, second);
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void testConcurrentReaders_HaveIndependentPositions() throws Exception {
+        MappedThumbnail mapped = thumbnailService.getMapped(VIDEO_IDS.incrementAndGet(), 0, () -> path);
+
+        try (InputStream first = mapped.getInputStream(); InputStream second = mapped.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(original.length, first.transferTo(out));
+            assertArrayEquals(original, out.toByteArray());
+
+            // Drugi zahtev kreće od početka bez obzira na prvi
+            assertEquals(original.length, second.available());
+            assertEquals(original[0] & 0xff, second.read());
+        }
+    }
+
+    @Test
+    void testPendingVariant_IsNotKeptInMapping() throws Exception {
+        long videoId = VIDEO_IDS.incrementAndGet();
+        AtomicInteger lookups = new AtomicInteger();
+
+        MappedThumbnail pending = thumbnailService.getMapped(videoId, 320, () -> {
+            lookups.incrementAndGet();
+            return path;
+        });
+
+        assertTrue(pending.isPending());
+        assertEquals(0, pending.getWidth());
+        assertEquals(original.length, pending.contentLength());
+
+        // Sledeći zahtev ponovo proverava da li je varijanta napravljena
+        MappedThumbnail variant = pending;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (variant.isPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            variant = thumbnailService.getMapped(videoId, 320, () -> {
+                lookups.incrementAndGet();
+                return path;
+            });
+        }
+
+        assertFalse(variant.isPending());
+        assertEquals(320, variant.getWidth());
+        assertEquals(MediaType.IMAGE_JPEG_VALUE, variant.getContentType());
+        assertTrue(lookups.get() >= 2);
+    }
+}
@@ -0,0 +1,111 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import rs.ac.uns.ftn.isa.isa_project.crdt.MerkleTree;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestRequest;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTDigestResponse;
+import rs.ac.uns.ftn.isa.isa_project.dto.CRDTSyncRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+
+    private static final int VIDEOS = 1_000_000;
+    private static final String REPLICA = "replica-1";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testIdenticalTreesHaveNoDivergence() {
+        long[] counts = seedCounts();
+        MerkleTree local = new MerkleTree(leaves(counts));
+        MerkleTree remote = new MerkleTree(leaves(counts));
+
+        assertEquals(local.getRootHash(), remote.getRootHash());
+        assertTrue(local.findDivergentBuckets(remote::getHashes).isEmpty());
+    }
+
+    @Test
+    void testFewDivergencesOnMillionCounters() throws Exception {
+        long[] localCounts = seedCounts();
+        long[] remoteCounts = localCounts.clone();
+
+        // Nekoliko razlika
+        long[] divergentVideos = {7, 123_456, 500_000, 999_999};
+        Set<Integer> expectedBuckets = new HashSet<>();
+        for (long videoId : divergentVideos) {
+            remoteCounts[(int) videoId] += 3;
+            expectedBuckets.add(MerkleTree.bucketOf(videoId));
+        }
+
+        MerkleTree local = new MerkleTree(leaves(localCounts));
+        MerkleTree remote = new MerkleTree(leaves(remoteCounts));
+
+        // Razmena digest-a preko JSON-a, kao preko mreže - brojimo bajtove
+        AtomicLong digestBytes = new AtomicLong();
+        List<Integer> divergent = local.findDivergentBuckets((level, nodes) -> {
+            try {
+                byte[] request = mapper.writeValueAsBytes(new CRDTDigestRequest(level, nodes));
+                byte[] response = mapper.writeValueAsBytes(
+                        new CRDTDigestResponse(REPLICA, level, remote.getHashes(level, nodes)));
+                digestBytes.addAndGet(request.length + response.length);
+                return mapper.readValue(response, CRDTDigestResponse.class).getHashes();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals(expectedBuckets, new HashSet<>(divergent));
+
+        // Stanja samo za bucket-e koji se razlikuju
+        List<CRDTSyncRequest> bucketStates = new ArrayList<>();
+        for (int videoId = 1; videoId < VIDEOS; videoId++) {
+            if (expectedBuckets.contains(MerkleTree.bucketOf(videoId))) {
+                bucketStates.add(new CRDTSyncRequest((long) videoId, REPLICA, Map.of(REPLICA, remoteCounts[videoId])));
+            }
+        }
+        long stateBytes = mapper.writeValueAsBytes(bucketStates).length;
+
+        // Puna razmena - procena iz uzorka od 1000 stanja
+        List<CRDTSyncRequest> sample = new ArrayList<>();
+        for (int videoId = 1; videoId <= 1000; videoId++) {
+            sample.add(new CRDTSyncRequest((long) videoId, REPLICA, Map.of(REPLICA, remoteCounts[videoId])));
+        }
+        long fullBytes = mapper.writeValueAsBytes(sample).length * (VIDEOS / 1000L);
+
+        long transferred = digestBytes.get() + stateBytes;
+        System.out.printf("Merkle sync: %d digest bytes + %d state bytes = %d bytes (full sync ~%d bytes, %.3f%%)%n",
+                digestBytes.get(), stateBytes, transferred, fullBytes, 100.0 * transferred / fullBytes);
+
+        assertTrue(transferred < fullBytes / 100, "Merkle sync should transfer less than 1% of a full sync");
+    }
+
+    private long[] seedCounts() {
+        Random random = new Random(42);
+        long[] counts = new long[VIDEOS];
+        for (int videoId = 1; videoId < VIDEOS; videoId++) {
+            counts[videoId] = 1 + random.nextInt(10_000);
+        }
+        return counts;
+    }
+
+    /**
+     * Isti princip kao ViewCountRepository.computeLeafHashes: zbir hash-eva po bucket-u.
+     */
+    private long[] leaves(long[] counts) {
+        long[] leaves = new long[MerkleTree.LEAF_COUNT];
+        for (int videoId = 1; videoId < counts.length; videoId++) {
+            leaves[MerkleTree.bucketOf(videoId)] += (REPLICA + ":" + videoId + ":" + counts[videoId]).hashCode() * 0x9E3779B97F4A7C15L;
+        }
+        return leaves;
+    }
+}
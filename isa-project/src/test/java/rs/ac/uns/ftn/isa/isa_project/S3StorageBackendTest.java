@@ -0,0 +1,235 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import rs.ac.uns.ftn.isa.isa_project.storage.S3StorageBackend;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multipart upload i ranged GET S3 backend-a nad stub S3Client-om (bez mreže i bez MinIO-a).
+ * part-size je 4 bajta, pa fajl od 10 bajtova ide u tri dela (4 + 4 + 2).
+ */
+class S3StorageBackendTest {
+
+    private static final String BUCKET = "test-bucket";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path tempDir;
+
+    private StubS3Client s3;
+    private ExecutorService partExecutor;
+    private S3StorageBackend backend;
+    private Path source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new StubS3Client();
+        partExecutor = Executors.newFixedThreadPool(2);
+
+        backend = new S3StorageBackend();
+        ReflectionTestUtils.setField(backend, "s3", s3);
+        ReflectionTestUtils.setField(backend, "partExecutor", partExecutor);
+        ReflectionTestUtils.setField(backend, "bucket", BUCKET);
+        ReflectionTestUtils.setField(backend, "partSize", 4L);
+
+        source = tempDir.resolve("video.mp4");
+        Files.writeString(source, CONTENT, StandardCharsets.US_ASCII);
+    }
+
+    @AfterEach
+    void tearDown() {
+        partExecutor.shutdownNow();
+    }
+
+    @Test
+    void testMultipartUpload_SendsPartsAndCompletes() throws IOException {
+        String location = backend.put("videos/a.mp4", source);
+
+        assertEquals("s3://" + BUCKET + "/videos/a.mp4", location);
+        assertEquals(Map.of(1, "0123", 2, "4567", 3, "89"), s3.uploadedParts);
+        assertEquals(1, s3.completed.size());
+        assertEquals(List.of(1, 2, 3), s3.completed.get(0).multipartUpload().parts().stream()
+                .map(CompletedPart::partNumber).toList());
+        assertTrue(s3.aborted.isEmpty());
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void testFailedPart_AbortsUploadAndKeepsSource() {
+        s3.failingPart = 2;
+
+        IOException e = assertThrows(IOException.class, () -> backend.put("videos/b.mp4", source));
+
+        assertTrue(e.getMessage().contains("videos/b.mp4"));
+        assertTrue(s3.completed.isEmpty());
+        assertEquals(1, s3.aborted.size());
+        AbortMultipartUploadRequest abort = s3.aborted.get(0);
+        assertEquals(BUCKET, abort.bucket());
+        assertEquals("videos/b.mp4", abort.key());
+        assertEquals(StubS3Client.UPLOAD_ID, abort.uploadId());
+        // Fajl ostaje - upload može da se ponovi
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    void testFailedComplete_AbortsUpload() {
+        s3.failComplete = true;
+
+        assertThrows(IOException.class, () -> backend.put("videos/c.mp4", source));
+
+        assertEquals(3, s3.uploadedParts.size());
+        assertEquals(1, s3.aborted.size());
+        assertEquals(StubS3Client.UPLOAD_ID, s3.aborted.get(0).uploadId());
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    void testSmallFile_UsesSinglePut() throws IOException {
+        Path small = tempDir.resolve("thumb.jpg");
+        Files.writeString(small, "1234", StandardCharsets.US_ASCII);
+
+        backend.put("thumbs/t.jpg", small);
+
+        assertEquals(List.of("thumbs/t.jpg"), s3.putKeys);
+        assertTrue(s3.uploadedParts.isEmpty());
+        assertTrue(s3.aborted.isEmpty());
+        assertFalse(Files.exists(small));
+    }
+
+    @Test
+    void testRangeClosedEarly_AbortsInsteadOfDraining() throws IOException {
+        try (InputStream in = backend.openStream("s3://" + BUCKET + "/videos/a.mp4", 0, 10)) {
+            assertEquals('0', in.read());
+            // Plejer prekida konekciju pri seek-u - ostatak opsega se ne čita
+        }
+
+        assertEquals(1, s3.abortedReads.get());
+        assertEquals("bytes=0-9", s3.ranges.get(0));
+    }
+
+    @Test
+    void testRangeReadToEnd_IsNotAborted() throws IOException {
+        try (InputStream in = backend.openStream("s3://" + BUCKET + "/videos/a.mp4", 2, 3)) {
+            assertEquals("234", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+
+        assertEquals(0, s3.abortedReads.get());
+        assertEquals("bytes=2-4", s3.ranges.get(0));
+    }
+
+    /**
+     * Beleži multipart i GET pozive; failingPart / failComplete simuliraju grešku S3-a.
+     * Metode koje test ne koristi ostaju podrazumevane (UnsupportedOperationException).
+     */
+    private static class StubS3Client implements S3Client {
+
+        static final String UPLOAD_ID = "upload-1";
+
+        final Map<Integer, String> uploadedParts = new ConcurrentHashMap<>();
+        final List<CompleteMultipartUploadRequest> completed = new CopyOnWriteArrayList<>();
+        final List<AbortMultipartUploadRequest> aborted = new CopyOnWriteArrayList<>();
+        final List<String> putKeys = new CopyOnWriteArrayList<>();
+        final List<String> ranges = new CopyOnWriteArrayList<>();
+        final AtomicInteger abortedReads = new AtomicInteger();
+
+        volatile int failingPart = -1;
+        volatile boolean failComplete;
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            putKeys.add(request.key());
+            return PutObjectResponse.builder().build();
+        }
+
+        @Override
+        public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+            ranges.add(request.range());
+            // Telo je traženi opseg CONTENT-a (bytes=start-end, uključivo)
+            String[] range = request.range().substring("bytes=".length()).split("-");
+            String part = CONTENT.substring(Integer.parseInt(range[0]), Integer.parseInt(range[1]) + 1);
+            InputStream body = new ByteArrayInputStream(part.getBytes(StandardCharsets.US_ASCII));
+            return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                    AbortableInputStream.create(body, abortedReads::incrementAndGet));
+        }
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            return CreateMultipartUploadResponse.builder().uploadId(UPLOAD_ID).build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+            if (request.partNumber() == failingPart) {
+                throw SdkClientException.create("part " + failingPart + " failed");
+            }
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                uploadedParts.put(request.partNumber(), new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            if (failComplete) {
+                throw SdkClientException.create("complete failed");
+            }
+            completed.add(request);
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            aborted.add(request);
+            return AbortMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
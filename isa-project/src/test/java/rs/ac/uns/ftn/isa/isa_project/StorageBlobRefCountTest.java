@@ -0,0 +1,174 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.repository.StorageBlobRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Brojač referenci content-addressed blob-a pod konkurentnim acquire/release pozivima.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StorageBlobRefCountTest {
+
+    private static final int THREADS = 20;
+
+    @Autowired
+    private StorageBlobRepository storageBlobRepository;
+
+    private ExecutorService executor;
+    private String blobKey;
+
+    @BeforeEach
+    void setUp() {
+        storageBlobRepository.createTableIfNotExists();
+        executor = Executors.newFixedThreadPool(THREADS);
+        blobKey = "videos/test/" + UUID.randomUUID() + ".mp4";
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentAcquires_AreAllCounted() throws Exception {
+        int perThread = 50;
+
+        runConcurrently(THREADS, i -> {
+            for (int j = 0; j < perThread; j++) {
+                storageBlobRepository.acquire(blobKey);
+            }
+        });
+
+        assertEquals(THREADS * perThread, storageBlobRepository.getRefCount(blobKey));
+    }
+
+    @Test
+    void testConcurrentReleaseOfLastReferences_DeletesExactlyOnce() throws Exception {
+        for (int i = 0; i < THREADS; i++) {
+            storageBlobRepository.acquire(blobKey);
+        }
+        AtomicInteger deletions = new AtomicInteger();
+        List<Long> remaining = Collections.synchronizedList(new ArrayList<>());
+
+        runConcurrently(THREADS, i -> remaining.add(storageBlobRepository.release(blobKey, deletions::incrementAndGet)));
+
+        assertEquals(1, deletions.get());
+        assertEquals(0, storageBlobRepository.getRefCount(blobKey));
+        // Svaki release vidi drugačiji preostali broj: 0..THREADS-1
+        List<Long> sorted = new ArrayList<>(remaining);
+        Collections.sort(sorted);
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(i, sorted.get(i));
+        }
+    }
+
+    @Test
+    void testInterleavedAcquireAndRelease_NeverDropsBlob() throws Exception {
+        // Jedna referenca više nego što se pušta, pa brojač nikad ne sme da padne na 0
+        for (int i = 0; i <= THREADS; i++) {
+            storageBlobRepository.acquire(blobKey);
+        }
+        AtomicInteger deletions = new AtomicInteger();
+
+        runConcurrently(THREADS * 2, i -> {
+            if (i % 2 == 0) {
+                storageBlobRepository.acquire(blobKey);
+            } else {
+                storageBlobRepository.release(blobKey, deletions::incrementAndGet);
+            }
+        });
+
+        assertEquals(0, deletions.get());
+        assertEquals(THREADS + 1, storageBlobRepository.getRefCount(blobKey));
+    }
+
+    @Test
+    void testAcquireDuringLastRelease_WaitsAndRecreatesBlob() throws Exception {
+        storageBlobRepository.acquire(blobKey);
+        CountDownLatch deleting = new CountDownLatch(1);
+        long[] deletedAt = new long[1];
+
+        Future<Long> release = executor.submit(() -> storageBlobRepository.release(blobKey, () -> {
+            // Red je zaključan dok se fajl briše
+            deleting.countDown();
+            sleep(300);
+            deletedAt[0] = System.nanoTime();
+        }));
+
+        assertTrue(deleting.await(10, TimeUnit.SECONDS));
+        storageBlobRepository.acquire(blobKey);
+        long acquiredAt = System.nanoTime();
+
+        assertEquals(0, release.get(10, TimeUnit.SECONDS));
+        assertTrue(acquiredAt > deletedAt[0], "acquire je prošao pre nego što je brisanje završeno");
+        assertEquals(1, storageBlobRepository.getRefCount(blobKey));
+    }
+
+    @Test
+    void testFailedDeletion_RollsBackRelease() {
+        storageBlobRepository.acquire(blobKey);
+
+        assertThrows(IllegalStateException.class, () -> storageBlobRepository.release(blobKey, () -> {
+            throw new IllegalStateException("disk error");
+        }));
+
+        assertEquals(1, storageBlobRepository.getRefCount(blobKey));
+    }
+
+    @Test
+    void testReleaseOfUnknownBlob_ReturnsMinusOne() {
+        AtomicInteger deletions = new AtomicInteger();
+
+        assertEquals(-1, storageBlobRepository.release(blobKey, deletions::incrementAndGet));
+        assertEquals(0, deletions.get());
+    }
+
+    private void runConcurrently(int tasks, IndexedTask task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+}
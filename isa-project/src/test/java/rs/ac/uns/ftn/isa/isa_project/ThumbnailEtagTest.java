@@ -0,0 +1,142 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.ServletWebRequest;
+import rs.ac.uns.ftn.isa.isa_project.controller.VideoController;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uslovni GET na /api/videos/{id}/thumbnail: jak ETag, If-None-Match -> 304 bez tela,
+ * i Cache-Control koji zavisi od toga da li je varijanta još u izradi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ThumbnailEtagTest {
+
+    @Autowired
+    private VideoController videoController;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private byte[] original;
+    private Long videoId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        videoRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User author = new User();
+        author.setUsername("etaguser");
+        author.setEmail("etag@isa.com");
+        author.setPassword("pass123");
+        author.setFirstName("Test");
+        author.setLastName("User");
+        author.setAddress("Test Adresa 1");
+        author.setActivated(true);
+        author.setEnabled(true);
+        author = userRepository.save(author);
+
+        original = png();
+        String stagedId = fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", "thumb.png", "image/png", original), "thumbs");
+
+        Video video = new Video();
+        video.setTitle("ETag video");
+        video.setDescription("Test opis");
+        video.setVideoPath("test/video.mp4");
+        video.setThumbnailPath(fileStorageService.claimStagedFile(stagedId, "thumbs"));
+        video.setAuthor(author);
+        videoId = videoRepository.save(video).getId();
+    }
+
+    @Test
+    void testOriginal_HasStrongEtagAndLongMaxAge() {
+        MockHttpServletRequest request = get();
+
+        ResponseEntity<?> response = thumbnail(request, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        String etag = response.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\""), "ETag mora biti jak (bez W/)");
+        assertTrue(response.getHeaders().getCacheControl().contains("max-age=86400"));
+        assertArrayEquals(original, (byte[]) response.getBody());
+    }
+
+    @Test
+    void testIfNoneMatch_Returns304WithoutBody() {
+        String etag = thumbnail(get(), null).getHeaders().getETag();
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        ResponseEntity<?> response = thumbnail(request, null);
+
+        assertEquals(304, response.getStatusCode().value());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void testStaleIfNoneMatch_SendsBody() {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+
+        ResponseEntity<?> response = thumbnail(request, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertArrayEquals(original, (byte[]) response.getBody());
+    }
+
+    @Test
+    void testPendingVariant_IsNotCachedByBrowser() {
+        // Varijanta 320 još ne postoji - vraća se original i browser mora da proveri ponovo
+        ResponseEntity<?> response = thumbnail(get(), 320);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+        assertArrayEquals(original, (byte[]) response.getBody());
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/videos/" + videoId + "/thumbnail");
+    }
+
+    private ResponseEntity<?> thumbnail(MockHttpServletRequest request, Integer width) {
+        return videoController.getThumbnail(videoId, width,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
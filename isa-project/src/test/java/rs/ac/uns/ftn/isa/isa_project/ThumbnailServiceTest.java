@@ -0,0 +1,127 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.dto.ThumbnailContent;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+import rs.ac.uns.ftn.isa.isa_project.service.ThumbnailService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Izbor varijante po ?w= i povratak na original dok varijanta ne postoji
+ * (podrazumevane širine 160/320/640).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ThumbnailServiceTest {
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Test
+    void testSelectWidth_PicksSmallestVariantAtLeastAsWide() {
+        assertEquals(0, thumbnailService.selectWidth(null));
+        assertEquals(0, thumbnailService.selectWidth(0));
+        assertEquals(0, thumbnailService.selectWidth(-5));
+        assertEquals(160, thumbnailService.selectWidth(1));
+        assertEquals(160, thumbnailService.selectWidth(160));
+        assertEquals(320, thumbnailService.selectWidth(161));
+        assertEquals(640, thumbnailService.selectWidth(640));
+        // Šire od najveće varijante - original
+        assertEquals(0, thumbnailService.selectWidth(641));
+    }
+
+    @Test
+    void testMissingVariant_ServesPendingOriginalUntilGenerated() throws Exception {
+        byte[] original = png(800, 600);
+        String path = store(original, "thumb.png");
+
+        ThumbnailContent first = thumbnailService.load(path, 320);
+
+        assertTrue(first.isPending());
+        assertEquals(0, first.getWidth());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, first.getContentType());
+        assertArrayEquals(original, first.getData());
+
+        ThumbnailContent variant = awaitVariant(path, 320);
+
+        assertEquals(320, variant.getWidth());
+        assertEquals(MediaType.IMAGE_JPEG_VALUE, variant.getContentType());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(variant.getData()));
+        assertEquals(320, image.getWidth());
+        assertEquals(240, image.getHeight());
+        assertNotEquals(first.getEtag(), variant.getEtag());
+    }
+
+    @Test
+    void testSmallOriginal_IsNotUpscaled() throws Exception {
+        String path = store(png(100, 50), "small.png");
+
+        thumbnailService.load(path, 640);
+        ThumbnailContent variant = awaitVariant(path, 640);
+
+        assertEquals(100, ImageIO.read(new ByteArrayInputStream(variant.getData())).getWidth());
+    }
+
+    @Test
+    void testUnreadableOriginal_IsServedWithoutPending() throws Exception {
+        byte[] garbage = "nije slika".getBytes(StandardCharsets.US_ASCII);
+        String path = store(garbage, "broken.jpg");
+
+        assertTrue(thumbnailService.load(path, 160).isPending());
+
+        // Posle pokušaja izrade ostaje marker - original se servira kao konačan odgovor
+        ThumbnailContent thumbnail = null;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            thumbnail = thumbnailService.load(path, 160);
+            if (!thumbnail.isPending()) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+
+        assertFalse(thumbnail.isPending());
+        assertEquals(0, thumbnail.getWidth());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM_VALUE, thumbnail.getContentType());
+        assertArrayEquals(garbage, thumbnail.getData());
+    }
+
+    private ThumbnailContent awaitVariant(String path, int width) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ThumbnailContent thumbnail = thumbnailService.load(path, width);
+            if (!thumbnail.isPending()) {
+                return thumbnail;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Varijanta " + width + " nije napravljena na vreme");
+    }
+
+    private String store(byte[] data, String filename) throws Exception {
+        String stagedId = fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", filename, "image/png", data), "thumbs");
+        return fileStorageService.claimStagedFile(stagedId, "thumbs");
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
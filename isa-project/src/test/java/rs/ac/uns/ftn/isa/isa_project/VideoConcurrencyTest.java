@@ -11,6 +11,7 @@ import rs.ac.uns.ftn.isa.isa_project.model.Video;
 import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
 import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
 import rs.ac.uns.ftn.isa.isa_project.service.VideoService;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoViewCountBuffer;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -35,6 +36,9 @@ class VideoConcurrencyTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private VideoViewCountBuffer viewCountBuffer;
+
     @Test
     void testVideoConcurrency() throws InterruptedException {
         System.out.println("\n" + "=".repeat(80));
@@ -159,6 +163,9 @@ class VideoConcurrencyTest {
         System.out.println("📈 TEST RESULTS");
         System.out.println("=".repeat(80));
 
+        // Write-behind: upiši nagomilane preglede pre čitanja iz baze
+        viewCountBuffer.flush();
+
         Video updatedVideo = videoRepository.findById(videoId).orElseThrow();
 
         System.out.println("Successful increments: " + successCount.get() + "/" + expectedTotalViews);
@@ -0,0 +1,174 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import rs.ac.uns.ftn.isa.isa_project.dto.VideoStreamUploadDTO;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoService;
+import rs.ac.uns.ftn.isa.isa_project.storage.LocalStorageBackend;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streaming upload (createVideoFromStream): limit veličine, provera checksum-a i rollback fajlova.
+ * max-bytes je 16, a bafer 8 bajtova, pa se prekoračenje otkriva usred tela.
+ */
+@SpringBootTest(properties = {
+        "video.upload.max-bytes=16",
+        "video.upload.buffer-size=8"
+})
+@ActiveProfiles("test")
+class VideoStreamUploadTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private LocalStorageBackend localStorage;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        videoRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("streamuser");
+        user.setEmail("stream@isa.com");
+        user.setPassword("pass123");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setAddress("Test Adresa 1");
+        user.setActivated(true);
+        user.setEnabled(true);
+        user = userRepository.save(user);
+
+        // createVideoFromStream čita autora iz security konteksta
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testUpload_SavesVideoWithChecksum() throws Exception {
+        Video video = videoService.createVideoFromStream(dto(), new ByteArrayInputStream(CONTENT),
+                CONTENT.length, sha256(CONTENT).toUpperCase());
+
+        assertEquals(sha256(CONTENT), video.getVideoChecksum());
+        assertArrayEquals(CONTENT, fileStorageService.readFile(video.getVideoPath()));
+        assertTrue(Files.exists(Path.of(video.getThumbnailPath())));
+        assertEquals(1, videoRepository.count());
+    }
+
+    @Test
+    void testDeclaredLengthOverLimit_IsRejectedBeforeReadingBody() throws Exception {
+        VideoStreamUploadDTO dto = dto();
+        Set<Path> videosBefore = files("videos");
+
+        assertThrows(MaxUploadSizeExceededException.class, () -> videoService.createVideoFromStream(
+                dto, new ByteArrayInputStream(new byte[17]), 17, null));
+
+        assertEquals(videosBefore, files("videos"));
+        // Thumbnail nije preuzet - ostaje pripremljen pod istim ID-em
+        assertTrue(Files.exists(localStorage.resolve("thumbs/staged").resolve(dto.getThumbnailId())));
+        assertEquals(0, videoRepository.count());
+    }
+
+    @Test
+    void testBodyOverLimitWithoutLength_RollsBackFiles() throws Exception {
+        Set<Path> videosBefore = files("videos");
+        Set<Path> thumbsBefore = files("thumbs");
+
+        // Content-Length nije poznat (chunked) - limit se proverava dok se telo čita
+        assertThrows(MaxUploadSizeExceededException.class, () -> videoService.createVideoFromStream(
+                dto(), new ByteArrayInputStream(new byte[40]), -1, null));
+
+        assertEquals(videosBefore, files("videos"));
+        assertEquals(thumbsBefore, files("thumbs"));
+        assertEquals(0, videoRepository.count());
+    }
+
+    @Test
+    void testChecksumMismatch_RollsBackFiles() throws Exception {
+        Set<Path> videosBefore = files("videos");
+        Set<Path> thumbsBefore = files("thumbs");
+
+        assertThrows(IllegalArgumentException.class, () -> videoService.createVideoFromStream(
+                dto(), new ByteArrayInputStream(CONTENT), CONTENT.length, "0".repeat(64)));
+
+        assertEquals(videosBefore, files("videos"));
+        assertEquals(thumbsBefore, files("thumbs"));
+        assertEquals(0, videoRepository.count());
+    }
+
+    private VideoStreamUploadDTO dto() throws Exception {
+        VideoStreamUploadDTO dto = new VideoStreamUploadDTO();
+        dto.setTitle("Stream video");
+        dto.setDescription("Test opis");
+        dto.setTags("test,stream");
+        dto.setThumbnailId(fileStorageService.stageFile(
+                new MockMultipartFile("thumbnail", "thumb.png", "image/png", png()), "thumbs"));
+        return dto;
+    }
+
+    // Fajlovi direktno u storage/<subfolder> (bez staged i variants poddirektorijuma)
+    private Set<Path> files(String subfolder) throws Exception {
+        Path directory = localStorage.resolve(subfolder);
+        if (!Files.isDirectory(directory)) {
+            return Set.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toSet());
+        }
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
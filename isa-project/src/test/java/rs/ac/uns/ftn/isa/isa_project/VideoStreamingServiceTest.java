@@ -0,0 +1,221 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.service.FileStorageService;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoStreamingService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP Range i uslovni GET nad pravim fajlom u storage-u (bez sendfile-a - telo ide kroz response).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VideoStreamingServiceTest {
+
+    private static final MediaType VIDEO_MP4 = MediaType.parseMediaType("video/mp4");
+
+    // 100 bajtova: "0123456789" x 10, pa je svaki opseg lako proveriti kao string
+    private static final String CONTENT = "0123456789".repeat(10);
+
+    @Autowired
+    private VideoStreamingService videoStreamingService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private String location;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        location = fileStorageService.saveStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.US_ASCII)), "videos", ".mp4",
+                Long.MAX_VALUE, System.nanoTime() + TimeUnit.MINUTES.toNanos(1)).getPath();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileStorageService.deleteFile(location);
+    }
+
+    @Test
+    void testWithoutRange_SendsWholeFile() throws Exception {
+        MockHttpServletResponse response = stream(get());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(100, response.getContentLengthLong());
+        assertEquals(CONTENT, body(response));
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testSingleRange_SendsPartialContent() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("0123456789", body(response));
+    }
+
+    @Test
+    void testSuffixAndOpenRange_AreResolvedAgainstFileSize() throws Exception {
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-5");
+        MockHttpServletResponse suffixResponse = stream(suffix);
+
+        assertEquals(206, suffixResponse.getStatus());
+        assertEquals("bytes 95-99/100", suffixResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("56789", body(suffixResponse));
+
+        MockHttpServletRequest open = get();
+        open.addHeader(HttpHeaders.RANGE, "bytes=97-");
+        MockHttpServletResponse openResponse = stream(open);
+
+        assertEquals(206, openResponse.getStatus());
+        assertEquals("bytes 97-99/100", openResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", body(openResponse));
+    }
+
+    @Test
+    void testMultipleRanges_SendMultipartByteranges() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,55-57");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+
+        String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+        String body = body(response);
+        assertEquals(body.length(), response.getContentLengthLong());
+        assertEquals("--" + boundary + "\r\n"
+                + "Content-Type: video/mp4\r\n"
+                + "Content-Range: bytes 0-1/100\r\n"
+                + "\r\n"
+                + "01"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: video/mp4\r\n"
+                + "Content-Range: bytes 55-57/100\r\n"
+                + "\r\n"
+                + "567"
+                + "\r\n--" + boundary + "--\r\n", body);
+    }
+
+    @Test
+    void testUnsatisfiableRange_Returns416WithFileSize() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-200");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testOverlappingRangesLargerThanFile_Return416() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-99,0-99");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testIfRange_MatchingEtagKeepsRange() throws Exception {
+        String etag = stream(get()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("01234", body(response));
+    }
+
+    @Test
+    void testIfRange_StaleValidatorSendsWholeFile() throws Exception {
+        MockHttpServletRequest staleEtag = get();
+        staleEtag.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+        staleEtag.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse etagResponse = stream(staleEtag);
+
+        assertEquals(200, etagResponse.getStatus());
+        assertNull(etagResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(CONTENT, body(etagResponse));
+
+        MockHttpServletRequest staleDate = get();
+        staleDate.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+        staleDate.addHeader(HttpHeaders.IF_RANGE, "Thu, 01 Jan 1970 00:00:00 GMT");
+
+        MockHttpServletResponse dateResponse = stream(staleDate);
+
+        assertEquals(200, dateResponse.getStatus());
+        assertEquals(CONTENT, body(dateResponse));
+    }
+
+    @Test
+    void testIfNoneMatch_Returns304WithoutBody() throws Exception {
+        String etag = stream(get()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testHeadRange_SetsHeadersWithoutBody() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/api/videos/1/stream");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/videos/1/stream");
+    }
+
+    private MockHttpServletResponse stream(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        videoStreamingService.stream(location, VIDEO_MP4, request, response);
+        return response;
+    }
+
+    private static String body(MockHttpServletResponse response) {
+        return new String(response.getContentAsByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,162 @@
+package rs.ac.uns.ftn.isa.isa_project;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import rs.ac.uns.ftn.isa.isa_project.model.User;
+import rs.ac.uns.ftn.isa.isa_project.model.Video;
+import rs.ac.uns.ftn.isa.isa_project.repository.UserRepository;
+import rs.ac.uns.ftn.isa.isa_project.repository.VideoRepository;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoService;
+import rs.ac.uns.ftn.isa.isa_project.service.VideoViewCountBuffer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Poređenje write-behind brojača sa starim SELECT ... FOR UPDATE putem
+ * pod 200 konkurentnih niti.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ViewCountWriteBehindTest {
+
+    private static final int THREADS = 200;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testWriteBehindIsExactAndFasterThanLockedPath() throws InterruptedException {
+        Long lockedVideoId = createVideo("Locked path video").getId();
+        Long bufferedVideoId = createVideo("Write-behind video").getId();
+
+        int lockedPerThread = 5;
+        int bufferedPerThread = 500;
+
+        double lockedOpsPerSec = run(lockedPerThread, () -> videoService.incrementViewCountLocked(lockedVideoId));
+        double bufferedOpsPerSec = run(bufferedPerThread, () -> videoService.incrementViewCount(bufferedVideoId));
+
+        viewCountBuffer.flush();
+
+        System.out.printf("Locked: %.0f ops/s, write-behind: %.0f ops/s (%.1fx)%n",
+                lockedOpsPerSec, bufferedOpsPerSec, bufferedOpsPerSec / lockedOpsPerSec);
+
+        assertEquals(THREADS * lockedPerThread,
+                videoRepository.findById(lockedVideoId).orElseThrow().getViewCount());
+        assertEquals(THREADS * bufferedPerThread,
+                videoRepository.findById(bufferedVideoId).orElseThrow().getViewCount());
+        assertEquals(0, viewCountBuffer.getPendingViews(bufferedVideoId));
+
+        assertTrue(bufferedOpsPerSec >= 10 * lockedOpsPerSec,
+                "Write-behind path should be at least 10x faster than the locked path");
+    }
+
+    @Test
+    void testIncrementsDuringFlushAndEvictionAreCountedOnce() throws InterruptedException {
+        Long videoId = createVideo("Evicted video").getId();
+        int perThread = 200;
+
+        // Flush (i izbacivanje neaktivnog stripe-a) u petlji dok niti broje preglede
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread flusher = new Thread(() -> {
+            while (!stop.get()) {
+                viewCountBuffer.flush();
+            }
+        });
+        flusher.start();
+        try {
+            run(perThread, () -> videoService.incrementViewCount(videoId));
+        } finally {
+            stop.set(true);
+            flusher.join();
+        }
+        viewCountBuffer.flush();
+
+        assertEquals(THREADS * perThread, videoRepository.findById(videoId).orElseThrow().getViewCount());
+
+        // Sve je upisano, a do sledećeg flush-a nema pregleda - stripe se izbacuje
+        viewCountBuffer.flush();
+        assertFalse(viewCountBuffer.isTracked(videoId));
+
+        videoService.incrementViewCount(videoId);
+        viewCountBuffer.flush();
+        assertEquals(THREADS * perThread + 1, videoRepository.findById(videoId).orElseThrow().getViewCount());
+    }
+
+    @Test
+    void testUnknownVideoIsRejected() {
+        assertThrows(RuntimeException.class, () -> videoService.incrementViewCount(-1L));
+    }
+
+    private double run(int incrementsPerThread, Runnable increment) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch endLatch = new CountDownLatch(THREADS);
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                try {
+                    startLatch.await();
+                    for (int j = 0; j < incrementsPerThread; j++) {
+                        increment.run();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    endLatch.countDown();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        startLatch.countDown();
+        assertTrue(endLatch.await(120, TimeUnit.SECONDS), "Threads did not finish in time");
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        assertEquals(0, failures.get(), "There should be no failed increments");
+        return THREADS * incrementsPerThread / (elapsed / 1_000_000_000.0);
+    }
+
+    private Video createVideo(String title) {
+        User author = userRepository.findAll().stream().findFirst().orElseGet(() -> {
+            User user = new User();
+            user.setUsername("write-behind-user");
+            user.setEmail("write-behind@test.com");
+            user.setPassword("test123");
+            user.setFirstName("Write");
+            user.setLastName("Behind");
+            user.setAddress("Test Street 3");
+            user.setActivated(true);
+            user.setEnabled(true);
+            return userRepository.save(user);
+        });
+
+        Video video = new Video();
+        video.setTitle(title);
+        video.setDescription("Write-behind view count test");
+        video.setVideoPath("test/video.mp4");
+        video.setThumbnailPath("test/thumb.jpg");
+        video.setViewCount(0L);
+        video.setAuthor(author);
+        return videoRepository.save(video);
+    }
+}